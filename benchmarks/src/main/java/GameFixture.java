@@ -0,0 +1,119 @@
+import galacticdawn.bench.Fixture;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * The game side of the benchmarks' {@link Fixture}. It lives in the default
+ * package so it can reach the package-private parts of the game.
+ */
+public class GameFixture implements Fixture {
+    /** Steps of the loop the player walks while the map is printed. */
+    private static final int[][] LOOP = { { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 } };
+
+    /** The game. */
+    private final GameSession session;
+
+    /** Seeds new maps. */
+    private final SplittableRandom seeds = new SplittableRandom(42);
+
+    /** The enemy fought in {@link #combatRound()}. */
+    private final CombatCharacters enemy = new CombatCharacters("Training Droid", "Robot", 1000, 15, 20);
+
+    /** Position in {@link #LOOP}. */
+    private int step;
+
+    /**
+     * Creates a game answering every prompt with "1", which is an attack in
+     * combat, and discarding its output.
+     */
+    public GameFixture() {
+        this.session = new GameSession(0, new GameRandom(42), new RepeatingInput("1\n"),
+                OutputStream.nullOutputStream());
+    }
+
+    @Override
+    public void dispatch(String line) {
+        App.handleCommand(line, session);
+        session.getOut().flush();
+    }
+
+    @Override
+    public Object combatRound() {
+        Player player = session.getPlayer();
+        player.setHealth(1);
+        enemy.setHealth(1000);
+        enemy.setDead(false);
+        CombatOutcome outcome = CombatSystem.combat(session, enemy);
+        session.getOut().flush();
+        return outcome;
+    }
+
+    @Override
+    public void fillInventory(int size) {
+        Player player = session.getPlayer();
+        player.clearInventory();
+        Items[] items = Items.values();
+        for (int i = 0; i < size; i++) {
+            player.addItem(i < items.length ? items[i] : Items.STIMPACK);
+        }
+    }
+
+    @Override
+    public boolean hasItem(int id) {
+        return session.getPlayer().hasItem(Items.byId(id));
+    }
+
+    @Override
+    public boolean hasAllWarpFragments() {
+        return session.getPlayer().hasAllWarpFragments();
+    }
+
+    @Override
+    public Object newMap() {
+        return new GameMap(WorldTemplate.DEFAULT, seeds.nextLong());
+    }
+
+    @Override
+    public void printMap() {
+        Player player = session.getPlayer();
+        int[] move = LOOP[step++ & 3];
+        player.setX(player.getX() + move[0]);
+        player.setY(player.getY() + move[1]);
+        session.getMap().printMap(player, session.getOut());
+        session.getOut().flush();
+    }
+
+    @Override
+    public Object nearest() {
+        Player player = session.getPlayer();
+        return session.getMap().findNearest(player.getX(), player.getY(), PointsOfInterest.ANY);
+    }
+
+    /**
+     * Input that repeats the same text forever.
+     */
+    private static class RepeatingInput extends InputStream {
+        /** The text, encoded. */
+        private final byte[] text;
+
+        /** Next byte to return. */
+        private int next;
+
+        /**
+         * @param text the text to repeat
+         */
+        RepeatingInput(String text) {
+            this.text = text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            int b = text[next];
+            next = (next + 1) % text.length;
+            return b;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package galacticdawn.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One round of console combat: the menu, reading the player's attack, both
+ * blows and their messages, ending in the player's death.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombatRoundBenchmark {
+    /** The game. */
+    private Fixture fixture;
+
+    /**
+     * Starts a new game.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixture.create();
+    }
+
+    /**
+     * Fights one round.
+     *
+     * @return how the fight ended
+     */
+    @Benchmark
+    public Object round() {
+        return fixture.combatRound();
+    }
+}
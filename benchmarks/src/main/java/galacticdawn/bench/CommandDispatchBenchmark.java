@@ -0,0 +1,58 @@
+package galacticdawn.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and running one command at the main prompt. Moves alternate
+ * between two directions so the player stays on the map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+    /** The commands dispatched in turn, separated by '|'. */
+    @Param({ "look", "inv", "map", "help", "n|s", "go east|go west", "xyzzy" })
+    public String commands;
+
+    /** The game. */
+    private Fixture fixture;
+
+    /** The commands, split. */
+    private String[] lines;
+
+    /** Index of the next command. */
+    private int next;
+
+    /**
+     * Starts a new game.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixture.create();
+        lines = commands.split("\\|");
+    }
+
+    /**
+     * Dispatches the next command.
+     */
+    @Benchmark
+    public void dispatch() {
+        fixture.dispatch(lines[next]);
+        next = (next + 1) % lines.length;
+    }
+}
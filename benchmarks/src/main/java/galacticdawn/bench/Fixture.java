@@ -0,0 +1,77 @@
+package galacticdawn.bench;
+
+/**
+ * One game set up for benchmarking, writing all its output to a null sink.
+ * <p>
+ * JMH does not accept benchmarks in the default package, where the game's
+ * classes live, and a named package cannot refer to the default one. The
+ * benchmarks therefore drive the game through this interface, implemented by
+ * {@code GameFixture} in the default package and loaded by name.
+ */
+public interface Fixture {
+    /**
+     * Creates a fresh fixture: a new game with a fixed seed, the player at
+     * the start with a Stimpack.
+     *
+     * @return the fixture
+     */
+    static Fixture create() {
+        try {
+            return (Fixture) Class.forName("GameFixture").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("GameFixture is missing from the benchmark classpath", e);
+        }
+    }
+
+    /**
+     * Runs one line through the main command dispatcher and flushes the output.
+     *
+     * @param line the command line
+     */
+    void dispatch(String line);
+
+    /**
+     * Fights one round against a fresh enemy that cannot die in one hit,
+     * with the player attacking and killed by the reply.
+     *
+     * @return how the fight ended
+     */
+    Object combatRound();
+
+    /**
+     * Empties the player's inventory and fills it with the first items in
+     * id order, stacking any Stimpacks beyond the distinct items.
+     *
+     * @param size number of items to hold
+     */
+    void fillInventory(int size);
+
+    /**
+     * @param id the item id to look up
+     * @return true if the player holds the item
+     */
+    boolean hasItem(int id);
+
+    /**
+     * @return true if the player holds every warp drive fragment
+     */
+    boolean hasAllWarpFragments();
+
+    /**
+     * @return a new map with a new description seed, as every game starts with
+     */
+    Object newMap();
+
+    /**
+     * Moves the player one step around a loop and prints the map.
+     */
+    void printMap();
+
+    /**
+     * Finds the location nearest the player that holds an item, is hostile
+     * or has an event still to happen.
+     *
+     * @return the location
+     */
+    Object nearest();
+}
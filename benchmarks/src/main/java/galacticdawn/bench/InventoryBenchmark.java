@@ -0,0 +1,67 @@
+package galacticdawn.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inventory lookups as the inventory grows. Past the eleven distinct items
+ * the extra items are stacked Stimpacks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+    /** Items held. */
+    @Param({ "1", "4", "11", "256" })
+    public int size;
+
+    /** The game. */
+    private Fixture fixture;
+
+    /** Item ids looked up in turn, held and not held. */
+    private final int[] ids = { 0, 6, 3, 10 };
+
+    /** Index of the next id. */
+    private int next;
+
+    /**
+     * Starts a new game and fills the player's inventory.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixture.create();
+        fixture.fillInventory(size);
+    }
+
+    /**
+     * @return whether the player holds the next item
+     */
+    @Benchmark
+    public boolean hasItem() {
+        int id = ids[next];
+        next = (next + 1) & 3;
+        return fixture.hasItem(id);
+    }
+
+    /**
+     * @return whether the player holds every warp drive fragment
+     */
+    @Benchmark
+    public boolean hasAllWarpFragments() {
+        return fixture.hasAllWarpFragments();
+    }
+}
@@ -0,0 +1,61 @@
+package galacticdawn.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a game's map, drawing it with the {@code map} command and
+ * querying its points of interest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+    /** The game. */
+    private Fixture fixture;
+
+    /**
+     * Starts a new game.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixture.create();
+    }
+
+    /**
+     * @return a new map
+     */
+    @Benchmark
+    public Object construct() {
+        return fixture.newMap();
+    }
+
+    /**
+     * Moves the player a step and draws the map.
+     */
+    @Benchmark
+    public void printMap() {
+        fixture.printMap();
+    }
+
+    /**
+     * @return the nearest point of interest to the player
+     */
+    @Benchmark
+    public Object nearest() {
+        return fixture.nearest();
+    }
+}
@@ -1,5 +1,7 @@
-import java.util.InputMismatchException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
 
 /**
  * The main application class for the game.
@@ -8,49 +10,93 @@ import java.util.Scanner;
  * This class handles initialization of core game components (player, map),
  * processes player commands, manages combat and item usage, and
  * coordinates game flow through various menu and interaction methods.
+ * All game state lives in a {@link GameSession}, so the same methods can run
+ * many games at once.
  */
 public class App {
     /**
-     * Variable that handles game state
+     * The file the console game saves to.
      */
-    private static boolean gameStart = false;
+    static final String SAVE_FILE = "galactic-dawn.sav";
 
     /**
-     * The main method to start the game.
+     * How many jumps away the ship's scanner picks up contacts.
+     */
+    static final int SCANNER_RANGE = 8;
+
+    /**
+     * The main method to start the game on the console.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments; an optional seed to replay a game with.
      * @throws Exception If an unexpected error occurs during execution.
      */
     public static void main(String[] args) throws Exception {
-        Scanner scanner = new Scanner(System.in);
-        GameMap map = new GameMap();
-        Player player = new Player();
-        player.addItem(Items.STIMPACK);
+        GameRandom random = args.length > 0 ? new GameRandom(Long.parseLong(args[0])) : GameRandom.newSession();
+        GameMetrics.install();
+        GameSession session = new GameSession(0, random, System.in, System.out);
+        session.setSavePath(Path.of(SAVE_FILE));
+        session.run();
+    }
+
+    /**
+     * Plays one game from the welcome menu until the player quits, dies or
+     * wins. Returns quietly if the session's input ends.
+     *
+     * @param session the game to play
+     */
+    static void play(GameSession session) {
+        try {
+            playGame(session);
+        } catch (NoSuchElementException e) {
+            session.setRunning(false); // input closed, e.g. the player disconnected
+        } finally {
+            session.getOut().flush();
+        }
+    }
 
-        displayWelcomeMenu(scanner);
+    /**
+     * Runs the welcome menu, asks for the player's name and runs the main game
+     * loop.
+     *
+     * @param session the game to play
+     */
+    private static void playGame(GameSession session) {
+        GameInput input = session.getInput();
+        GameOutput out = session.getOut();
+        Player player = session.getPlayer();
+
+        displayWelcomeMenu(session);
+        if (!session.isRunning()) {
+            return;
+        }
 
         // get player name
         String playerName = "";
         while (playerName.isEmpty()) {
-            System.out.println("\nPlease enter a name: ");
-            playerName = scanner.nextLine();
+            out.println("\nPlease enter a name: ");
+            playerName = input.readLine();
             if (playerName.isEmpty()) {
-                System.out.println("Name cannot be empty. Please try again.");
+                out.println("Name cannot be empty. Please try again.");
             }
         }
         player.setName(playerName);
 
-        System.out.println();
+        out.println();
 
-        displayGameInstructions(player);
+        displayGameInstructions(player, out);
 
         // main game loop
-        while (gameStart) {
-            System.out.print("Enter command: ");
-            String input = scanner.nextLine();
-            System.out.println();
-            handleCommand(input, player, map, scanner);
-            System.out.println();
+        while (session.isRunning()) {
+            out.print("Enter command: ");
+            String command = session.readCommand();
+            out.println();
+            handleCommand(command, session);
+            if (session.isRunning()) {
+                out.println();
+            }
+            if (out.checkError()) { // flushes the turn's output
+                session.setRunning(false); // the player can no longer see the game
+            }
         }
     }
 
@@ -59,14 +105,17 @@ public class App {
      * quit.
      * <p>
      * This method loops until a valid menu choice is entered: “1” to start the game
-     * (sets the static gameStart flag to true) or “2” to quit (prints a message and
-     * calls System.exit(0) to terminate the program).
+     * (marks the session as running) or “2” to quit (prints a message and leaves
+     * the session stopped so the game ends).
      *
-     * @param scanner the Scanner instance used for reading the user’s input
+     * @param session the game whose input is read and whose output is written
      */
-    private static void displayWelcomeMenu(Scanner scanner) {
+    private static void displayWelcomeMenu(GameSession session) {
+        GameInput input = session.getInput();
+        GameOutput out = session.getOut();
+
         // Title of Game using Ascii - christ
-        System.out.println(
+        out.println(
                 """
                           _______      ___       __          ___       ______ .___________. __    ______     _______       ___   ____    __    ____ .__   __.
                          /  _____|    /   \\     |  |        /   \\     /      ||           ||  |  /      |   |       \\     /   \\  \\   \\  /  \\  /   / |  \\ |  |
@@ -76,24 +125,20 @@ public class App {
                          \\______| /__/     \\__\\ |_______/__/     \\__\\ \\______|    |__|     |__|  \\______|   |_______/ /__/     \\__\\  \\__/  \\__/     |__| \\__|   """);
 
         int choice = -1;
-        while (!gameStart) {
-            System.out.print("\n\n\nChoose action (1=Start, 2=Quit): ");
-            if (scanner.hasNextInt()) {
-                choice = scanner.nextInt();
-                scanner.nextLine();
-                if (choice == 1 || choice == 2)
-                    break;
-            } else {
-                scanner.nextLine();
+        while (true) {
+            out.print("\n\n\nChoose action (1=Start, 2=Quit): ");
+            String line = input.readLine().trim();
+            if (line.equals("1") || line.equals("2")) {
+                choice = line.charAt(0) - '0';
+                break;
             }
-            System.out.println("Invalid input.");
+            out.println("Invalid input.");
         }
 
         if (choice == 1) {
-            gameStart = true;
+            session.setRunning(true);
         } else {
-            System.out.println("Quitting...");
-            System.exit(0);
+            out.println("Quitting...");
         }
 
     }
@@ -102,33 +147,37 @@ public class App {
      * Displays the game instructions to the player.
      *
      * @param player The player object to personalize the instructions.
+     * @param out    The output the instructions are written to.
      */
-    private static void displayGameInstructions(Player player) {
-        System.out.printf("Welcome to GALACTIC DAWN, %s!\n", player.getName());
-        System.out.println();
-        System.out.println("====================== BRIEF =====================");
-        System.out.println("You awaken in empty space aboard a crippled spaceship.");
-        System.out.println("Its warp drive is obliterated and the stars are unreachable.");
-        System.out.println("To escape, you must explore nearby planets, retrieve");
-        System.out.println("four warp drive fragments, and defeat Emperor Poutine,");
-        System.out.println("the tyrant whose corruption locks down the system.");
-        System.out.printf("The Rift Gate awaits, %s.\n", player.getName());
-        System.out.println("===================================================");
-        System.out.println();
-        System.out.println("================= GAME INSTRUCTIONS ===============");
-        System.out.println("Type n/s/e/w to move in that direction.");
-        System.out.println("Type 'look' to examine your surroundings.");
-        System.out.println("Type 'take' to pick up an item.");
-        System.out.println("Type 'inv' to check your inventory.");
-        System.out.println("Type 'map' to see the map.");
-        System.out.println("Type 'solve' to attempt a puzzle at your location.");
-        System.out.println("Type 'heal' to use a Stimpack to restore health");
-        System.out.println("Type 'use' to use or trade an item at your location.");
-        System.out.println("Type 'help' or '?' for commands.");
-        System.out.println("Type 'fight' initiates the fight with hostile npc.");
-        System.out.println("Type 'q' to quit the game.");
-        System.out.println("====================================================");
-        System.out.println();
+    private static void displayGameInstructions(Player player, GameOutput out) {
+        out.println("Welcome to GALACTIC DAWN, " + player.getName() + "!");
+        out.println();
+        out.println("====================== BRIEF =====================");
+        out.println("You awaken in empty space aboard a crippled spaceship.");
+        out.println("Its warp drive is obliterated and the stars are unreachable.");
+        out.println("To escape, you must explore nearby planets, retrieve");
+        out.println("four warp drive fragments, and defeat Emperor Poutine,");
+        out.println("the tyrant whose corruption locks down the system.");
+        out.println("The Rift Gate awaits, " + player.getName() + ".");
+        out.println("===================================================");
+        out.println();
+        out.println("================= GAME INSTRUCTIONS ===============");
+        out.println("Type n/s/e/w to move in that direction.");
+        out.println("Type 'goto x,y' or 'goto <place>' to travel there.");
+        out.println("Type 'look' to examine your surroundings.");
+        out.println("Type 'scan' to find items, hostiles and events nearby.");
+        out.println("Type 'take' to pick up an item.");
+        out.println("Type 'inv' to check your inventory.");
+        out.println("Type 'map' to see the map.");
+        out.println("Type 'solve' to attempt a puzzle at your location.");
+        out.println("Type 'heal' to use a Stimpack to restore health");
+        out.println("Type 'save' or 'load' to save your game or resume it.");
+        out.println("Type 'use' to use or trade an item at your location.");
+        out.println("Type 'help' or '?' for commands.");
+        out.println("Type 'fight' initiates the fight with hostile npc.");
+        out.println("Type 'q' to quit the game.");
+        out.println("====================================================");
+        out.println();
 
     }
 
@@ -137,153 +186,244 @@ public class App {
      *
      * @param player The player object representing the current player.
      * @param map    The game map object.
+     * @param out    The output the location is written to.
      */
-    private static void printCurrentLocation(Player player, GameMap map) {
+    private static void printCurrentLocation(Player player, GameMap map, GameOutput out) {
         Location loc = map.getLocation(player.getX(), player.getY());
-        System.out.println();
-        System.out.print("\nLocation: ");
+        out.println();
+        out.print("\nLocation: ");
         if (loc.isHostile()) {
-            System.out.print("**[HOSTILE]** ");
+            out.print("**[HOSTILE]** ");
         }
-        System.out.println(loc.getName() + " (" + player.getX() + ", " + player.getY() + ")");
-        System.out.println(loc.getDescription());
-        System.out.println();
+        out.print(loc.getName());
+        out.print(" (");
+        out.print(player.getX());
+        out.print(", ");
+        out.print(player.getY());
+        out.println(")");
+        out.println(loc.getDescription());
+        out.println();
     }
 
     /**
      * Processes a user command and updates the game state accordingly.
      *
      * @param input   The command entered by the user.
-     * @param player  The player object representing the current player.
-     * @param map     The game map object.
-     * @param scanner The scanner object for reading user input.
+     * @param session The game the command is played in.
      */
-    private static void handleCommand(String input, Player player, GameMap map, Scanner scanner) {
+    static void handleCommand(CharSequence input, GameSession session) {
+        Command command = session.getCommandParser().parse(input);
+        if (command == null) {
+            GameMetrics.increment(GameMetrics.Counter.INVALID_COMMANDS);
+            session.getOut().println("Invalid input.");
+            return;
+        }
+        Player player = session.getPlayer();
+        int x = player.getX(), y = player.getY();
+        GameEvents.CommandEvent event = new GameEvents.CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long waitStart = session.getInput().getWaitNanos();
+        runCommand(command, session);
+        long waited = session.getInput().getWaitNanos() - waitStart;
+        GameMetrics.commandCompleted(command, System.nanoTime() - start - waited);
+        event.end();
+        if (event.shouldCommit()) {
+            Items item = command == Command.USE ? session.getCommandParser().getItem() : null;
+            event.sessionId = session.getId();
+            event.command = command.name();
+            event.item = item != null ? item.getName() : null;
+            event.x = x;
+            event.y = y;
+            event.playerWait = waited;
+            event.commit();
+        }
+    }
+
+    /**
+     * Carries out a parsed command.
+     *
+     * @param command The command, with any argument held by the session's parser.
+     * @param session The game the command is played in.
+     */
+    private static void runCommand(Command command, GameSession session) {
+        Player player = session.getPlayer();
+        GameMap map = session.getMap();
+        Enemies enemies = session.getEnemies();
+        GameOutput out = session.getOut();
         Location currentLocation = map.getLocation(player.getX(), player.getY());
-        switch (input.trim().toLowerCase()) {
-            case "n" -> {
-                player.moveNorth();
-                printCurrentLocation(player, map);
-            }
-            case "s" -> {
-                player.moveSouth();
-                printCurrentLocation(player, map);
-            }
-            case "e" -> {
-                player.moveEast();
-                printCurrentLocation(player, map);
-            }
-            case "w" -> {
-                player.moveWest();
-                printCurrentLocation(player, map);
-            }
-            case "map" -> map.printMap(player);
-            case "inv" -> player.listInventory();
-            case "look" -> {
+        CommandParser parser = session.getCommandParser();
+        switch (command) {
+            case NORTH -> {
+                player.moveNorth(map, out);
+                printCurrentLocation(player, map, out);
+            }
+            case SOUTH -> {
+                player.moveSouth(map, out);
+                printCurrentLocation(player, map, out);
+            }
+            case EAST -> {
+                player.moveEast(map, out);
+                printCurrentLocation(player, map, out);
+            }
+            case WEST -> {
+                player.moveWest(map, out);
+                printCurrentLocation(player, map, out);
+            }
+            case GOTO -> travel(session, parser.getTargetX(), parser.getTargetY());
+            case SCAN -> scan(session);
+            case MAP -> map.printMap(player, out);
+            case INVENTORY -> player.listInventory(out);
+            case LOOK -> {
                 if (currentLocation.hasItem()) {
-                    System.out.println("You examine your surroundings more carefully...");
-                    System.out.println();
-                    System.out.println("You notice: " + currentLocation.getItemAtLoc().getName());
+                    out.println("You examine your surroundings more carefully...");
+                    out.println();
+                    out.println("You notice: " + currentLocation.getItemAtLoc().getName());
                 }
-                System.out.println();
-                System.out.println(currentLocation.getLongDescription());
+                out.println();
+                out.println(currentLocation.getLongDescription());
             }
-            case "take" -> {
-                if (currentLocation.hasItem()) {
-                    Items item = currentLocation.getItemAtLoc();
+            case TAKE -> {
+                Items item = currentLocation.takeItem(); // Remove from location
+                if (item != null) {
                     player.addItem(item); // add to inventory
-                    currentLocation.setItem(null); // Remove from location
-                    System.out.println("You picked up: " + item.getName());
+                    GameMetrics.increment(GameMetrics.Counter.ITEMS_TAKEN);
+                    out.println("You picked up: " + item.getName());
                 } else {
-                    System.out.println("Nothing to take here.");
+                    out.println("Nothing to take here.");
                 }
             }
-            case "?", "help" -> {
-                System.out.println("Available commands:");
-                System.out.println("n / s / e / w - Move north, south, east, west");
-                System.out.println("look - Examine your surroundings");
-                System.out.println("take - Pick up an item");
-                System.out.println("map - Display the game map");
-                System.out.println("inv - Show your inventory");
-                System.out.println("solve - Attempt a puzzle at your location");
-                System.out.println("use - Use or trade an item at your location");
-                System.out.println("heal - Use a Stimpack to restore health");
-                System.out.println("help / ? - Show this help menu");
-                System.out.println("fight - initiates the fight with hostile npc.");
-                System.out.println("q - Quit the game");
+            case HELP -> {
+                out.println("Available commands:");
+                out.println("n / s / e / w - Move north, south, east, west");
+                out.println("go <direction> - Move in that direction");
+                out.println("goto x,y / goto <place> - Travel there, avoiding hostile places");
+                out.println("look - Examine your surroundings");
+                out.println("scan - List items, hostiles and events nearby");
+                out.println("take - Pick up an item");
+                out.println("map - Display the game map");
+                out.println("inv - Show your inventory");
+                out.println("solve - Attempt a puzzle at your location");
+                out.println("use [item] - Use or trade an item at your location");
+                out.println("heal - Use a Stimpack to restore health");
+                out.println("save / load - Save your game or resume the saved one");
+                out.println("help / ? - Show this help menu");
+                out.println("fight - initiates the fight with hostile npc.");
+                out.println("q - Quit the game");
             }
-            case "use" -> {
-                handleUse(player, map, scanner);
+            case USE -> {
+                handleUse(session, parser.getItem());
             }
-            case "solve" -> {
-                handleSolve(player, scanner, map);
+            case SOLVE -> {
+                handleSolve(session);
             }
 
-            case "fight" -> {
+            case FIGHT -> {
                 int x = player.getX(), y = player.getY();
 
                 // Eridani (2,4): Grand General Zig
                 if (x == 2 && y == 4) {
-                    if (!CombatCharacters.zig.isDead() && !currentLocation.isEventTriggered()) {
-                        CombatSystem.combat(player, CombatCharacters.zig, scanner, map);
+                    if (!enemies.zig.isDead() && !currentLocation.isEventTriggered()) {
+                        startCombat(session, enemies.zig);
                     } else {
-                        System.out.println("Zig and his forces have retreated.");
+                        out.println("Zig and his forces have retreated.");
                     }
 
                     // Ixyll (0,3): Zep Zop
                 } else if (x == 0 && y == 3) {
-                    if (!CombatCharacters.zepZop.isDead()) {
-                        CombatSystem.combat(player, CombatCharacters.zepZop, scanner, map);
+                    if (!enemies.zepZop.isDead()) {
+                        startCombat(session, enemies.zepZop);
                     } else {
-                        System.out.println("The jungle rustles gently, but Zep Zop has been defeated.");
+                        out.println("The jungle rustles gently, but Zep Zop has been defeated.");
                     }
 
                     // Strix (1,1): Mastermind
                 } else if (x == 1 && y == 1) {
-                    if (!CombatCharacters.mastermind.isDead()) {
-                        CombatSystem.combat(player, CombatCharacters.mastermind, scanner, map);
+                    if (!enemies.mastermind.isDead()) {
+                        startCombat(session, enemies.mastermind);
                     } else {
-                        System.out.println("The air is still and cold. The Mastermind has already been dealt with.");
+                        out.println("The air is still and cold. The Mastermind has already been dealt with.");
                     }
 
                     // Ternion (4,0): Rogue Droid
                 } else if (x == 4 && y == 0) {
-                    if (!CombatCharacters.droid.isDead()) {
-                        CombatSystem.combat(player, CombatCharacters.droid, scanner, map);
+                    if (!enemies.droid.isDead()) {
+                        startCombat(session, enemies.droid);
+                    } else {
+                        out.println("The droid's remains lie motionless among the ruins.");
+                    }
+
+                    // Rift Gate (0,0): in a shared world, join the fight with Emperor Poutine once the gate is open
+                } else if (x == 0 && y == 0 && map.getWorld() != null && currentLocation.isEventTriggered()) {
+                    if (!enemies.boss.isDead()) {
+                        startCombat(session, enemies.boss);
                     } else {
-                        System.out.println("The droid's remains lie motionless among the ruins.");
+                        out.println("Emperor Poutine has already fallen.");
                     }
 
                 } else {
-                    System.out.println("There's nothing to fight here.");
+                    out.println("There's nothing to fight here.");
                 }
             }
 
-            case "heal" -> {
-                if (player.hasItem("Stimpack")) {
-                    if (confirm("Do you want to use a Stimpack? (y/n) ", scanner)) {
-                        player.removeItem("Stimpack");
-                        System.out.println();
-                        System.out.println("You use a stimpack and replenish some health.");
+            case HEAL -> {
+                if (player.hasItem(Items.STIMPACK)) {
+                    if (confirm("Do you want to use a Stimpack? (y/n) ", session)) {
+                        player.removeItem(Items.STIMPACK);
+                        GameMetrics.increment(GameMetrics.Counter.STIMPACKS_USED);
+                        out.println();
+                        out.println("You use a stimpack and replenish some health.");
                         int oldHealth = player.getHealth();
-                        player.setHealth(oldHealth + 50);
+                        player.setHealth(oldHealth + Items.STIMPACK.getHealAmount());
                         int newHealth = player.getHealth();
-                        System.out.println();
-                        System.out.printf("Previous Health: %d\nCurrent Health: %d\n", oldHealth, newHealth);
+                        out.println();
+                        out.print("Previous Health: ");
+                        out.println(oldHealth);
+                        out.print("Current Health: ");
+                        out.println(newHealth);
                     } else {
-                        System.out.println("You save your Stimpacks for another time.");
+                        out.println("You save your Stimpacks for another time.");
                     }
                 } else {
-                    System.out.println("You don't have any Stimpacks.");
+                    out.println("You don't have any Stimpacks.");
                 }
             }
 
-            case "q" -> {
-                if (confirm("Are you sure you want to quit? (y/n): ", scanner)) {
-                    System.out.println("Thanks for playing. Goodbye!");
-                    System.exit(0);
+            case SAVE -> {
+                Path path = session.getSavePath();
+                if (path == null) {
+                    out.println("Saving is not available here.");
+                } else {
+                    try {
+                        GameSnapshot.save(session, path);
+                        out.println("Game saved.");
+                    } catch (IOException e) {
+                        out.println("Could not save the game: " + e.getMessage());
+                    }
+                }
+            }
+            case LOAD -> {
+                Path path = session.getSavePath();
+                if (path == null) {
+                    out.println("Saving is not available here.");
+                } else if (!Files.exists(path)) {
+                    out.println("There is no saved game.");
+                } else {
+                    try {
+                        GameSnapshot.restore(path, session);
+                        out.println("Game loaded.");
+                        printCurrentLocation(player, map, out);
+                    } catch (IOException e) {
+                        out.println("Could not load the game: " + e.getMessage());
+                    }
+                }
+            }
+            case QUIT -> {
+                if (confirm("Are you sure you want to quit? (y/n): ", session)) {
+                    out.println("Thanks for playing. Goodbye!");
+                    session.setRunning(false);
                 } else {
-                    System.out.println("Continuing game...");
+                    out.println("Continuing game...");
                 }
             }
 
@@ -298,11 +438,144 @@ public class App {
             // player.setHealth(300);
             // System.out.println("DEBUG MODE ACTIVE");
             // }
-            default -> System.out.println("Invalid input.");
+            default -> out.println("Invalid input.");
+
+        }
+    }
+
+    /**
+     * Moves the player to a destination along the shortest route that passes
+     * no hostile location on the way, then shows the course and the
+     * destination once.
+     *
+     * @param session The game being played; its player is moved.
+     * @param x       The destination's x-coordinate.
+     * @param y       The destination's y-coordinate.
+     */
+    private static void travel(GameSession session, int x, int y) {
+        Player player = session.getPlayer();
+        GameMap map = session.getMap();
+        GameOutput out = session.getOut();
+        if (!map.contains(x, y)) {
+            out.println("There is no such place on the map.");
+            return;
+        }
+        if (player.getX() == x && player.getY() == y) {
+            out.println("You are already there.");
+            return;
+        }
+        int[] route = Router.route(map, player.getX(), player.getY(), x, y);
+        if (route == null) {
+            out.println("There is no safe route there.");
+            return;
+        }
+
+        // Print the course as runs of jumps in one direction
+        int height = map.getTemplate().getHeight();
+        out.print("You set a course:");
+        int previous = player.getX() * height + player.getY();
+        Command heading = null;
+        int run = 0;
+        boolean first = true;
+        for (int i = 0; i <= route.length; i++) {
+            Command direction = null; // past the last step, ends the last run
+            if (i < route.length) {
+                int step = route[i] - previous;
+                direction = step == height ? Command.EAST : step == -height ? Command.WEST
+                        : step == 1 ? Command.NORTH : Command.SOUTH;
+                previous = route[i];
+            }
+            if (direction != heading) {
+                if (heading != null) {
+                    out.print(first ? " " : ", ");
+                    out.print(heading.name().toLowerCase());
+                    out.print(' ');
+                    out.print(run);
+                    first = false;
+                }
+                heading = direction;
+                run = 0;
+            }
+            run++;
+        }
+        out.println(".");
 
+        player.travelTo(x, y);
+        printCurrentLocation(player, map, out);
+    }
+
+    /**
+     * Lists the locations within {@link #SCANNER_RANGE} jumps that hold an
+     * item, are hostile or have an event still to happen, nearest first. If
+     * there are none, names the nearest one further away.
+     *
+     * @param session The game being played.
+     */
+    private static void scan(GameSession session) {
+        Player player = session.getPlayer();
+        GameMap map = session.getMap();
+        GameOutput out = session.getOut();
+        int x = player.getX(), y = player.getY();
+        boolean found = false;
+        for (Location contact : map.findWithin(x, y, SCANNER_RANGE, PointsOfInterest.ANY)) {
+            if (contact.getX() == x && contact.getY() == y) {
+                continue;
+            }
+            if (!found) {
+                out.println("Scanner contacts within " + SCANNER_RANGE + " jumps:");
+                found = true;
+            }
+            out.print("  ");
+            printContact(contact, x, y, out);
+            String separator = ": ";
+            if (contact.hasItem()) {
+                out.print(separator);
+                out.print("item");
+                separator = ", ";
+            }
+            if (contact.isHostile()) {
+                out.print(separator);
+                out.print("hostile");
+                separator = ", ";
+            }
+            if (contact.hasEvent() && !contact.isEventTriggered()) {
+                out.print(separator);
+                out.print("event");
+            }
+            out.println();
+        }
+        if (!found) {
+            Location nearest = map.findNearestOther(x, y, PointsOfInterest.ANY);
+            if (nearest == null) {
+                out.println("Your scanner picks up nothing.");
+            } else {
+                out.print("Nothing within " + SCANNER_RANGE + " jumps. The nearest contact is ");
+                printContact(nearest, x, y, out);
+                out.println(".");
+            }
         }
     }
 
+    /**
+     * Prints a scanner contact's name, coordinates and distance.
+     *
+     * @param contact The location picked up.
+     * @param x       The player's x-coordinate.
+     * @param y       The player's y-coordinate.
+     * @param out     The output the contact is written to.
+     */
+    private static void printContact(Location contact, int x, int y, GameOutput out) {
+        int jumps = Math.abs(contact.getX() - x) + Math.abs(contact.getY() - y);
+        out.print(contact.getName());
+        out.print(" (");
+        out.print(contact.getX());
+        out.print(", ");
+        out.print(contact.getY());
+        out.print("), ");
+        out.print(jumps);
+        out.print(jumps == 1 ? " jump" : " jumps");
+    }
+
     /**
      * Attempts to use an item or trigger an event at the player's current location.
      * <p>
@@ -314,106 +587,162 @@ public class App {
      * Drive Fragments.
      * - At (4,3): Trades an Ixyll Fruit with the Jungle Hermit for a Shield Module.
      * - Otherwise: Informs the player there is nothing to use here.
+     * <p>
+     * If the player named an item, it must be one they carry and the one this
+     * location calls for.
      *
-     * @param player  The player object, whose inventory will be checked and
-     *                modified.
-     * @param map     The game map, used to retrieve and update the current
-     *                location.
-     * @param scanner The scanner for reading additional player input (e.g.,
-     *                confirmation).
+     * @param session The game being played; its player's inventory is checked
+     *                and modified, its map's current location is updated, and
+     *                its input is read for confirmation.
+     * @param item    The item the player named, or null to use whatever the
+     *                location calls for.
      */
-    private static void handleUse(Player player, GameMap map, Scanner scanner) {
+    private static void handleUse(GameSession session, Items item) {
+        Player player = session.getPlayer();
+        GameMap map = session.getMap();
+        GameOutput out = session.getOut();
         int x = player.getX(), y = player.getY();
         Location loc = map.getLocation(x, y);
 
+        if (item != null) {
+            if (!player.hasItem(item)) {
+                out.println("You don't have the " + item.getName() + ".");
+                return;
+            }
+            if (item != usableItemAt(x, y)) {
+                out.println("The " + item.getName() + " is of no use here.");
+                return;
+            }
+        }
+
         if (x == 2 && y == 3) { // space station laser rifle
             if (loc.isEventTriggered()) {
-                System.out.println("You have already done this.");
-            } else if (player.hasItem("Cryo Core")) {
-                if (confirm("Do you wish to use the Cryo Core? (y/n): ", scanner)) {
-                    loc.triggerEvent();
+                out.println("You have already done this.");
+            } else if (player.hasItem(Items.CRYO_CORE)) {
+                if (!confirm("Do you wish to use the Cryo Core? (y/n): ", session)) {
+                    out.println("You decide not to use the Cryo Core right now.");
+                } else if (!loc.claimEvent()) {
+                    out.println("Another player has already done this.");
+                } else {
                     loc.setLongDescription("""
                             The AI terminal is fully powered, displaying active system readouts.
                             The armory access lights are green, and the secured doors are wide open.
                             """);
-                    player.removeItem("Cryo Core");
-                    System.out.println("You use the Cryo Core to power up the AI terminal.");
-                    System.out.println("The room hums to life as the armory doors slide open.");
-                    System.out.println();
+                    player.removeItem(Items.CRYO_CORE);
+                    out.println("You use the Cryo Core to power up the AI terminal.");
+                    out.println("The room hums to life as the armory doors slide open.");
+                    out.println();
                     player.addItem(Items.LASER_RIFLE);
-                    System.out.println("You have found: Laser Rifle");
-                } else {
-                    System.out.println("You decide not to use the Cryo Core right now.");
+                    out.println("You have found: Laser Rifle");
                 }
             } else {
-                System.out.println("You need something to power this terminal...");
+                out.println("You need something to power this terminal...");
             }
 
         } else if (x == 2 && y == 4) {
             //
-            if (CombatCharacters.zig.isDead()) { // check if dead
-                System.out.println("There's nothing more to do here.");
+            if (session.getEnemies().zig.isDead()) { // check if dead
+                out.println("There's nothing more to do here.");
             } else if (loc.isEventTriggered()) {
-                System.out.println("You have already traded with Grand General Zig."); // check if already traded
-            } else if (player.hasItem("Ore Chunk")) {
-                if (confirm("Trade the Ore Chunk with Grand General Zig? (y/n): ", scanner)) {
-                    loc.triggerEvent();
+                out.println("You have already traded with Grand General Zig."); // check if already traded
+            } else if (player.hasItem(Items.ORE_CHUNK)) {
+                if (!confirm("Trade the Ore Chunk with Grand General Zig? (y/n): ", session)) {
+                    out.println("You hold onto the Ore Chunk for now.");
+                } else if (!loc.claimEvent()) {
+                    out.println("Another player has already traded with Grand General Zig.");
+                } else {
                     loc.setLongDescription("""
                             Grand General Zig's forces have retreated into the dunes.
                             The desert wasteland is now eerily quiet, with only the
                             sound of the wind sweeping across the barren sands.
                             """);
-                    player.removeItem("Ore Chunk");
-                    System.out.println("You trade the Ore Chunk with Grand General Zig.");
-                    System.out.println("He is pleased with the trade and hands you a Warp Drive Fragment.");
+                    player.removeItem(Items.ORE_CHUNK);
+                    out.println("You trade the Ore Chunk with Grand General Zig.");
+                    out.println("He is pleased with the trade and hands you a Warp Drive Fragment.");
                     player.addItem(Items.WARP_DRIVE_FRAGMENT_1);
-                    System.out.println("\nYou have received: Warp Drive Fragment 1");
-                } else {
-                    System.out.println("You hold onto the Ore Chunk for now.");
+                    out.println("\nYou have received: Warp Drive Fragment 1");
                 }
             } else {
-                System.out.println("You don't have anything that pleases Grand General Zig.");
+                out.println("You don't have anything that pleases Grand General Zig.");
             }
 
         } else if (x == 0 && y == 0) {
 
             // rift gate activation
-            if (player.hasItem("Gate Key") && player.hasAllWarpFragments()) {
-                System.out.println("You use the Gate Key to activate the Rift Gate.");
-                System.out.println("\nThe fabric of space-time ripples around the Gate...\n");
-                if (confirm("You are about to face the boss. Continue? (y/n): ", scanner)) {
-                    player.removeItem("Gate Key");
-                    System.out.println("Your ship is engulfed by a blinding light...");
-                    System.out.println();
-                    CombatSystem.combat(player, CombatCharacters.boss, scanner, map);
+            if (player.hasItem(Items.GATE_KEY) && player.hasAllWarpFragments()) {
+                out.println("You use the Gate Key to activate the Rift Gate.");
+                out.println("\nThe fabric of space-time ripples around the Gate...\n");
+                if (confirm("You are about to face the boss. Continue? (y/n): ", session)) {
+                    player.removeItem(Items.GATE_KEY);
+                    loc.triggerEvent(); // the gate stays open for other players in a shared world
+                    out.println("Your ship is engulfed by a blinding light...");
+                    out.println();
+                    startCombat(session, session.getEnemies().boss);
                 } else {
-                    System.out.println();
-                    System.out.println("You step back from the Rift Gate.");
+                    out.println();
+                    out.println("You step back from the Rift Gate.");
                 }
             } else {
-                System.out.println("The Rift Gate is blocked. You need something to activate it.");
+                out.println("The Rift Gate is blocked. You need something to activate it.");
             }
 
         } else if (x == 4 && y == 3) { // jungle moon hermit trade
             if (loc.isEventTriggered()) {
-                System.out.println("You have already traded with the Jungle Hermit.");
-            } else if (player.hasItem("Ixyll Fruit")) {
-                if (confirm("Trade the Ixyll Fruit with the Jungle Hermit? (y/n): ", scanner)) {
-                    loc.triggerEvent();
-                    loc.setLongDescription("The Jungle Hermit has disappeared into the dense foliage of the jungle.");
-                    player.removeItem("Ixyll Fruit");
-                    System.out.println("You trade the Ixyll Fruit with the Jungle Hermit.");
-                    System.out.println("\nYou have received: Shield Module");
-                    player.addItem(new Items("Shield Module"));
+                out.println("You have already traded with the Jungle Hermit.");
+            } else if (player.hasItem(Items.IXYLL_FRUIT)) {
+                if (!confirm("Trade the Ixyll Fruit with the Jungle Hermit? (y/n): ", session)) {
+                    out.println("You tuck the Ixyll Fruit away for later.");
+                } else if (!loc.claimEvent()) {
+                    out.println("Another player has already traded with the Jungle Hermit.");
                 } else {
-                    System.out.println("You tuck the Ixyll Fruit away for later.");
+                    loc.setLongDescription("The Jungle Hermit has disappeared into the dense foliage of the jungle.");
+                    player.removeItem(Items.IXYLL_FRUIT);
+                    out.println("You trade the Ixyll Fruit with the Jungle Hermit.");
+                    out.println("\nYou have received: Shield Module");
+                    player.addItem(Items.SHIELD_MODULE);
                 }
             } else {
-                System.out.println("You need an Ixyll Fruit to trade with the Jungle Hermit.");
+                out.println("You need an Ixyll Fruit to trade with the Jungle Hermit.");
             }
 
         } else {
-            System.out.println("There's nothing here you can use.");
+            out.println("There's nothing here you can use.");
+        }
+    }
+
+    /**
+     * Gets the item that {@link #handleUse} uses at a location.
+     *
+     * @param x The x-coordinate.
+     * @param y The y-coordinate.
+     * @return The item used there, or null if nothing can be used there.
+     */
+    private static Items usableItemAt(int x, int y) {
+        if (x == 2 && y == 3) {
+            return Items.CRYO_CORE;
+        } else if (x == 2 && y == 4) {
+            return Items.ORE_CHUNK;
+        } else if (x == 0 && y == 0) {
+            return Items.GATE_KEY;
+        } else if (x == 4 && y == 3) {
+            return Items.IXYLL_FRUIT;
+        }
+        return null;
+    }
+
+    /**
+     * Starts a fight with an enemy at the player's location.
+     * The game ends when the player is defeated or when the final boss is
+     * beaten.
+     *
+     * @param session the game the fight happens in
+     * @param enemy   the enemy to fight
+     */
+    private static void startCombat(GameSession session, CombatCharacters enemy) {
+        CombatOutcome outcome = CombatSystem.combat(session, enemy);
+        if (outcome == CombatOutcome.DEATH
+                || (outcome == CombatOutcome.WIN && enemy == session.getEnemies().boss)) {
+            session.setRunning(false);
         }
     }
 
@@ -423,17 +752,18 @@ public class App {
      *
      * @param prompt  the message to display asking the user to confirm (e.g. "Are
      *                you sure? (y/n): ")
-     * @param scanner the Scanner instance to read the user's input from
+     * @param session the game whose input is read and whose output is written
      * @return {@code true} if the user entered 'y'; {@code false} if the user
      *         entered 'n'
      */
-    public static boolean confirm(String prompt, Scanner scanner) {
+    public static boolean confirm(String prompt, GameSession session) {
+        GameOutput out = session.getOut();
         String input;
         do {
-            System.out.print(prompt);
-            input = scanner.nextLine().trim().toLowerCase();
+            out.print(prompt);
+            input = session.getInput().readLine().trim().toLowerCase();
             if (!input.equals("y") && !input.equals("n")) {
-                System.out.println("Please enter 'y' or 'n'.");
+                out.println("Please enter 'y' or 'n'.");
             }
         } while (!input.equals("y") && !input.equals("n"));
         return input.equals("y");
@@ -455,84 +785,99 @@ public class App {
      *
      * If a puzzle has already been solved at the location, the player is notified.
      *
-     * @param player  the Player whose inventory may be updated with rewards
-     * @param scanner the Scanner used to read the player’s answer
-     * @param map     the GameMap used to determine the player’s current Location
+     * @param session the game being played; its player may be rewarded, its map
+     *                determines the current Location and its input is read for
+     *                the player’s answer
      */
-    private static void handleSolve(Player player, Scanner scanner, GameMap map) {
+    private static void handleSolve(GameSession session) {
+        Player player = session.getPlayer();
+        GameMap map = session.getMap();
+        GameInput input = session.getInput();
+        GameOutput out = session.getOut();
         int x = player.getX(), y = player.getY();
         Location loc = map.getLocation(x, y);
 
         // monolith riddle
         if (x == 3 && y == 1) {
             if (loc.isEventTriggered()) {
-                System.out.println("You have already solved the Monolith's paradox.");
+                out.println("You have already solved the Monolith's paradox.");
                 return;
             }
 
-            System.out.println("The Monolith whispers a paradox:");
-            System.out.println("\"This statement is false. True or false?\"");
-            System.out.println("Answer correctly three times in a row.\n");
+            out.println("The Monolith whispers a paradox:");
+            out.println("\"This statement is false. True or false?\"");
+            out.println("Answer correctly three times in a row.\n");
 
             boolean expected = false; // first answer is false
             int streak = 0;
             final int NEEDED = 3;
 
             while (streak < NEEDED) {
-                System.out.print("Your answer (true/false): ");
+                out.print("Your answer (true/false): ");
+                String answer = input.readLine().trim();
                 boolean playerAnswer;
-                try {
-                    playerAnswer = scanner.nextBoolean();
-                } catch (InputMismatchException e) {
-                    System.out.println("Invalid input. Please type true or false.");
-                    scanner.nextLine();
+                if (answer.equalsIgnoreCase("true")) {
+                    playerAnswer = true;
+                } else if (answer.equalsIgnoreCase("false")) {
+                    playerAnswer = false;
+                } else {
+                    out.println("Invalid input. Please type true or false.");
                     continue;
                 }
-                scanner.nextLine();
 
                 if (playerAnswer == expected) {
                     streak++;
-                    System.out.printf("...hmm. (%d/%d)\n", streak, NEEDED);
+                    out.print("...hmm. (");
+                    out.print(streak);
+                    out.print('/');
+                    out.print(NEEDED);
+                    out.println(")");
                     // flip answer
                     expected = !expected;
                 } else {
-                    System.out.println("Wrong. The Monolith resets your progress.\n");
+                    out.println("Wrong. The Monolith resets your progress.\n");
                     streak = 0;
                     expected = false; // restart expecting false first
                 }
             }
 
-            // correct solution
-            System.out.println("\nThe Monolith glows brightly. You've overcome the challenge.");
+            // correct solution, unless another player sharing the world got there first
+            if (!loc.claimEvent()) {
+                out.println("\nThe Monolith is already dark. Another player has solved its paradox.");
+                return;
+            }
+            out.println("\nThe Monolith glows brightly. You've overcome the challenge.");
             player.addItem(Items.GATE_KEY);
-            System.out.println("You have gained: Gate Key");
+            out.println("You have gained: Gate Key");
+            GameMetrics.increment(GameMetrics.Counter.PUZZLES_SOLVED);
             loc.setLongDescription("""
                     The etched glyphs of the Monolith have disappeared.
                     It stands still.
                     """);
-            loc.triggerEvent();
 
         } else if (x == 1 && y == 1) {// strix mastermind riddle
             if (loc.isEventTriggered()) {
-                System.out.println("You have already solved Mastermind's riddle.");
+                out.println("You have already solved Mastermind's riddle.");
                 return;
             }
-            System.out.println("The Strix Mastermind challenges you:");
-            System.out.println("""
+            out.println("The Strix Mastermind challenges you:");
+            out.println("""
                     "I am an odd number. Take away one letter and I become even. What number am I?"
                     """);
-            System.out.print("Your answer: ");
+            out.print("Your answer: ");
 
-            if (scanner.nextLine().trim().equalsIgnoreCase("seven")) {
-                System.out.println("Correct! You have solved the puzzle.");
-                player.addItem(new Items("Cryo Core"));
-                System.out.println("You have gained: Cryo Core");
-                loc.triggerEvent();
+            if (!input.readLine().trim().equalsIgnoreCase("seven")) {
+                out.println("Incorrect. The Strix Mastermind laughs.");
+            } else if (!loc.claimEvent()) {
+                out.println("Another player has already solved Mastermind's riddle.");
             } else {
-                System.out.println("Incorrect. The Strix Mastermind laughs.");
+                out.println("Correct! You have solved the puzzle.");
+                player.addItem(Items.CRYO_CORE);
+                out.println("You have gained: Cryo Core");
+                GameMetrics.increment(GameMetrics.Counter.PUZZLES_SOLVED);
             }
         } else {
-            System.out.println("There is no puzzle to solve here.");
+            out.println("There is no puzzle to solve here.");
         }
     }
 }
@@ -0,0 +1,13 @@
+/**
+ * An action the player can take on their turn during combat.
+ */
+public enum CombatAction {
+    /** Attack the enemy, followed by the enemy's counter-attack. */
+    ATTACK,
+
+    /** Use a Stimpack; the enemy skips its turn. */
+    HEAL,
+
+    /** Try to run away; on failure the enemy attacks. */
+    FLEE
+}
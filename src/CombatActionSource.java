@@ -0,0 +1,24 @@
+/**
+ * Supplies the player's decisions to the {@link CombatEngine}.
+ * The console implementation reads them from the player's input, while simulations
+ * can plug in a fixed strategy.
+ */
+public interface CombatActionSource {
+    /**
+     * Chooses the player's action for the current round.
+     *
+     * @param player the player taking the turn
+     * @param enemy  the enemy being fought
+     * @return the chosen action, never null
+     */
+    CombatAction nextAction(Player player, CombatCharacters enemy);
+
+    /**
+     * Asks whether the player really wants to spend a Stimpack.
+     * Only called when the player chose to heal and has a Stimpack.
+     *
+     * @param player the player about to heal
+     * @return true to use the Stimpack, false to keep it
+     */
+    boolean confirmStimpack(Player player);
+}
@@ -1,5 +1,6 @@
 
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents an enemy character in the game with attributes such as name,
@@ -20,9 +21,10 @@ public class CombatCharacters {
     private final String charType;
 
     /**
-     * The current health of the character.
+     * The current health of the character. Players sharing a world hit the
+     * same character at once, so it is changed atomically.
      */
-    private int health;
+    private final AtomicInteger health;
 
     /**
      * The minimum amount of damage this character can deal.
@@ -37,14 +39,14 @@ public class CombatCharacters {
     /**
      * Whether character is dead or not.
      */
-    private boolean isDead;
+    private volatile boolean isDead;
 
-    /** Enemies */
-    public static CombatCharacters droid = new CombatCharacters("Rogue Droid", "Robot", 60, 15, 20);
-    public static CombatCharacters zepZop = new CombatCharacters("Zep Zop", "Xeno", 80, 15, 20);
-    public static CombatCharacters mastermind = new CombatCharacters("Mastermind", "AI", 100, 20, 25);
-    public static CombatCharacters zig = new CombatCharacters("Grand General Zig", "Alpha Xeno", 150, 20, 30);
-    public static CombatCharacters boss = new CombatCharacters("Emperor Poutine", "Grand Xeno", 250, 40, 50);
+    /** Enemy templates. Games fight copies of these, see {@link Enemies}. */
+    public static final CombatCharacters droid = new CombatCharacters("Rogue Droid", "Robot", 60, 15, 20);
+    public static final CombatCharacters zepZop = new CombatCharacters("Zep Zop", "Xeno", 80, 15, 20);
+    public static final CombatCharacters mastermind = new CombatCharacters("Mastermind", "AI", 100, 20, 25);
+    public static final CombatCharacters zig = new CombatCharacters("Grand General Zig", "Alpha Xeno", 150, 20, 30);
+    public static final CombatCharacters boss = new CombatCharacters("Emperor Poutine", "Grand Xeno", 250, 40, 50);
 
     /**
      * Constructs a new combat character with specified attributes.
@@ -58,12 +60,23 @@ public class CombatCharacters {
     public CombatCharacters(String name, String charType, int health, int min, int max) {
         this.name = name;
         this.charType = charType;
-        this.health = health;
+        this.health = new AtomicInteger(health);
         this.minDamage = min;
         this.maxDamage = max;
         this.isDead = false;
     }
 
+    /**
+     * Constructs a fresh copy of another character, e.g. one of the enemy
+     * templates, with its current health and death status.
+     *
+     * @param other the character to copy
+     */
+    public CombatCharacters(CombatCharacters other) {
+        this(other.name, other.charType, other.getHealth(), other.minDamage, other.maxDamage);
+        this.isDead = other.isDead;
+    }
+
     /**
      * @return the name of the character
      */
@@ -82,7 +95,7 @@ public class CombatCharacters {
      * @return the current health of the character
      */
     public int getHealth() {
-        return health;
+        return health.get();
     }
 
     /**
@@ -91,16 +104,47 @@ public class CombatCharacters {
      * @param health the new health value
      */
     public void setHealth(int health) {
-        this.health = health;
+        this.health.set(health);
+    }
+
+    /**
+     * Deals damage to the character. Hits from players sharing a world may
+     * land at the same time; every one is counted, and exactly one of them,
+     * the hit that brings the health to zero or below, sees a positive health
+     * before it and so defeats the character. The health is reduced with a
+     * single atomic add rather than a compare-and-set loop, so a hit never
+     * has to retry however many players are hitting at once.
+     *
+     * @param damage the damage dealt
+     * @return the health before the hit
+     */
+    public int takeDamage(int damage) {
+        return health.getAndAdd(-damage);
+    }
+
+    /**
+     * @return the minimum amount of damage this character can deal
+     */
+    public int getMinDamage() {
+        return minDamage;
+    }
+
+    /**
+     * @return the maximum amount of damage this character can deal
+     */
+    public int getMaxDamage() {
+        return maxDamage;
     }
 
     /**
-     * Rolls and returns a random damage value within the character's damage range.
+     * Rolls a random damage value within the character's damage range using
+     * the given random source, so that rolls can be reproduced from a seed.
      *
+     * @param random the random source to roll with
      * @return the damage dealt
      */
-    public int rollDamage() {
-        return new Random().nextInt(maxDamage - minDamage + 1) + minDamage;
+    public int rollDamage(RandomGenerator random) {
+        return random.nextInt(maxDamage - minDamage + 1) + minDamage;
     }
 
     /**
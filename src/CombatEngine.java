@@ -0,0 +1,222 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Runs the rules of a fight without any console input or output.
+ * Player decisions come from a {@link CombatActionSource} and everything that
+ * happens is reported to a {@link CombatEventSink}, so the same rules drive the
+ * interactive game, simulations and tests.
+ * A fight ends by returning a {@link CombatOutcome}; the engine never exits the
+ * process.
+ * <p>
+ * Players sharing a {@link SharedWorld} may fight the same enemy at once, each
+ * on their own thread with their own engine. Every hit is counted and exactly
+ * one defeats the enemy: that player applies the defeat. The others' fights
+ * end as wins when they next act, and those who hit the enemy before it fell
+ * get its loot as well, each once.
+ */
+public class CombatEngine {
+    /** Lowest damage the player can roll without a weapon. */
+    public static final int PLAYER_MIN_DAMAGE = 10;
+
+    /** Highest damage the player can roll without a weapon. */
+    public static final int PLAYER_MAX_DAMAGE = 25;
+
+    /** Extra damage added by the Laser Rifle. */
+    public static final int LASER_RIFLE_BONUS = Items.LASER_RIFLE.getDamageBonus();
+
+    /** Fraction of incoming damage absorbed by the Shield Module. */
+    public static final double SHIELD_REDUCTION = Items.SHIELD_MODULE.getDamageReduction();
+
+    /** Health restored by one Stimpack. */
+    public static final int STIMPACK_HEAL = Items.STIMPACK.getHealAmount();
+
+    /** Random source for player damage, enemy damage and flee attempts. */
+    private final RandomGenerator random;
+
+    /**
+     * Creates an engine that rolls with the given random source.
+     *
+     * @param random the random source used for every roll in a fight
+     */
+    public CombatEngine(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /**
+     * Runs a fight until the enemy is defeated, the player escapes, or the
+     * player dies.
+     * The player and enemy are updated in place. When the enemy is defeated its
+     * loot is given to the player and, if a location is given, the location is
+     * made non-hostile. If another player sharing the world defeats it first,
+     * the fight ends as a win, with the loot if this player had hit it.
+     *
+     * @param player  the player participating in combat
+     * @param enemy   the enemy being fought
+     * @param loc     the location of the fight, or null to skip location updates
+     * @param actions the source of the player's decisions
+     * @param events  the sink receiving combat events
+     * @return how the fight ended
+     */
+    public CombatOutcome fight(Player player, CombatCharacters enemy, Location loc,
+            CombatActionSource actions, CombatEventSink events) {
+        events.encounter(enemy, loc);
+
+        // Weapons and shields cannot change during a fight
+        boolean rifle = player.hasItem(Items.LASER_RIFLE);
+        boolean shield = player.hasItem(Items.SHIELD_MODULE);
+        boolean struck = false;
+
+        while (true) {
+            if (enemy.getHealth() <= 0) {
+                return shareVictory(player, enemy, struck, events);
+            }
+            events.roundStart(player, enemy);
+
+            switch (actions.nextAction(player, enemy)) {
+                case ATTACK -> {
+                    int totalDamage = random.nextInt(PLAYER_MAX_DAMAGE - PLAYER_MIN_DAMAGE + 1) + PLAYER_MIN_DAMAGE;
+                    if (rifle) {
+                        totalDamage += LASER_RIFLE_BONUS;
+                    }
+                    events.playerAttacked(totalDamage, rifle);
+                    int healthBefore = enemy.takeDamage(totalDamage);
+
+                    // Check if this attack defeated the enemy; only one hit can
+                    if (healthBefore > 0 && healthBefore <= totalDamage) {
+                        awardLoot(player, enemy, loc);
+                        events.enemyDefeated(enemy, player);
+                        return CombatOutcome.WIN;
+                    } else if (healthBefore <= 0) {
+                        return shareVictory(player, enemy, struck, events);
+                    }
+                    struck = true;
+                }
+
+                case HEAL -> {
+                    if (!player.hasItem(Items.STIMPACK)) {
+                        events.noStimpacks();
+                    } else if (actions.confirmStimpack(player)) {
+                        player.removeItem(Items.STIMPACK);
+                        int oldHealth = player.getHealth();
+                        player.setHealth(oldHealth + STIMPACK_HEAL);
+                        events.stimpackUsed(oldHealth, player.getHealth());
+                    } else {
+                        events.stimpackDeclined();
+                    }
+                    continue; // Skip enemy turn when healing
+                }
+
+                case FLEE -> {
+                    boolean escaped = random.nextBoolean();
+                    events.fleeAttempted(escaped);
+                    if (escaped) {
+                        return CombatOutcome.FLEE;
+                    }
+                }
+            }
+
+            // Enemy attacks after an attack or a failed escape
+            int originalDamage = enemy.rollDamage(random);
+            int finalDamage = originalDamage;
+            if (shield) {
+                finalDamage = originalDamage - (int) (originalDamage * SHIELD_REDUCTION);
+                events.shieldActivated(originalDamage, finalDamage);
+            }
+            events.enemyAttacked(enemy, finalDamage);
+            player.setHealth(player.getHealth() - finalDamage);
+
+            if (player.getHealth() <= 0) {
+                events.playerDefeated(player);
+                return CombatOutcome.DEATH;
+            }
+        }
+    }
+
+    /**
+     * Returns the items an enemy drops when defeated.
+     *
+     * @param enemy the enemy
+     * @return the items, in the order they are given to the player
+     */
+    static Items[] loot(CombatCharacters enemy) {
+        return switch (enemy.getName()) {
+            case "Grand General Zig" -> new Items[] { Items.WARP_DRIVE_FRAGMENT_1, Items.STIMPACK };
+            case "Rogue Droid" -> new Items[] { Items.WARP_DRIVE_FRAGMENT_2, Items.STIMPACK };
+            case "Zep Zop" -> new Items[] { Items.IXYLL_FRUIT, Items.WARP_DRIVE_FRAGMENT_3, Items.STIMPACK };
+            case "Mastermind" -> new Items[] { Items.WARP_DRIVE_FRAGMENT_4, Items.STIMPACK };
+            default -> new Items[0];
+        };
+    }
+
+    /**
+     * Ends a fight whose enemy another player sharing the world has defeated.
+     * The other player has already applied the defeat; this player gets the
+     * loot only if they hit the enemy before it fell.
+     *
+     * @param player the player whose fight ends
+     * @param enemy  the defeated enemy
+     * @param struck whether the player hit the enemy before it fell
+     * @param events the sink receiving combat events
+     * @return {@link CombatOutcome#WIN}
+     */
+    private static CombatOutcome shareVictory(Player player, CombatCharacters enemy, boolean struck,
+            CombatEventSink events) {
+        if (struck) {
+            for (Items item : loot(enemy)) {
+                player.addItem(item);
+            }
+        }
+        events.enemyDefeatedByAlly(enemy, player, struck);
+        return CombatOutcome.WIN;
+    }
+
+    /**
+     * Marks the enemy as dead and gives the player the items it drops.
+     * If a location is given it is no longer hostile and its description is
+     * updated. Called only for the hit that defeated the enemy, so this
+     * happens once however many players share the fight.
+     *
+     * @param player the player who defeated the enemy
+     * @param enemy  the defeated enemy
+     * @param loc    the location of the fight, or null
+     */
+    private static void awardLoot(Player player, CombatCharacters enemy, Location loc) {
+        enemy.setDead(true); // mark enemy as dead
+        for (Items item : loot(enemy)) {
+            player.addItem(item);
+        }
+
+        String description = null;
+        switch (enemy.getName()) {
+            case "Grand General Zig" -> {
+                description = """
+                        The crimson sun beats down over the scorched sands of Eridani.
+                        The dunes stretch out in silence, a barren expanse reclaimed from tyranny.
+                        """;
+            }
+            case "Rogue Droid" -> {
+                description = """
+                        Ternion's skyline, a jagged silhouette of twisted spires, looms over the quiet wreckage below.
+                        The city's broken streets echo with ghosts of data and faded signals.
+                        """;
+            }
+            case "Zep Zop" -> {
+                description = """
+                            Vines hang heavy with dew, and shafts of golden light pierce the jungle canopy.
+                            Zep Zop's shrine lies in solemn ruin, half-consumed by the encroaching wilderness.
+                        """;
+            }
+            case "Mastermind" -> {
+                description = """
+                        The freezing gales no longer scream with malevolent whispers.
+                        A blue glow pulses faintly from the Cryo Core chamber, now dormant.
+                        """;
+            }
+        }
+
+        if (loc != null && description != null) {
+            loc.setHostile(false);
+            loc.setLongDescription(description);
+        }
+    }
+}
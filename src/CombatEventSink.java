@@ -0,0 +1,117 @@
+/**
+ * Receives everything that happens during a fight run by the
+ * {@link CombatEngine}.
+ * Every method has an empty default so simulations only override what they
+ * need; the console adapter in {@link CombatSystem} prints each event.
+ */
+public interface CombatEventSink {
+    /**
+     * A sink that ignores every event.
+     */
+    CombatEventSink NULL = new CombatEventSink() {
+    };
+
+    /**
+     * Called once before the first round.
+     *
+     * @param enemy the enemy being fought
+     * @param loc   the location of the fight, or null when fought headless
+     */
+    default void encounter(CombatCharacters enemy, Location loc) {
+    }
+
+    /**
+     * Called at the start of every round before the player chooses an action.
+     *
+     * @param player the player
+     * @param enemy  the enemy
+     */
+    default void roundStart(Player player, CombatCharacters enemy) {
+    }
+
+    /**
+     * The player hit the enemy.
+     *
+     * @param damage the total damage dealt
+     * @param rifle  whether the Laser Rifle was used
+     */
+    default void playerAttacked(int damage, boolean rifle) {
+    }
+
+    /**
+     * The player used a Stimpack.
+     *
+     * @param oldHealth health before healing
+     * @param newHealth health after healing
+     */
+    default void stimpackUsed(int oldHealth, int newHealth) {
+    }
+
+    /**
+     * The player chose to heal but decided to keep their Stimpacks.
+     */
+    default void stimpackDeclined() {
+    }
+
+    /**
+     * The player chose to heal without having any Stimpacks.
+     */
+    default void noStimpacks() {
+    }
+
+    /**
+     * The player tried to run away.
+     *
+     * @param escaped true if the attempt succeeded
+     */
+    default void fleeAttempted(boolean escaped) {
+    }
+
+    /**
+     * The Shield Module reduced the enemy's damage.
+     *
+     * @param originalDamage the rolled damage
+     * @param finalDamage    the damage after the reduction
+     */
+    default void shieldActivated(int originalDamage, int finalDamage) {
+    }
+
+    /**
+     * The enemy hit the player.
+     *
+     * @param enemy  the attacking enemy
+     * @param damage the damage taken by the player
+     */
+    default void enemyAttacked(CombatCharacters enemy, int damage) {
+    }
+
+    /**
+     * The enemy was defeated. Loot and location changes have already been
+     * applied when this is called.
+     *
+     * @param enemy  the defeated enemy
+     * @param player the victorious player
+     */
+    default void enemyDefeated(CombatCharacters enemy, Player player) {
+    }
+
+    /**
+     * Another player sharing the world dealt the enemy its final blow. The
+     * enemy's loot has already been given to the player if they share it.
+     *
+     * @param enemy  the defeated enemy
+     * @param player this fight's player
+     * @param looted whether the player hit the enemy before it fell, and so
+     *               shares its loot
+     */
+    default void enemyDefeatedByAlly(CombatCharacters enemy, Player player, boolean looted) {
+    }
+
+    /**
+     * The player was defeated.
+     *
+     * @param player the defeated player
+     */
+    default void playerDefeated(Player player) {
+    }
+}
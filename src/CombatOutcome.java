@@ -0,0 +1,13 @@
+/**
+ * The possible ways a fight between the player and an enemy can end.
+ */
+public enum CombatOutcome {
+    /** The enemy's health dropped to zero or below. */
+    WIN,
+
+    /** The player successfully ran away from the fight. */
+    FLEE,
+
+    /** The player's health dropped to zero or below. */
+    DEATH
+}
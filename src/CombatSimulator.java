@@ -0,0 +1,441 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays large batches of headless fights to measure how well a loadout does
+ * against each enemy.
+ * Fights are split into fixed-size chunks and run on a fork-join pool. Every
+ * chunk rolls from its own random stream derived from the seed and the chunk
+ * number, so the results are exactly the same for a given seed no matter how
+ * many threads run the simulation or which worker picks up which chunk.
+ * <p>
+ * Usage: {@code java CombatSimulator [fights] [seed] [maxStimpacks] [threads]}
+ */
+public class CombatSimulator {
+    /** Number of fights played with one random stream. */
+    private static final int CHUNK_SIZE = 4096;
+
+    /** Width of one bucket in the remaining-health histogram. */
+    public static final int HP_BUCKET_WIDTH = 25;
+
+    /** Number of buckets in the remaining-health histogram; the last one is open-ended. */
+    public static final int HP_BUCKETS = 16;
+
+    /** Turn counts at or above this value share the last histogram slot. */
+    public static final int MAX_TURNS = 128;
+
+    /** Health a new player starts with. */
+    private static final int START_HEALTH = new Player().getHealth();
+
+    /** Pool the fights run on. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a simulator that runs on the given pool.
+     *
+     * @param pool the fork-join pool to run fights on
+     */
+    public CombatSimulator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * The items the player brings into a fight.
+     */
+    public static class Loadout {
+        /** Whether the player carries the Laser Rifle. */
+        private final boolean laserRifle;
+
+        /** Whether the player carries the Shield Module. */
+        private final boolean shieldModule;
+
+        /** Number of Stimpacks the player carries. */
+        private final int stimpacks;
+
+        /**
+         * @param laserRifle   whether the player carries the Laser Rifle
+         * @param shieldModule whether the player carries the Shield Module
+         * @param stimpacks    number of Stimpacks the player carries
+         */
+        public Loadout(boolean laserRifle, boolean shieldModule, int stimpacks) {
+            this.laserRifle = laserRifle;
+            this.shieldModule = shieldModule;
+            this.stimpacks = stimpacks;
+        }
+
+        /**
+         * @return whether the player carries the Laser Rifle
+         */
+        public boolean hasLaserRifle() {
+            return laserRifle;
+        }
+
+        /**
+         * @return whether the player carries the Shield Module
+         */
+        public boolean hasShieldModule() {
+            return shieldModule;
+        }
+
+        /**
+         * @return number of Stimpacks the player carries
+         */
+        public int getStimpacks() {
+            return stimpacks;
+        }
+
+        /**
+         * Resets a player to full health carrying exactly this loadout.
+         *
+         * @param player the player to equip
+         */
+        void equip(Player player) {
+            player.setHealth(START_HEALTH);
+            player.clearInventory();
+            if (laserRifle) {
+                player.addItem(Items.LASER_RIFLE);
+            }
+            if (shieldModule) {
+                player.addItem(Items.SHIELD_MODULE);
+            }
+            for (int i = 0; i < stimpacks; i++) {
+                player.addItem(Items.STIMPACK);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return (laserRifle ? "Rifle " : "----- ") + (shieldModule ? "Shield " : "------ ") + stimpacks + " stim";
+        }
+    }
+
+    /**
+     * Counts gathered over a batch of fights. Stats from different chunks are
+     * merged by adding their counts, which keeps the totals exact.
+     */
+    public static class Stats {
+        /** Number of fights played. */
+        private long fights;
+
+        /** Number of fights the player won. */
+        private long wins;
+
+        /** Number of fights the player fled. */
+        private long flees;
+
+        /** Number of fights the player died in. */
+        private long deaths;
+
+        /** Won fights by number of rounds played. */
+        private final long[] turnsToKill = new long[MAX_TURNS];
+
+        /** Won fights by remaining player health. */
+        private final long[] remainingHp = new long[HP_BUCKETS];
+
+        /**
+         * Records the result of one fight.
+         *
+         * @param outcome  how the fight ended
+         * @param rounds   how many rounds were played
+         * @param playerHp the player's health at the end
+         */
+        void record(CombatOutcome outcome, int rounds, int playerHp) {
+            fights++;
+            switch (outcome) {
+                case WIN -> {
+                    wins++;
+                    turnsToKill[Math.min(rounds, MAX_TURNS - 1)]++;
+                    remainingHp[Math.min(playerHp / HP_BUCKET_WIDTH, HP_BUCKETS - 1)]++;
+                }
+                case FLEE -> flees++;
+                case DEATH -> deaths++;
+            }
+        }
+
+        /**
+         * Adds another batch's counts to this one.
+         *
+         * @param other the stats to add
+         * @return this stats object
+         */
+        Stats merge(Stats other) {
+            fights += other.fights;
+            wins += other.wins;
+            flees += other.flees;
+            deaths += other.deaths;
+            for (int i = 0; i < MAX_TURNS; i++) {
+                turnsToKill[i] += other.turnsToKill[i];
+            }
+            for (int i = 0; i < HP_BUCKETS; i++) {
+                remainingHp[i] += other.remainingHp[i];
+            }
+            return this;
+        }
+
+        /**
+         * @return number of fights played
+         */
+        public long getFights() {
+            return fights;
+        }
+
+        /**
+         * @return fraction of fights the player won
+         */
+        public double winProbability() {
+            return fights == 0 ? 0 : (double) wins / fights;
+        }
+
+        /**
+         * @return fraction of fights the player fled
+         */
+        public double fleeProbability() {
+            return fights == 0 ? 0 : (double) flees / fights;
+        }
+
+        /**
+         * @return fraction of fights the player died in
+         */
+        public double deathProbability() {
+            return fights == 0 ? 0 : (double) deaths / fights;
+        }
+
+        /**
+         * Returns the number of rounds within which the given share of won fights
+         * were finished.
+         *
+         * @param percentile the percentile between 0 and 100
+         * @return the rounds needed, or 0 if no fight was won
+         */
+        public int turnsToKillPercentile(double percentile) {
+            long target = (long) Math.ceil(wins * percentile / 100.0);
+            long seen = 0;
+            for (int turns = 0; turns < MAX_TURNS; turns++) {
+                seen += turnsToKill[turns];
+                if (seen > 0 && seen >= target) {
+                    return turns;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns how many won fights ended with health in the given bucket.
+         * Bucket {@code i} covers health from {@code i * HP_BUCKET_WIDTH}
+         * up to the next bucket; the last bucket is open-ended.
+         *
+         * @param bucket the bucket index
+         * @return the number of won fights in that bucket
+         */
+        public long remainingHpCount(int bucket) {
+            return remainingHp[bucket];
+        }
+    }
+
+    /**
+     * Plays fights against copies of an enemy using the given loadout.
+     *
+     * @param enemy   the enemy template; it is copied and never modified
+     * @param loadout the player's items
+     * @param fights  number of fights to play
+     * @param seed    seed the results are derived from
+     * @return the gathered stats
+     */
+    public Stats simulate(CombatCharacters enemy, Loadout loadout, long fights, long seed) {
+        long chunks = (fights + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return pool.invoke(new ChunkTask(enemy, loadout, fights, seed, 0, chunks));
+    }
+
+    /**
+     * Splits a range of chunks in half until a single chunk is left, then plays
+     * that chunk's fights.
+     */
+    @SuppressWarnings("serial") // a fork-join task, never serialized
+    private static class ChunkTask extends RecursiveTask<Stats> {
+        /** The enemy template. */
+        private final CombatCharacters enemy;
+
+        /** The player's items. */
+        private final Loadout loadout;
+
+        /** Total number of fights in the simulation. */
+        private final long fights;
+
+        /** Seed of the whole simulation. */
+        private final long seed;
+
+        /** First chunk of the range, inclusive. */
+        private final long from;
+
+        /** Last chunk of the range, exclusive. */
+        private final long to;
+
+        ChunkTask(CombatCharacters enemy, Loadout loadout, long fights, long seed, long from, long to) {
+            this.enemy = enemy;
+            this.loadout = loadout;
+            this.fights = fights;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from > 1) {
+                long mid = (from + to) >>> 1;
+                ChunkTask right = new ChunkTask(enemy, loadout, fights, seed, mid, to);
+                right.fork();
+                Stats left = new ChunkTask(enemy, loadout, fights, seed, from, mid).compute();
+                return left.merge(right.join());
+            }
+            Stats stats = new Stats();
+            if (from < to) {
+                long first = from * CHUNK_SIZE;
+                int count = (int) Math.min(CHUNK_SIZE, fights - first);
+                playChunk(stats, count, new GameRandom(seed).stream(from));
+            }
+            return stats;
+        }
+
+        /**
+         * Plays one chunk of fights reusing a single player and enemy.
+         *
+         * @param stats  where to record the results
+         * @param count  number of fights to play
+         * @param random the chunk's random stream
+         */
+        private void playChunk(Stats stats, int count, GameRandom random) {
+            CombatEngine engine = new CombatEngine(random.generator());
+            Player player = new Player(random.generator());
+            CombatCharacters foe = new CombatCharacters(enemy);
+            HealWhenLowPolicy policy = new HealWhenLowPolicy(enemy, loadout.hasShieldModule());
+            RoundCounter rounds = new RoundCounter();
+
+            for (int i = 0; i < count; i++) {
+                loadout.equip(player);
+                foe.setHealth(enemy.getHealth());
+                foe.setDead(false);
+                rounds.rounds = 0;
+                CombatOutcome outcome = engine.fight(player, foe, null, policy, rounds);
+                stats.record(outcome, rounds.rounds, player.getHealth());
+            }
+        }
+    }
+
+    /**
+     * Attacks every round, but heals first whenever the enemy's strongest hit
+     * could be fatal and a Stimpack is left. Never flees.
+     */
+    private static class HealWhenLowPolicy implements CombatActionSource {
+        /** Health at or below which the player heals. */
+        private final int threshold;
+
+        HealWhenLowPolicy(CombatCharacters enemy, boolean shield) {
+            int maxHit = enemy.getMaxDamage();
+            if (shield) {
+                maxHit -= (int) (maxHit * CombatEngine.SHIELD_REDUCTION);
+            }
+            this.threshold = maxHit;
+        }
+
+        @Override
+        public CombatAction nextAction(Player player, CombatCharacters enemy) {
+            if (player.getHealth() <= threshold && player.hasItem(Items.STIMPACK)) {
+                return CombatAction.HEAL;
+            }
+            return CombatAction.ATTACK;
+        }
+
+        @Override
+        public boolean confirmStimpack(Player player) {
+            return true;
+        }
+    }
+
+    /**
+     * Counts the rounds of a fight.
+     */
+    private static class RoundCounter implements CombatEventSink {
+        /** Rounds started so far. */
+        int rounds;
+
+        @Override
+        public void roundStart(Player player, CombatCharacters enemy) {
+            rounds++;
+        }
+    }
+
+    /**
+     * Runs the full sweep of every enemy against every loadout and prints a
+     * report.
+     *
+     * @param args fights per configuration, seed, highest Stimpack count and
+     *             thread count, all optional
+     */
+    public static void main(String[] args) {
+        long fights = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 2511;
+        int maxStimpacks = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        CombatCharacters[] enemies = {
+                CombatCharacters.droid, CombatCharacters.zepZop, CombatCharacters.mastermind,
+                CombatCharacters.zig, CombatCharacters.boss
+        };
+        List<Loadout> loadouts = new ArrayList<>();
+        for (int rifle = 0; rifle < 2; rifle++) {
+            for (int shield = 0; shield < 2; shield++) {
+                for (int stims = 0; stims <= maxStimpacks; stims++) {
+                    loadouts.add(new Loadout(rifle == 1, shield == 1, stims));
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        CombatSimulator simulator = new CombatSimulator(pool);
+        long start = System.nanoTime();
+        long total = 0;
+
+        System.out.printf("%d fights per configuration, seed %d, %d threads%n%n", fights, seed, threads);
+        for (CombatCharacters enemy : enemies) {
+            System.out.printf("=== %s (%d HP, %d-%d damage) ===%n",
+                    enemy.getName(), enemy.getHealth(), enemy.getMinDamage(), enemy.getMaxDamage());
+            System.out.println("Loadout               Win%   Death%  p50  p90  p99  Remaining HP (per " + HP_BUCKET_WIDTH + ")");
+            for (Loadout loadout : loadouts) {
+                Stats stats = simulator.simulate(enemy, loadout, fights, seed);
+                total += stats.getFights();
+                StringBuilder histogram = new StringBuilder();
+                for (int i = 0; i < HP_BUCKETS; i++) {
+                    histogram.append(histogramBar(stats.remainingHpCount(i), stats.getFights()));
+                }
+                System.out.printf("%-20s %6.2f  %6.2f  %3d  %3d  %3d  |%s|%n",
+                        loadout, stats.winProbability() * 100, stats.deathProbability() * 100,
+                        stats.turnsToKillPercentile(50), stats.turnsToKillPercentile(90),
+                        stats.turnsToKillPercentile(99), histogram);
+            }
+            System.out.println();
+        }
+        pool.shutdown();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d fights in %.2f s (%.0f fights/s)%n", total, seconds, total / seconds);
+    }
+
+    /**
+     * Picks a character showing how large a share of all fights a count is.
+     *
+     * @param count the count to show
+     * @param total the total it is a share of
+     * @return a single character, blank for none
+     */
+    private static char histogramBar(long count, long total) {
+        final String bars = " .:-=+*#%@";
+        if (count == 0) {
+            return ' ';
+        }
+        int level = (int) Math.ceil(count * (bars.length() - 1.0) / total);
+        return bars.charAt(Math.max(1, Math.min(level, bars.length() - 1)));
+    }
+}
@@ -0,0 +1,410 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the exact outcome probabilities of a fight and the best action for
+ * every state, using the same rules as {@link CombatEngine}.
+ * <p>
+ * A state is the player's health, the enemy's health and the number of
+ * Stimpacks left. The player's value of a state is the chance of winning plus
+ * {@code fleeValue} times the chance of escaping, and each state picks the
+ * action with the highest value. All values are kept in flat primitive arrays.
+ * <p>
+ * Every enemy hit takes at least {@code minHit} health, so a row of states with
+ * player health {@code p} only depends on rows at least {@code minHit} lower,
+ * plus the layer with one Stimpack fewer. The table is therefore filled one
+ * Stimpack layer at a time, in bands of {@code minHit} health rows that are
+ * independent of each other and are solved in parallel. Within a row, the
+ * expected value after an enemy hit is computed once per enemy health and
+ * shared by every attack roll.
+ * <p>
+ * Usage: {@code java CombatSolver [fleeValue] [maxStimpacks]}
+ */
+public class CombatSolver {
+    /** Number of player-health rows solved by one task. */
+    private static final int ROWS_PER_TASK = 4;
+
+    /** Pool the bands are solved on. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a solver that fills its tables on the given pool.
+     *
+     * @param pool the fork-join pool to solve on
+     */
+    public CombatSolver(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * The solved table for one enemy and loadout.
+     * Exact for every state whose health plus 50 per Stimpack does not exceed
+     * the starting health plus 50 per starting Stimpack, which covers every
+     * state reachable from the start of the fight.
+     */
+    public static class Solution {
+        /** Highest player health in the table. */
+        private final int maxPlayerHealth;
+
+        /** Highest enemy health in the table. */
+        private final int maxEnemyHealth;
+
+        /** Highest Stimpack count in the table. */
+        private final int maxStimpacks;
+
+        /** Probability of winning from each state under the best policy. */
+        final double[] win;
+
+        /** Probability of escaping from each state under the best policy. */
+        final double[] flee;
+
+        /** Best action for each state, as a {@link CombatAction} ordinal. */
+        final byte[] policy;
+
+        Solution(int maxPlayerHealth, int maxEnemyHealth, int maxStimpacks) {
+            this.maxPlayerHealth = maxPlayerHealth;
+            this.maxEnemyHealth = maxEnemyHealth;
+            this.maxStimpacks = maxStimpacks;
+            int size = (maxStimpacks + 1) * (maxPlayerHealth + 1) * (maxEnemyHealth + 1);
+            this.win = new double[size];
+            this.flee = new double[size];
+            this.policy = new byte[size];
+        }
+
+        /**
+         * Returns the table index of a state.
+         *
+         * @param playerHealth the player's health, 1 or more
+         * @param enemyHealth  the enemy's health, 1 or more
+         * @param stimpacks    the Stimpacks left
+         * @return the index into the state arrays
+         */
+        int index(int playerHealth, int enemyHealth, int stimpacks) {
+            if (playerHealth < 1 || playerHealth > maxPlayerHealth || enemyHealth < 1
+                    || enemyHealth > maxEnemyHealth || stimpacks < 0 || stimpacks > maxStimpacks) {
+                throw new IllegalArgumentException("State outside the solved table: "
+                        + playerHealth + "/" + enemyHealth + "/" + stimpacks);
+            }
+            return (stimpacks * (maxPlayerHealth + 1) + playerHealth) * (maxEnemyHealth + 1) + enemyHealth;
+        }
+
+        /**
+         * @param playerHealth the player's health
+         * @param enemyHealth  the enemy's health
+         * @param stimpacks    the Stimpacks left
+         * @return the probability of winning from this state
+         */
+        public double winProbability(int playerHealth, int enemyHealth, int stimpacks) {
+            return win[index(playerHealth, enemyHealth, stimpacks)];
+        }
+
+        /**
+         * @param playerHealth the player's health
+         * @param enemyHealth  the enemy's health
+         * @param stimpacks    the Stimpacks left
+         * @return the probability of escaping from this state
+         */
+        public double fleeProbability(int playerHealth, int enemyHealth, int stimpacks) {
+            return flee[index(playerHealth, enemyHealth, stimpacks)];
+        }
+
+        /**
+         * @param playerHealth the player's health
+         * @param enemyHealth  the enemy's health
+         * @param stimpacks    the Stimpacks left
+         * @return the probability of dying from this state
+         */
+        public double deathProbability(int playerHealth, int enemyHealth, int stimpacks) {
+            int i = index(playerHealth, enemyHealth, stimpacks);
+            return Math.max(0, 1 - win[i] - flee[i]);
+        }
+
+        /**
+         * @param playerHealth the player's health
+         * @param enemyHealth  the enemy's health
+         * @param stimpacks    the Stimpacks left
+         * @return the best action to take in this state
+         */
+        public CombatAction bestAction(int playerHealth, int enemyHealth, int stimpacks) {
+            return CombatAction.values()[policy[index(playerHealth, enemyHealth, stimpacks)]];
+        }
+
+        /**
+         * Returns a combat action source that plays this solution's best policy.
+         *
+         * @return the optimal action source
+         */
+        public CombatActionSource asActionSource() {
+            return new CombatActionSource() {
+                @Override
+                public CombatAction nextAction(Player player, CombatCharacters enemy) {
+                    return bestAction(player.getHealth(), enemy.getHealth(),
+                            player.countItem(Items.STIMPACK));
+                }
+
+                @Override
+                public boolean confirmStimpack(Player player) {
+                    return true;
+                }
+            };
+        }
+    }
+
+    /**
+     * Solves a fight against an enemy starting from full health.
+     *
+     * @param enemy        the enemy; its current health is the starting health
+     * @param loadout      the player's items
+     * @param playerHealth the player's starting health
+     * @param fleeValue    how much an escape is worth compared to a win, from 0
+     *                     to 1
+     * @return the solved table
+     */
+    public Solution solve(CombatCharacters enemy, CombatSimulator.Loadout loadout, int playerHealth, double fleeValue) {
+        if (enemy.getMinDamage() < 1) {
+            throw new IllegalArgumentException("Enemy must deal at least 1 damage per hit.");
+        }
+        int stimpacks = loadout.getStimpacks();
+        int maxHealth = playerHealth + CombatEngine.STIMPACK_HEAL * stimpacks;
+        Solution solution = new Solution(maxHealth, enemy.getHealth(), stimpacks);
+
+        // Distribution of the damage the player takes per enemy hit
+        double[] chance = new double[enemy.getMaxDamage() + 1];
+        int rolls = enemy.getMaxDamage() - enemy.getMinDamage() + 1;
+        int distinct = 0;
+        for (int k = enemy.getMinDamage(); k <= enemy.getMaxDamage(); k++) {
+            int taken = loadout.hasShieldModule() ? k - (int) (k * CombatEngine.SHIELD_REDUCTION) : k;
+            if (chance[taken] == 0) {
+                distinct++;
+            }
+            chance[taken] += 1.0 / rolls;
+        }
+        int[] hitDamage = new int[distinct];
+        double[] hitChance = new double[distinct];
+        for (int h = 0, n = 0; h < chance.length; h++) {
+            if (chance[h] != 0) {
+                hitDamage[n] = h;
+                hitChance[n++] = chance[h];
+            }
+        }
+        int minHit = hitDamage[0];
+
+        int bonus = loadout.hasLaserRifle() ? CombatEngine.LASER_RIFLE_BONUS : 0;
+        Rules rules = new Rules(solution, hitDamage, hitChance, CombatEngine.PLAYER_MIN_DAMAGE + bonus,
+                CombatEngine.PLAYER_MAX_DAMAGE + bonus, fleeValue);
+
+        for (int s = 0; s <= stimpacks; s++) {
+            // Health only grows by healing, so higher rows of this layer are unreachable
+            int topRow = maxHealth - CombatEngine.STIMPACK_HEAL * s;
+            for (int from = 1; from <= topRow; from += minHit) {
+                int to = Math.min(topRow, from + minHit - 1);
+                pool.invoke(new BandTask(rules, s, from, to));
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * The fight rules for one solve.
+     */
+    private static class Rules {
+        /** The table being filled. */
+        final Solution solution;
+
+        /** Each distinct amount of damage an enemy hit can do, ascending. */
+        final int[] hitDamage;
+
+        /** Probability of each entry in {@link #hitDamage}. */
+        final double[] hitChance;
+
+        /** Lowest damage the player can deal. */
+        final int minDamage;
+
+        /** Highest damage the player can deal. */
+        final int maxDamage;
+
+        /** Value of an escape compared to a win. */
+        final double fleeValue;
+
+        /** Number of enemy-health columns plus one, the stride of a row. */
+        final int stride;
+
+        Rules(Solution solution, int[] hitDamage, double[] hitChance, int minDamage, int maxDamage,
+                double fleeValue) {
+            this.solution = solution;
+            this.hitDamage = hitDamage;
+            this.hitChance = hitChance;
+            this.minDamage = minDamage;
+            this.maxDamage = maxDamage;
+            this.fleeValue = fleeValue;
+            this.stride = solution.maxEnemyHealth + 1;
+        }
+
+        /**
+         * Solves one row of states with the same player health and Stimpacks.
+         * All rows with lower player health in the same layer and the whole
+         * layer below must already be solved.
+         *
+         * @param p         the player's health
+         * @param s         the Stimpacks left
+         * @param afterWin  scratch for the win chance after an enemy hit, by enemy
+         *                  health
+         * @param afterFlee scratch for the escape chance after an enemy hit, by
+         *                  enemy health
+         */
+        void solveRow(int p, int s, double[] afterWin, double[] afterFlee) {
+            Solution t = solution;
+            double[] win = t.win;
+            double[] flee = t.flee;
+            int maxEnemy = t.maxEnemyHealth;
+
+            // Expected values once the enemy has hit back; zero health counts as zero
+            Arrays.fill(afterWin, 0);
+            Arrays.fill(afterFlee, 0);
+            for (int h = 0; h < hitDamage.length && hitDamage[h] < p; h++) {
+                double c = hitChance[h];
+                int hitRow = t.index(p - hitDamage[h], 1, s) - 1;
+                for (int e = 1; e <= maxEnemy; e++) {
+                    afterWin[e] += c * win[hitRow + e];
+                    afterFlee[e] += c * flee[hitRow + e];
+                }
+            }
+
+            int rolls = maxDamage - minDamage + 1;
+            boolean canHeal = s > 0 && p + CombatEngine.STIMPACK_HEAL <= t.maxPlayerHealth;
+            int row = t.index(p, 1, s) - 1;
+            int healedRow = canHeal ? t.index(p + CombatEngine.STIMPACK_HEAL, 1, s - 1) - 1 : 0;
+
+            for (int e = 1; e <= maxEnemy; e++) {
+                // Attack: roll damage, then the enemy hits back if it survives
+                double attackWin = 0;
+                double attackFlee = 0;
+                for (int d = minDamage; d <= maxDamage; d++) {
+                    if (e - d <= 0) {
+                        attackWin += 1;
+                    } else {
+                        attackWin += afterWin[e - d];
+                        attackFlee += afterFlee[e - d];
+                    }
+                }
+                attackWin /= rolls;
+                attackFlee /= rolls;
+
+                CombatAction best = CombatAction.ATTACK;
+                double bestWin = attackWin;
+                double bestFlee = attackFlee;
+                double bestValue = attackWin + fleeValue * attackFlee;
+
+                // Flee: escape half the time, otherwise the enemy hits
+                double fleeWin = 0.5 * afterWin[e];
+                double fleeFlee = 0.5 + 0.5 * afterFlee[e];
+                if (fleeWin + fleeValue * fleeFlee > bestValue) {
+                    best = CombatAction.FLEE;
+                    bestWin = fleeWin;
+                    bestFlee = fleeFlee;
+                    bestValue = fleeWin + fleeValue * fleeFlee;
+                }
+
+                // Heal: skip the enemy's turn and continue one layer down
+                if (canHeal) {
+                    int healed = healedRow + e;
+                    if (win[healed] + fleeValue * flee[healed] > bestValue) {
+                        best = CombatAction.HEAL;
+                        bestWin = win[healed];
+                        bestFlee = flee[healed];
+                    }
+                }
+
+                win[row + e] = bestWin;
+                flee[row + e] = bestFlee;
+                t.policy[row + e] = (byte) best.ordinal();
+            }
+        }
+    }
+
+    /**
+     * Solves a band of player-health rows of one Stimpack layer. Rows in a band
+     * never depend on each other, so the band is split until each task has a
+     * few rows.
+     */
+    @SuppressWarnings("serial") // a fork-join task, never serialized
+    private static class BandTask extends RecursiveAction {
+        /** The rules to solve with. */
+        private final Rules rules;
+
+        /** The Stimpack layer. */
+        private final int stimpacks;
+
+        /** First player-health row, inclusive. */
+        private final int fromHealth;
+
+        /** Last player-health row, inclusive. */
+        private final int toHealth;
+
+        BandTask(Rules rules, int stimpacks, int fromHealth, int toHealth) {
+            this.rules = rules;
+            this.stimpacks = stimpacks;
+            this.fromHealth = fromHealth;
+            this.toHealth = toHealth;
+        }
+
+        @Override
+        protected void compute() {
+            if (toHealth - fromHealth >= ROWS_PER_TASK) {
+                int mid = (fromHealth + toHealth) >>> 1;
+                invokeAll(new BandTask(rules, stimpacks, fromHealth, mid),
+                        new BandTask(rules, stimpacks, mid + 1, toHealth));
+                return;
+            }
+            double[] afterWin = new double[rules.stride];
+            double[] afterFlee = new double[rules.stride];
+            for (int p = fromHealth; p <= toHealth; p++) {
+                rules.solveRow(p, stimpacks, afterWin, afterFlee);
+            }
+        }
+    }
+
+    /**
+     * Solves every enemy against every loadout and prints the exact outcome
+     * probabilities from the start of each fight.
+     *
+     * @param args value of an escape compared to a win, and the highest
+     *             Stimpack count, both optional
+     */
+    public static void main(String[] args) {
+        double fleeValue = args.length > 0 ? Double.parseDouble(args[0]) : 0;
+        int maxStimpacks = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int playerHealth = new Player().getHealth();
+
+        CombatCharacters[] enemies = {
+                CombatCharacters.droid, CombatCharacters.zepZop, CombatCharacters.mastermind,
+                CombatCharacters.zig, CombatCharacters.boss
+        };
+        CombatSolver solver = new CombatSolver(ForkJoinPool.commonPool());
+
+        System.out.printf("Flee value %.2f, player health %d%n%n", fleeValue, playerHealth);
+        for (CombatCharacters enemy : enemies) {
+            System.out.printf("=== %s (%d HP, %d-%d damage) ===%n",
+                    enemy.getName(), enemy.getHealth(), enemy.getMinDamage(), enemy.getMaxDamage());
+            System.out.println("Loadout                  Win%    Flee%   Death%  First move   Solve ms");
+            for (int rifle = 0; rifle < 2; rifle++) {
+                for (int shield = 0; shield < 2; shield++) {
+                    for (int stims = 0; stims <= maxStimpacks; stims++) {
+                        CombatSimulator.Loadout loadout = new CombatSimulator.Loadout(rifle == 1, shield == 1, stims);
+                        long start = System.nanoTime();
+                        Solution solution = solver.solve(enemy, loadout, playerHealth, fleeValue);
+                        double millis = (System.nanoTime() - start) / 1e6;
+                        int hp = enemy.getHealth();
+                        System.out.printf("%-20s  %7.3f  %7.3f  %7.3f  %-10s  %8.2f%n", loadout,
+                                solution.winProbability(playerHealth, hp, stims) * 100,
+                                solution.fleeProbability(playerHealth, hp, stims) * 100,
+                                solution.deathProbability(playerHealth, hp, stims) * 100,
+                                solution.bestAction(playerHealth, hp, stims), millis);
+                    }
+                }
+            }
+            System.out.println();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 
-import java.util.Random;
-import java.util.Scanner;
+import java.util.random.RandomGenerator;
 
 /**
  * The CombatSystem class handles combat encounters between the player and
@@ -8,12 +7,13 @@ import java.util.Scanner;
  * It includes methods for initiating combat, processing player and enemy
  * actions,
  * and handling the outcomes of battles.
+ * The rules are applied by {@link CombatEngine}; this class is the console
+ * front end that reads choices from the session's input and prints each
+ * event to the session's output.
  * 
  * @author Christ Khin
  */
 public class CombatSystem {
-    private static final Random random = new Random();
-
     // public static void enemyEncounter(Player player, Scanner scanner, GameMap
     // map,
     // combatCharacters enemy) {
@@ -45,7 +45,7 @@ public class CombatSystem {
     // }
 
     /**
-     * Runs a fight between the player and an enemy.
+     * Runs a fight between the player and an enemy on the console.
      * Shows the enemy’s intro line, then lets the player choose to attack, heal, or
      * try to run.
      * If the player attacks, damage is dealt to the enemy.
@@ -53,223 +53,323 @@ public class CombatSystem {
      * If the player runs and succeeds, the fight ends.
      * If the enemy attacks, damage is reduced if the player has a Shield Module.
      * Ends when the enemy is defeated, the player escapes, or the player dies.
+     * The rules themselves live in {@link CombatEngine}; this method only reads
+     * the player's choices from the session's input and prints what happens.
      *
-     * @param player  The player participating in combat.
+     * @param session The game the fight happens in; its player fights, its input
+     *                is read, its random stream rolls and its map's current
+     *                location is updated upon enemy defeat.
      * @param enemy   The enemy being fought.
-     * @param scanner Scanner object used for player input.
-     * @param map     The game map, used to update the location state upon enemy
-     *                defeat.
+     * @return How the fight ended.
+     */
+    public static CombatOutcome combat(GameSession session, CombatCharacters enemy) {
+        Player player = session.getPlayer();
+        RandomGenerator random = session.getRandom().generator();
+        Location loc = session.getMap().getLocation(player.getX(), player.getY());
+        ConsoleActions actions = new ConsoleActions(session);
+        GameMetrics.increment(GameMetrics.Counter.FIGHTS);
+        CombatOutcome outcome = new CombatEngine(random).fight(player, enemy, loc, actions,
+                new ConsoleEvents(random, session.getOut()));
+        actions.endRound();
+        GameMetrics.combatEnded(outcome);
+        return outcome;
+    }
+
+    /**
+     * Prints both combatants' health and the action menu.
+     *
+     * @param player The player.
+     * @param enemy  The enemy.
+     * @param out    The output the menu is written to.
+     */
+    private static void printRoundMenu(Player player, CombatCharacters enemy, GameOutput out) {
+        out.println();
+        out.print(player.getName());
+        out.print("'s HP: ");
+        out.println(player.getHealth());
+        out.print(enemy.getName());
+        out.print("'s HP: ");
+        out.println(enemy.getHealth());
+        out.println();
+        out.println("1. Attack\n2. Heal\n3. Flee\n\nChoice: ");
+    }
+
+    /**
+     * Reads combat choices typed by the player.
      */
-    public static void combat(Player player, CombatCharacters enemy, Scanner scanner, GameMap map) {
-        Location loc = map.getLocation(player.getX(), player.getY());
-
-        // Display enemy intro text
-        switch (enemy.getName()) {
-            case "Rogue Droid" ->
-                System.out.println(
-                        "Rogue Droid readies its weapons!\nRogue Droid: INTRUDER DETECTED. INITIATING TERMINATION PROTOCOL.\n");
-
-            case "Zep Zop" ->
-                System.out.println(
-                        "Zep Zop screeches and bares its sharp claws at you!\nIt circles you, saliva dripping from its jagged teeth.");
-
-            case "Mastermind" -> {
-                if (loc.isEventTriggered()) { // if puzzle already solved
-                    System.out.println(
-                            "The Mastermind levitates above the ground, its voice echoing inside your head.\nMastermind: 'You still dare defy me? Insolent worm!'");
-                } else { // puzzle not solved yet
-                    System.out.println(
-                            "The Mastermind descends in silence, its eyes glowing with cold intent.\nMastermind: 'You will not survive this intrusion.'");
+    private static class ConsoleActions implements CombatActionSource {
+        /** Menu numbers and names of the combat actions. */
+        private static final WordTable<CombatAction> CHOICES = new WordTable<CombatAction>()
+                .add("1", CombatAction.ATTACK).add("attack", CombatAction.ATTACK)
+                .add("2", CombatAction.HEAL).add("heal", CombatAction.HEAL)
+                .add("3", CombatAction.FLEE).add("flee", CombatAction.FLEE);
+
+        /** The game whose input is read. */
+        private final GameSession session;
+
+        /** When the current round's action was read, or -1 between rounds. */
+        private long roundStart = -1;
+
+        /** The input's wait time when the current round's action was read. */
+        private long roundWaitStart;
+
+        /** The flight recorder event for the current round, reused every round. */
+        private final GameEvents.CombatRoundEvent roundEvent = new GameEvents.CombatRoundEvent();
+
+        /** The enemy in the current round. */
+        private CombatCharacters roundEnemy;
+
+        /** The action chosen in the current round. */
+        private CombatAction roundAction;
+
+        /**
+         * @param session The game whose input is read.
+         */
+        ConsoleActions(GameSession session) {
+            this.session = session;
+        }
+
+        /**
+         * Records the time the current round took, from reading the player's
+         * action to asking for the next one, leaving out any waits for the
+         * player in between.
+         */
+        void endRound() {
+            if (roundStart >= 0) {
+                long waited = session.getInput().getWaitNanos() - roundWaitStart;
+                GameMetrics.roundCompleted(System.nanoTime() - roundStart - waited);
+                roundStart = -1;
+                roundEvent.end();
+                if (roundEvent.shouldCommit()) {
+                    Player player = session.getPlayer();
+                    roundEvent.sessionId = session.getId();
+                    roundEvent.x = player.getX();
+                    roundEvent.y = player.getY();
+                    roundEvent.enemy = roundEnemy.getName();
+                    roundEvent.action = roundAction.name();
+                    roundEvent.playerWait = waited;
+                    roundEvent.commit();
                 }
             }
+        }
 
-            case "Grand General Zig" -> {
-                System.out.println(
-                        "Grand General Zig narrows his gaze, hand hovering over his holster.\nZig: 'You come empty-handed? Pathetic. Let's end this quickly.'");
+        @Override
+        public CombatAction nextAction(Player player, CombatCharacters enemy) {
+            endRound();
+            while (true) {
+                CombatAction action = CHOICES.match(session.getInput().readLine());
+                if (action != null) {
+                    roundStart = System.nanoTime();
+                    roundWaitStart = session.getInput().getWaitNanos();
+                    roundEvent.begin();
+                    roundEnemy = enemy;
+                    roundAction = action;
+                    return action;
+                }
+                // Enemy skips its turn on invalid input, so the round starts over
+                session.getOut().println("Invalid input. Please enter 1, 2, or 3.");
+                printRoundMenu(player, enemy, session.getOut());
             }
+        }
 
-            case "Emperor Poutine" ->
-                System.out.println(
-                        "Emperor Poutine roars with fury and points his blade at your chest.\nPoutine: 'THIS IS THE END OF YOU, HUMAN!' He charges with his laser sword drawn!");
+        @Override
+        public boolean confirmStimpack(Player player) {
+            return App.confirm("Do you want to use a Stimpack? (y/n) ", session);
         }
+    }
 
-        // Combat loop
-        boolean fight = true;
-
-        while (fight) {
-            System.out.println();
-            System.out.printf("%s's HP: %d\n", player.getName(), player.getHealth());
-            System.out.printf("%s's HP: %d\n", enemy.getName(), enemy.getHealth());
-            System.out.println();
-            System.out.println("1. Attack\n2. Heal\n3. Flee\n\nChoice: ");
-            String choice = scanner.nextLine().trim().toLowerCase();
-
-            switch (choice) {
-                case "1", "attack" -> {
-                    int weaponDamage = 0;
-                    int playerDamage = random.nextInt(16) + 10;
-                    if (player.hasItem("Laser Rifle")) {
-                        weaponDamage = 20;
-                    }
+    /**
+     * Prints combat events to the console.
+     */
+    private static class ConsoleEvents implements CombatEventSink {
+        /** Random stream used to pick a hint after a defeat. */
+        private final RandomGenerator random;
 
-                    int totalDamage = playerDamage + weaponDamage;
-                    System.out.println();
-                    if (player.hasItem("Laser Rifle")) {
-                        System.out.printf("You shoot your Laser Rifle and deal %d damage!\n", totalDamage);
-                    } else {
-                        System.out.printf("You attack and deal %d damage!\n", totalDamage);
-                    }
+        /** The output events are written to. */
+        private final GameOutput out;
 
-                    enemy.setHealth(enemy.getHealth() - totalDamage);
+        /**
+         * @param random Random stream used to pick a hint after a defeat.
+         * @param out    The output events are written to.
+         */
+        ConsoleEvents(RandomGenerator random, GameOutput out) {
+            this.random = random;
+            this.out = out;
+        }
 
-                    // Check if enemy is defeated after player attack
-                    if (enemy.getHealth() <= 0) {
-                        handleEnemyDefeat(player, enemy, map);
-                        return;
-                    }
-                }
+        @Override
+        public void encounter(CombatCharacters enemy, Location loc) {
+            // Display enemy intro text
+            switch (enemy.getName()) {
+                case "Rogue Droid" ->
+                    out.println(
+                            "Rogue Droid readies its weapons!\nRogue Droid: INTRUDER DETECTED. INITIATING TERMINATION PROTOCOL.\n");
 
-                case "2", "heal" -> {
-                    if (player.hasItem("Stimpack")) {
-                        if (App.confirm("Do you want to use a Stimpack? (y/n) ", scanner)) {
-                            player.removeItem("Stimpack");
-                            System.out.println();
-                            System.out.println("You use a stimpack and replenish some health.");
-                            int oldHealth = player.getHealth();
-                            player.setHealth(oldHealth + 50); // stimpack adds 50 to health total
-                            int newHealth = player.getHealth();
-                            System.out.println();
-                            System.out.printf("Previous Health: %d\nCurrent Health: %d\n", oldHealth, newHealth);
-                        } else {
-                            System.out.println();
-                            System.out.println("You save your Stimpacks for another time.");
-                        }
-                    } else {
-                        System.out.println();
-                        System.out.println("You don't have any Stimpacks.");
-                    }
-                    continue; // Skip enemy turn when healing
-                }
+                case "Zep Zop" ->
+                    out.println(
+                            "Zep Zop screeches and bares its sharp claws at you!\nIt circles you, saliva dripping from its jagged teeth.");
 
-                case "3", "flee" -> {
-                    if (random.nextBoolean()) {
-                        System.out.println();
-                        System.out.println("You successfully escaped!");
-                        return;
-                    } else {
-                        System.out.println();
-                        System.out.println("You failed to escape!");
+                case "Mastermind" -> {
+                    if (loc != null && loc.isEventTriggered()) { // if puzzle already solved
+                        out.println(
+                                "The Mastermind levitates above the ground, its voice echoing inside your head.\nMastermind: 'You still dare defy me? Insolent worm!'");
+                    } else { // puzzle not solved yet
+                        out.println(
+                                "The Mastermind descends in silence, its eyes glowing with cold intent.\nMastermind: 'You will not survive this intrusion.'");
                     }
                 }
 
-                default -> {
-                    System.out.println("Invalid input. Please enter 1, 2, or 3.");
-                    continue; // Skip enemy turn for invalid input
+                case "Grand General Zig" -> {
+                    out.println(
+                            "Grand General Zig narrows his gaze, hand hovering over his holster.\nZig: 'You come empty-handed? Pathetic. Let's end this quickly.'");
                 }
+
+                case "Emperor Poutine" ->
+                    out.println(
+                            "Emperor Poutine roars with fury and points his blade at your chest.\nPoutine: 'THIS IS THE END OF YOU, HUMAN!' He charges with his laser sword drawn!");
             }
+        }
 
-            // Enemy attacks (only if player didn't heal or enter invalid input)
-            if (choice.equals("1") || choice.equals("attack") || choice.equals("3") || choice.equals("flee")) {
-                int originalDamage = enemy.rollDamage();
-                int finalDamage = originalDamage;
+        @Override
+        public void roundStart(Player player, CombatCharacters enemy) {
+            printRoundMenu(player, enemy, out);
+        }
 
-                if (player.hasItem("Shield Module")) {
-                    int damageReduction = (int) (originalDamage * 0.3); // 30% damage reduction
-                    finalDamage = originalDamage - damageReduction;
+        @Override
+        public void playerAttacked(int damage, boolean rifle) {
+            out.println();
+            if (rifle) {
+                out.print("You shoot your Laser Rifle and deal ");
+            } else {
+                out.print("You attack and deal ");
+            }
+            out.print(damage);
+            out.println(" damage!");
+        }
 
-                    System.out.printf(
-                            "\nYour Shield Module activates! Incoming damage reduced from %d to %d.\n",
-                            originalDamage, finalDamage);
-                }
+        @Override
+        public void stimpackUsed(int oldHealth, int newHealth) {
+            GameMetrics.increment(GameMetrics.Counter.STIMPACKS_USED);
+            out.println();
+            out.println("You use a stimpack and replenish some health.");
+            out.println();
+            out.print("Previous Health: ");
+            out.println(oldHealth);
+            out.print("Current Health: ");
+            out.println(newHealth);
+        }
 
-                System.out.println();
-                System.out.printf("%s attacks and deals %d damage!\n", enemy.getName(), finalDamage);
-                player.setHealth(player.getHealth() - finalDamage);
-            }
+        @Override
+        public void stimpackDeclined() {
+            out.println();
+            out.println("You save your Stimpacks for another time.");
+        }
 
-            // Check if player is defeated
-            if (player.getHealth() <= 0) {
-                System.out.println("\nYou have been defeated...Better luck next time!");
-                if (random.nextBoolean()) {
-                    System.out.println("Hint: Certain items may give you an advantage in combat.");
-                } else {
-                    System.out.println(
-                            "Hint: You can heal during and out of combat. Check your inventory for any Stimpacks.");
-                }
-                System.exit(0);
-            }
+        @Override
+        public void noStimpacks() {
+            out.println();
+            out.println("You don't have any Stimpacks.");
         }
-    }
 
-    /**
-     * Triggers when the player beats an enemy.
-     * Gives the player certain items depending on which enemy was defeated.
-     * Changes the location so it’s no longer hostile and updates the description.
-     * If the final boss "Emperor Poutine" is defeated, the game ends.
-     *
-     * @param player The player who defeated the enemy.
-     * @param enemy  The defeated enemy.
-     * @param map    The game map used to locate and update the current location.
-     */
-    private static void handleEnemyDefeat(Player player, CombatCharacters enemy, GameMap map) {
-        enemy.setDead(true); // mark enemy as dead
-        System.out.println();
-        System.out.printf("You defeated %s!\n", enemy.getName());
-        Location loc = map.getLocation(player.getX(), player.getY());
-
-        switch (enemy.getName()) {
-            case "Grand General Zig" -> {
-                player.addItem(Items.WARP_DRIVE_FRAGMENT_1);
-                player.addItem(Items.STIMPACK);
-                System.out.println("You have gained: Warp Drive Fragment 1, Stimpack");
-                loc.setHostile(false);
-                loc.setLongDescription("""
-                        The crimson sun beats down over the scorched sands of Eridani.
-                        The dunes stretch out in silence, a barren expanse reclaimed from tyranny.
-                        """);
-            }
-            case "Rogue Droid" -> {
-                player.addItem(Items.WARP_DRIVE_FRAGMENT_2);
-                player.addItem(Items.STIMPACK);
-                System.out.println("You have gained: Warp Drive Fragment 2, Stimpack");
-                loc.setHostile(false);
-                loc.setLongDescription("""
-                        Ternion's skyline, a jagged silhouette of twisted spires, looms over the quiet wreckage below.
-                        The city's broken streets echo with ghosts of data and faded signals.
-                        """);
+        @Override
+        public void fleeAttempted(boolean escaped) {
+            out.println();
+            if (escaped) {
+                out.println("You successfully escaped!");
+            } else {
+                out.println("You failed to escape!");
             }
-            case "Zep Zop" -> {
-                player.addItem(Items.IXYLL_FRUIT);
-                player.addItem(Items.WARP_DRIVE_FRAGMENT_3);
-                player.addItem(Items.STIMPACK);
-                System.out.println("Zep Zop drops a strange fruit.");
-                System.out.println("You have gained: Ixyll Fruit, Warp Drive Fragment 3, Stimpack");
-                loc.setHostile(false);
-                loc.setLongDescription("""
-                            Vines hang heavy with dew, and shafts of golden light pierce the jungle canopy.
-                            Zep Zop's shrine lies in solemn ruin, half-consumed by the encroaching wilderness.
-                        """);
+        }
+
+        @Override
+        public void shieldActivated(int originalDamage, int finalDamage) {
+            out.println();
+            out.print("Your Shield Module activates! Incoming damage reduced from ");
+            out.print(originalDamage);
+            out.print(" to ");
+            out.print(finalDamage);
+            out.println(".");
+        }
+
+        @Override
+        public void enemyAttacked(CombatCharacters enemy, int damage) {
+            out.println();
+            out.print(enemy.getName());
+            out.print(" attacks and deals ");
+            out.print(damage);
+            out.println(" damage!");
+        }
 
+        @Override
+        public void playerDefeated(Player player) {
+            out.println("\nYou have been defeated...Better luck next time!");
+            if (random.nextBoolean()) {
+                out.println("Hint: Certain items may give you an advantage in combat.");
+            } else {
+                out.println(
+                        "Hint: You can heal during and out of combat. Check your inventory for any Stimpacks.");
             }
-            case "Mastermind" -> {
-                player.addItem(Items.WARP_DRIVE_FRAGMENT_4);
-                player.addItem(Items.STIMPACK);
-                System.out.println("You have gained: Warp Drive Fragment 4, Stimpack");
-                loc.setHostile(false);
-                loc.setLongDescription("""
-                        The freezing gales no longer scream with malevolent whispers.
-                        A blue glow pulses faintly from the Cryo Core chamber, now dormant.
-                        """);
+        }
+
+        /**
+         * Triggers when the player beats an enemy.
+         * Tells the player which items they received; the engine has already
+         * added them and made the location non-hostile.
+         * If the final boss "Emperor Poutine" is defeated, the ending is shown.
+         *
+         * @param enemy  The defeated enemy.
+         * @param player The player who defeated the enemy.
+         */
+        @Override
+        public void enemyDefeated(CombatCharacters enemy, Player player) {
+            out.println();
+            out.println("You defeated " + enemy.getName() + "!");
+            printSpoils(enemy, player);
+        }
+
+        /**
+         * Triggers when another player sharing the world beats the enemy.
+         * Tells the player what they received if they share the loot; the
+         * final boss's ending is shown to everyone in the fight.
+         *
+         * @param enemy  The defeated enemy.
+         * @param player This fight's player.
+         * @param looted Whether the player shares the enemy's loot.
+         */
+        @Override
+        public void enemyDefeatedByAlly(CombatCharacters enemy, Player player, boolean looted) {
+            out.println();
+            out.println(enemy.getName() + " falls to another player's blow!");
+            if (looted || enemy.getName().equals("Emperor Poutine")) {
+                printSpoils(enemy, player);
             }
-            case "Emperor Poutine" -> {
-                System.out.println(
-                        "\nThe tyrant's reign ends in a burst of blinding light, his final scream echoing across the void.");
-                System.out.println("With his fall, the corruption strangling the warp system vanishes.");
-                System.out.println("\nThe Warp Drive Fragments begin to glow...");
-                System.out.println("One by one, they rise into the air and fuse together.");
-                System.out.println("\nWith your ship ready to blast off, a new chapter awaits among the stars.");
-                System.out.println("\nThank you for playing Galactic Dawn, " + player.getName() + "!");
-                System.exit(0);
+        }
+
+        /**
+         * Tells the player which items a defeated enemy gave them, or shows
+         * the ending after the final boss.
+         *
+         * @param enemy  The defeated enemy.
+         * @param player The player.
+         */
+        private void printSpoils(CombatCharacters enemy, Player player) {
+            switch (enemy.getName()) {
+                case "Grand General Zig" -> out.println("You have gained: Warp Drive Fragment 1, Stimpack");
+                case "Rogue Droid" -> out.println("You have gained: Warp Drive Fragment 2, Stimpack");
+                case "Zep Zop" -> {
+                    out.println("Zep Zop drops a strange fruit.");
+                    out.println("You have gained: Ixyll Fruit, Warp Drive Fragment 3, Stimpack");
+                }
+                case "Mastermind" -> out.println("You have gained: Warp Drive Fragment 4, Stimpack");
+                case "Emperor Poutine" -> {
+                    out.println(
+                            "\nThe tyrant's reign ends in a burst of blinding light, his final scream echoing across the void.");
+                    out.println("With his fall, the corruption strangling the warp system vanishes.");
+                    out.println("\nThe Warp Drive Fragments begin to glow...");
+                    out.println("One by one, they rise into the air and fuse together.");
+                    out.println("\nWith your ship ready to blast off, a new chapter awaits among the stars.");
+                    out.println("\nThank you for playing Galactic Dawn, " + player.getName() + "!");
+                }
             }
         }
     }
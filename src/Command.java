@@ -0,0 +1,72 @@
+/**
+ * The commands a player can type at the main prompt, with the words that
+ * name them. Any unique prefix of a word works too, see {@link WordTable}.
+ */
+public enum Command {
+    NORTH(Argument.NONE, "n", "north"),
+    SOUTH(Argument.NONE, "s", "south"),
+    EAST(Argument.NONE, "e", "east"),
+    WEST(Argument.NONE, "w", "west"),
+    /** Moves in a direction, as in "go north"; parsed into that direction. */
+    GO(Argument.DIRECTION, "go", "move"),
+    /** Travels to a place or coordinates, as in "goto 3,1" or "goto monolith". */
+    GOTO(Argument.PLACE, "goto"),
+    MAP(Argument.NONE, "map"),
+    INVENTORY(Argument.NONE, "inv", "inventory", "i"),
+    LOOK(Argument.NONE, "look", "l"),
+    /** Lists items, hostile locations and events within scanner range. */
+    SCAN(Argument.NONE, "scan", "radar"),
+    TAKE(Argument.NONE, "take"),
+    HELP(Argument.NONE, "help", "?"),
+    /** Uses an item at the player's location, optionally naming the item. */
+    USE(Argument.ITEM, "use"),
+    SOLVE(Argument.NONE, "solve"),
+    FIGHT(Argument.NONE, "fight"),
+    HEAL(Argument.NONE, "heal"),
+    SAVE(Argument.NONE, "save"),
+    LOAD(Argument.NONE, "load"),
+    QUIT(Argument.NONE, "q", "quit", "exit");
+
+    /**
+     * What may follow a command's word.
+     */
+    enum Argument {
+        /** Nothing. */
+        NONE,
+        /** A direction, which is required. */
+        DIRECTION,
+        /** An item name, which is optional. */
+        ITEM,
+        /** Coordinates such as "3,1" or "3 1", or a place name; required. */
+        PLACE
+    }
+
+    /** What may follow the command's word. */
+    private final Argument argument;
+
+    /** Words that name the command, in lower case. */
+    private final String[] words;
+
+    /**
+     * @param argument what may follow the command's word
+     * @param words    words that name the command, in lower case
+     */
+    Command(Argument argument, String... words) {
+        this.argument = argument;
+        this.words = words;
+    }
+
+    /**
+     * @return what may follow the command's word
+     */
+    Argument getArgument() {
+        return argument;
+    }
+
+    /**
+     * @return the words that name the command
+     */
+    String[] getWords() {
+        return words.clone();
+    }
+}
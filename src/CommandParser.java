@@ -0,0 +1,191 @@
+/**
+ * Reads the command typed at the main prompt.
+ * The first word picks a {@link Command}; what follows is matched against
+ * the directions or item names, so "go north", "NORTH" and "nor" all move
+ * north, "use cryo core" names the item to use and "goto 3,1" or
+ * "goto monolith" names where to travel. Lookups walk the line
+ * in place through {@link WordTable}s built once for all games, and the
+ * result is kept in this parser, so parsing a line allocates nothing.
+ * <p>
+ * Each game has its own parser, see {@link GameSession#getCommandParser()}.
+ */
+final class CommandParser {
+    /** Command words. */
+    private static final WordTable<Command> COMMANDS = new WordTable<>();
+
+    /** Direction words after "go". */
+    private static final WordTable<Command> DIRECTIONS = new WordTable<>();
+
+    /** Item names after "use". */
+    private static final WordTable<Items> ITEMS = new WordTable<>();
+
+    static {
+        for (Command command : Command.values()) {
+            for (String word : command.getWords()) {
+                COMMANDS.add(word, command);
+            }
+        }
+        for (Command direction : new Command[] { Command.NORTH, Command.SOUTH, Command.EAST, Command.WEST }) {
+            for (String word : direction.getWords()) {
+                DIRECTIONS.add(word, direction);
+            }
+        }
+        for (Items item : Items.values()) {
+            ITEMS.add(item.getName().toLowerCase(), item);
+        }
+    }
+
+    /** The last command parsed, or null if the line was not a command. */
+    private Command command;
+
+    /** The item named after the last command, or null. */
+    private Items item;
+
+    /** The world whose places can be named after "goto". */
+    private final WorldTemplate world;
+
+    /** The x-coordinate named after the last command, or -1. */
+    private int targetX = -1;
+
+    /** The y-coordinate named after the last command, or -1. */
+    private int targetY = -1;
+
+    /**
+     * @param world the world whose places can be named after "goto"
+     */
+    CommandParser(WorldTemplate world) {
+        this.world = world;
+    }
+
+    /**
+     * Parses a line typed at the main prompt.
+     *
+     * @param line the line
+     * @return the command, or null if the line is not a valid command
+     */
+    Command parse(CharSequence line) {
+        command = null;
+        item = null;
+        targetX = -1;
+        targetY = -1;
+
+        int end = line.length();
+        int start = 0;
+        while (start < end && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        int wordEnd = start;
+        while (wordEnd < end && !Character.isWhitespace(line.charAt(wordEnd))) {
+            wordEnd++;
+        }
+        int rest = wordEnd;
+        while (rest < end && Character.isWhitespace(line.charAt(rest))) {
+            rest++;
+        }
+
+        Command parsed = COMMANDS.match(line, start, wordEnd);
+        if (parsed == null) {
+            return null;
+        }
+        switch (parsed.getArgument()) {
+            case NONE -> {
+                if (rest < end) {
+                    return null;
+                }
+            }
+            case DIRECTION -> {
+                parsed = DIRECTIONS.match(line, rest, end);
+                if (parsed == null) {
+                    return null;
+                }
+            }
+            case ITEM -> {
+                if (rest < end) {
+                    item = ITEMS.match(line, rest, end);
+                    if (item == null) {
+                        return null;
+                    }
+                }
+            }
+            case PLACE -> {
+                if (rest == end || !parseTarget(line, rest, end)) {
+                    return null;
+                }
+            }
+        }
+        command = parsed;
+        return command;
+    }
+
+    /**
+     * Reads the destination after "goto": two non-negative numbers separated
+     * by a comma and/or spaces, or the name of a place.
+     *
+     * @param line  the line
+     * @param start index of the destination's first character
+     * @param end   index after the destination's last character
+     * @return true if the destination was understood
+     */
+    private boolean parseTarget(CharSequence line, int start, int end) {
+        int i = start;
+        long x = 0, y = 0;
+        int digits = 0;
+        while (i < end && Character.isDigit(line.charAt(i)) && digits++ < 9) {
+            x = x * 10 + line.charAt(i++) - '0';
+        }
+        if (digits > 0 && digits <= 9) {
+            while (i < end && (line.charAt(i) == ',' || Character.isWhitespace(line.charAt(i)))) {
+                i++;
+            }
+            int yDigits = 0;
+            while (i < end && Character.isDigit(line.charAt(i)) && yDigits++ < 9) {
+                y = y * 10 + line.charAt(i++) - '0';
+            }
+            while (i < end && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (yDigits == 0 || yDigits > 9 || i < end) {
+                return false;
+            }
+            targetX = (int) x;
+            targetY = (int) y;
+            return true;
+        }
+        int cell = world.findPlace(line, start, end);
+        if (cell < 0) {
+            return false;
+        }
+        targetX = cell / world.getHeight();
+        targetY = cell % world.getHeight();
+        return true;
+    }
+
+    /**
+     * @return the last command parsed, or null if the line was not a command
+     */
+    Command getCommand() {
+        return command;
+    }
+
+    /**
+     * @return the item named after the last command, or null if none was
+     *         named
+     */
+    Items getItem() {
+        return item;
+    }
+
+    /**
+     * @return the x-coordinate named after the last command, or -1
+     */
+    int getTargetX() {
+        return targetX;
+    }
+
+    /**
+     * @return the y-coordinate named after the last command, or -1
+     */
+    int getTargetY() {
+        return targetY;
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * The enemies of one game session.
+ * Each session fights its own copies of the enemy templates in
+ * {@link CombatCharacters}, so defeating an enemy in one game does not affect
+ * any other game running in the same process, except that the games in one
+ * {@link SharedWorld} fight the same copies.
+ */
+public class Enemies {
+    /** The Rogue Droid on Ternion. */
+    public final CombatCharacters droid = new CombatCharacters(CombatCharacters.droid);
+
+    /** Zep Zop on Ixyll. */
+    public final CombatCharacters zepZop = new CombatCharacters(CombatCharacters.zepZop);
+
+    /** The Mastermind on Strix. */
+    public final CombatCharacters mastermind = new CombatCharacters(CombatCharacters.mastermind);
+
+    /** Grand General Zig on Eridani. */
+    public final CombatCharacters zig = new CombatCharacters(CombatCharacters.zig);
+
+    /** Emperor Poutine behind the Rift Gate. */
+    public final CombatCharacters boss = new CombatCharacters(CombatCharacters.boss);
+
+    /**
+     * Returns every enemy in a fixed order: droid, Zep Zop, Mastermind, Zig,
+     * Emperor Poutine. Saved games rely on this order.
+     *
+     * @return a new array of this game's enemies
+     */
+    public CombatCharacters[] all() {
+        return new CombatCharacters[] { droid, zepZop, mastermind, zig, boss };
+    }
+}
@@ -0,0 +1,163 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for what players do, so a recording can tie CPU
+ * and allocation samples to the commands, combat rounds, item transfers and
+ * moves of particular sessions. Every event carries the session identifier
+ * and the player's coordinates.
+ * <p>
+ * The events are always compiled in. They are filled in only after
+ * {@code shouldCommit()}, and all but the combat round event, which lasts a
+ * whole fight, are local objects the JIT removes, so with recording off they
+ * cost a flag check. Record them with, for example,
+ * {@code java -XX:StartFlightRecording:filename=game.jfr SessionRuntime} and
+ * read them with {@code jfr print --categories "Galactic Dawn" game.jfr}.
+ */
+final class GameEvents {
+    /** Category shared by every event. */
+    private static final String CATEGORY = "Galactic Dawn";
+
+    /**
+     * Prevents instantiation.
+     */
+    private GameEvents() {
+    }
+
+    /**
+     * One command run at the main prompt. Its duration includes any waits
+     * for the player, such as confirmations and riddles, which are also
+     * given on their own.
+     */
+    @Name("galacticdawn.Command")
+    @Label("Command")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CommandEvent extends Event {
+        /** Identifier of the session. */
+        @Label("Session")
+        long sessionId;
+
+        /** The command. */
+        @Label("Command")
+        String command;
+
+        /** The item named after the command, or null. */
+        @Label("Item")
+        String item;
+
+        /** The player's x-coordinate when the command started. */
+        @Label("X")
+        int x;
+
+        /** The player's y-coordinate when the command started. */
+        @Label("Y")
+        int y;
+
+        /** Time the command spent waiting for the player. */
+        @Label("Player Wait")
+        @Description("Part of the duration spent waiting for the player to type")
+        @Timespan(Timespan.NANOSECONDS)
+        long playerWait;
+    }
+
+    /**
+     * One round of a fight, from reading the player's action to asking for the
+     * next one. A fight reuses one event for all its rounds, calling
+     * {@code begin()} and {@code end()} for each.
+     */
+    @Name("galacticdawn.CombatRound")
+    @Label("Combat Round")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class CombatRoundEvent extends Event {
+        /** Identifier of the session. */
+        @Label("Session")
+        long sessionId;
+
+        /** The player's x-coordinate. */
+        @Label("X")
+        int x;
+
+        /** The player's y-coordinate. */
+        @Label("Y")
+        int y;
+
+        /** The enemy fought. */
+        @Label("Enemy")
+        String enemy;
+
+        /** The action the player chose. */
+        @Label("Action")
+        String action;
+
+        /** Time the round spent waiting for the player, e.g. to confirm a Stimpack. */
+        @Label("Player Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long playerWait;
+    }
+
+    /**
+     * One item entering or leaving the player's inventory.
+     */
+    @Name("galacticdawn.ItemTransfer")
+    @Label("Item Transfer")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class ItemTransferEvent extends Event {
+        /** Identifier of the session. */
+        @Label("Session")
+        long sessionId;
+
+        /** The player's x-coordinate. */
+        @Label("X")
+        int x;
+
+        /** The player's y-coordinate. */
+        @Label("Y")
+        int y;
+
+        /** The item. */
+        @Label("Item")
+        String item;
+
+        /** How the player's count of the item changed. */
+        @Label("Change")
+        @Description("1 when the player gains the item, -1 when they lose it")
+        int change;
+    }
+
+    /**
+     * The player moving to a new location.
+     */
+    @Name("galacticdawn.LocationChange")
+    @Label("Location Change")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class LocationChangeEvent extends Event {
+        /** Identifier of the session. */
+        @Label("Session")
+        long sessionId;
+
+        /** The x-coordinate the player left. */
+        @Label("From X")
+        int fromX;
+
+        /** The y-coordinate the player left. */
+        @Label("From Y")
+        int fromY;
+
+        /** The x-coordinate the player arrived at. */
+        @Label("X")
+        int x;
+
+        /** The y-coordinate the player arrived at. */
+        @Label("Y")
+        int y;
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads what one player types, a line at a time.
+ * Every read in the game goes through {@link #readLine()}, so the lines
+ * are all a game depends on besides its seed: with a {@link GameJournal}
+ * attached, each line is recorded before the game acts on it, and feeding
+ * the same lines to a game with the same seed replays it exactly.
+ * <p>
+ * Lines are cut from a byte buffer at {@code \n}, {@code \r\n} or
+ * {@code \r} and decoded as UTF-8, so reading a line costs one scan of its
+ * bytes and one string. The stream is only read when the buffer holds no
+ * complete line, so a game waiting for its player reads nothing ahead.
+ * <p>
+ * A line longer than {@link #MAX_LINE_LENGTH} bytes is cut to that length and
+ * the rest of it is dropped as it arrives, so input that never ends a line
+ * cannot grow the buffer without bound. The cut line matches no command, so
+ * the game answers it as it would any line it does not understand.
+ */
+public final class GameInput {
+    /**
+     * Size of the buffer at first; it grows to hold longer lines. Typed
+     * commands are short, and a game waiting for its player keeps its buffer,
+     * so it is kept small.
+     */
+    private static final int BUFFER_SIZE = 512;
+
+    /** Longest line kept, in bytes; longer lines are cut to this length. */
+    static final int MAX_LINE_LENGTH = 1024;
+
+    /** The player's input. */
+    private final InputStream in;
+
+    /** Bytes read from the input; those from {@link #start} to {@link #end} are not yet used. */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** Index of the first unused byte in the buffer. */
+    private int start;
+
+    /** Index after the last byte in the buffer. */
+    private int end;
+
+    /** Whether the last line ended with {@code \r}, so a {@code \n} right after it ends nothing. */
+    private boolean afterReturn;
+
+    /** Whether the input has ended. */
+    private boolean ended;
+
+    /** Whether a read found no line left, ending the game. */
+    private boolean exhausted;
+
+    /** Number of lines read. */
+    private int linesRead;
+
+    /** Identifier of the session, used to tag journal records. */
+    private final long sessionId;
+
+    /** Records every line read, or null. */
+    private GameJournal journal;
+
+    /** Total time spent in {@link #readLine()}, in nanoseconds. */
+    private long waitNanos;
+
+    /**
+     * @param in        the player's input
+     * @param sessionId identifier of the session reading it
+     */
+    GameInput(InputStream in, long sessionId) {
+        this.in = in;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Starts or stops recording the lines read.
+     *
+     * @param journal the journal, or null to stop recording
+     */
+    void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Reads the next line, waiting for the player if needed.
+     *
+     * @return the line, without its line terminator
+     * @throws NoSuchElementException if the input has ended or cannot be read
+     */
+    public String readLine() {
+        long started = System.nanoTime();
+        String line = nextLine();
+        linesRead++;
+        if (journal != null) {
+            journal.line(sessionId, line);
+        }
+        waitNanos += System.nanoTime() - started;
+        return line;
+    }
+
+    /**
+     * @return number of lines read so far
+     */
+    int getLinesRead() {
+        return linesRead;
+    }
+
+    /**
+     * @return true if the game asked for a line after the input had ended
+     */
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Cuts the next line from the buffer, reading more input until a line
+     * ends or the input does. Once a line is too long, its first
+     * {@link #MAX_LINE_LENGTH} bytes are kept and the rest is dropped.
+     *
+     * @return the line, without its line terminator
+     * @throws NoSuchElementException if the input has ended
+     */
+    private String nextLine() {
+        int scanned = 0; // bytes after start known not to end a line
+        String cut = null; // the kept start of a line that is too long
+        while (true) {
+            if (afterReturn && start < end) {
+                afterReturn = false;
+                if (buffer[start] == '\n') {
+                    start++; // the rest of a \r\n
+                }
+            }
+            for (int i = start + scanned; i < end; i++) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    String line = cut != null ? cut : new String(buffer, start, i - start, StandardCharsets.UTF_8);
+                    start = i + 1;
+                    afterReturn = b == '\r';
+                    return line;
+                }
+            }
+            scanned = end - start;
+            if (cut == null && scanned >= MAX_LINE_LENGTH) {
+                cut = new String(buffer, start, MAX_LINE_LENGTH, StandardCharsets.UTF_8);
+            }
+            if (cut != null) {
+                start = end; // drop the rest of the line read so far
+                scanned = 0;
+            }
+            if (ended || !fill()) {
+                ended = true;
+                if (cut != null) {
+                    return cut;
+                }
+                if (start == end) {
+                    exhausted = true;
+                    throw new NoSuchElementException("No line found");
+                }
+                String line = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+                start = end;
+                return line;
+            }
+        }
+    }
+
+    /**
+     * Reads more input into the buffer, first moving unused bytes to its
+     * front and growing it if they fill it. A failed read ends the input,
+     * as a player who can no longer be heard from has left.
+     *
+     * @return false if the input has ended
+     */
+    private boolean fill() {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            int read;
+            do {
+                read = in.read(buffer, end, buffer.length - end);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            end += read;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the total time this game has spent waiting for the player,
+     * including flushing its output before each wait and, with a journal,
+     * waiting for each line to be forced to disk. Subtracting it from the
+     * time a piece of work took gives the time the game itself spent on it.
+     *
+     * @return nanoseconds spent in {@link #readLine()} so far
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+}
@@ -0,0 +1,322 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only record of every game played in a process: each session's
+ * seed followed by every line its player typed. Since a game is decided
+ * entirely by its seed and its input, {@link #replay(Path)} rebuilds the exact
+ * state of every recorded game, for crash recovery or to reproduce a bug.
+ * <p>
+ * Records from all sessions go into one shared buffer. A single writer
+ * thread writes whatever has accumulated and forces it to disk, and every
+ * session waiting on a record in that batch continues once it is durable.
+ * While one batch is being forced the next one fills up, so a busy server
+ * pays for one disk flush per batch rather than one per line.
+ * <p>
+ * Each record is:
+ *
+ * <pre>
+ * length  (4) of everything after the checksum
+ * CRC-32  (4) of everything after the checksum
+ * session (8)
+ * type    (1) START, LINE or END
+ * payload     START: seed (8); LINE: UTF-8 text; END: nothing
+ * </pre>
+ *
+ * Replaying stops at the first incomplete or damaged record, which is where
+ * a crash interrupted the journal.
+ * <p>
+ * A journal reopened after a restart holds games from several processes,
+ * whose session identifiers each start over. Identifiers are only unique among
+ * the games running at one time, so replay starts a new game at every START
+ * record, and each later LINE for that identifier belongs to it, up to its END.
+ */
+public final class GameJournal implements AutoCloseable {
+    /** A session started; the payload is its seed. */
+    private static final byte START = 1;
+
+    /** A session read a line; the payload is the line. */
+    private static final byte LINE = 2;
+
+    /** A session ended. */
+    private static final byte END = 3;
+
+    /** Bytes before a record's payload. */
+    private static final int RECORD_HEADER = 4 + 4 + 8 + 1;
+
+    /** The journal file, opened for appending. */
+    private final FileChannel channel;
+
+    /** Guards the buffers and counters below. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signalled when records are appended or the journal closes. */
+    private final Condition appended = lock.newCondition();
+
+    /** Signalled when a batch has been forced to disk. */
+    private final Condition forced = lock.newCondition();
+
+    /** Records waiting for the next batch. */
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+
+    /** The buffer of the batch being written, swapped with {@link #pending}. */
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+
+    /** Number of records appended so far. */
+    private long appendedCount;
+
+    /** Number of records forced to disk so far. */
+    private long durableCount;
+
+    /** Whether {@link #close()} has been called. */
+    private boolean closed;
+
+    /** Why writing failed, or null. */
+    private IOException failure;
+
+    /** Writes and forces batches. */
+    private final Thread writer;
+
+    /** Computes record checksums; only used while holding the lock. */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Opens a journal, appending to it if it already exists.
+     *
+     * @param path the journal file
+     * @throws IOException if the file cannot be opened
+     */
+    public GameJournal(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.writer = Thread.ofPlatform().name("game-journal").daemon().start(this::writeBatches);
+    }
+
+    /**
+     * Records that a session started.
+     *
+     * @param session identifier of the session
+     * @param seed    the seed of the session's random stream
+     */
+    public void start(long session, long seed) {
+        ByteBuffer payload = ByteBuffer.allocate(8).putLong(0, seed);
+        append(session, START, payload.array());
+    }
+
+    /**
+     * Records a line a session read, returning once it is on disk.
+     *
+     * @param session identifier of the session
+     * @param line    the line
+     */
+    public void line(long session, String line) {
+        append(session, LINE, line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Records that a session ended.
+     *
+     * @param session identifier of the session
+     */
+    public void end(long session) {
+        append(session, END, new byte[0]);
+    }
+
+    /**
+     * Adds a record to the next batch and waits until the batch is on disk.
+     *
+     * @param session identifier of the session
+     * @param type    the record type
+     * @param payload the record payload
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    private void append(long session, byte type, byte[] payload) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            int size = RECORD_HEADER + payload.length;
+            if (pending.remaining() < size) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+                pending.flip();
+                pending = bigger.put(pending);
+            }
+            int start = pending.position();
+            pending.putInt(size - 8).putInt(0).putLong(session).put(type).put(payload);
+            crc.reset();
+            crc.update(pending.array(), start + 8, size - 8);
+            pending.putInt(start + 4, (int) crc.getValue());
+
+            long record = ++appendedCount;
+            appended.signal();
+            while (durableCount < record && failure == null) {
+                forced.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs on the writer thread: writes and forces each batch of records.
+     */
+    private void writeBatches() {
+        while (true) {
+            long batchEnd;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                batchEnd = appendedCount;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            writing.clear();
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableCount = batchEnd;
+                }
+                forced.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining records and closes the journal.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Replays every game in a journal without any output and returns the
+     * games in the order they started. Each game is left in the state it
+     * reached after its last recorded line.
+     * <p>
+     * A game whose player used the load command replays correctly only if
+     * its save file is unchanged.
+     *
+     * @param path the journal file
+     * @return the rebuilt games, in the order they started; a session
+     *         identifier appears more than once if the journal holds games
+     *         from several runs of the process
+     * @throws IOException if the journal cannot be read
+     */
+    public static List<GameSession> replay(Path path) throws IOException {
+        ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(path));
+        List<Long> sessions = new ArrayList<>();
+        List<Long> seeds = new ArrayList<>();
+        List<ByteArrayOutputStream> inputs = new ArrayList<>();
+        Map<Long, ByteArrayOutputStream> running = new HashMap<>(); // input of each session not yet ended
+        CRC32 crc = new CRC32();
+
+        while (journal.remaining() >= RECORD_HEADER) {
+            int start = journal.position();
+            int length = journal.getInt(start);
+            if (length < RECORD_HEADER - 8 || length > journal.remaining() - 8) {
+                break; // torn write at the end of the journal
+            }
+            crc.reset();
+            crc.update(journal.array(), start + 8, length);
+            if ((int) crc.getValue() != journal.getInt(start + 4)) {
+                break;
+            }
+            long session = journal.getLong(start + 8);
+            byte type = journal.get(start + 16);
+            int payload = start + RECORD_HEADER;
+            int payloadLength = length - (RECORD_HEADER - 8);
+            switch (type) {
+                case START -> {
+                    ByteArrayOutputStream input = new ByteArrayOutputStream();
+                    sessions.add(session);
+                    seeds.add(journal.getLong(payload));
+                    inputs.add(input);
+                    running.put(session, input);
+                }
+                case LINE -> {
+                    ByteArrayOutputStream input = running.get(session);
+                    if (input != null) {
+                        input.write(journal.array(), payload, payloadLength);
+                        input.write('\n');
+                    }
+                }
+                default -> {
+                    // END frees the identifier; the game's replay stops when its input runs out
+                    running.remove(session);
+                }
+            }
+            journal.position(start + 8 + length);
+        }
+
+        List<GameSession> games = new ArrayList<>(sessions.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            GameSession game = new GameSession(sessions.get(i), new GameRandom(seeds.get(i)),
+                    new ByteArrayInputStream(inputs.get(i).toByteArray()), OutputStream.nullOutputStream());
+            game.run();
+            games.add(game);
+        }
+        return games;
+    }
+}
@@ -1,108 +1,115 @@
-
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.random.RandomGenerator;
 
 /**
  * This class represents the game map, which consists of a grid of locations.
+ * The layout of the world is a {@link WorldTemplate} shared by every game;
+ * a map only stores the changes its own game has made, in a copy-on-write
+ * {@link WorldOverlay}, so a freshly started map takes a few dozen bytes.
+ * A map over a {@link SharedWorld} keeps no changes of its own: it reads and
+ * changes the world's, which every game in the world sees.
  * 
  * @author Ricky Nguyen
  */
 public class GameMap {
         /**
-         * A 2D array representing the map of locations.
+         * The shared layout of the world.
          * The coordinate system uses [x][y] where:
-         * - x increases going east (0-4)
-         * - y increases going north (0-4)
+         * - x increases going east (0 to width - 1)
+         * - y increases going north (0 to height - 1)
          */
-        private final Location[][] map;
+        private final WorldTemplate template;
 
         /**
-         * Constructor to initialize the game map with default locations.
+         * Picks which empty-space description each cell of this map shows.
+         */
+        private long descriptionSeed;
+
+        /**
+         * The changes this game has made to the template.
+         */
+        private WorldOverlay overlay = WorldOverlay.EMPTY;
+
+        /**
+         * The world whose changes this map shows, or null if it shows its own.
+         */
+        private final SharedWorld world;
+
+        /**
+         * Index of the cells holding items, hostility or untriggered events,
+         * built on the first query and then kept up to date as cells change,
+         * or null before then.
+         */
+        private PointsOfInterest pointsOfInterest;
+
+        /**
+         * The shared world's change count {@link #pointsOfInterest} is up to
+         * date with; the cells changed since are looked at again on the next
+         * query.
+         */
+        private int indexedChanges;
+
+        /**
+         * This game's copy of the map drawing, or null before the first
+         * {@code map} command. Only the cells the player left and entered are
+         * redrawn between commands.
+         */
+        private byte[] frame;
+
+        /**
+         * Leftmost x-coordinate and bottom y-coordinate drawn in {@link #frame}.
+         */
+        private int frameX, frameY;
+
+        /**
+         * Where the player marker is drawn in {@link #frame}.
+         */
+        private int markerX, markerY;
+
+        /**
+         * Constructor to initialize the game map with default locations, using a
+         * freshly seeded random stream.
          */
         public GameMap() {
-                map = new Location[5][5];
-                Random random = new java.util.Random();
-                for (int i = 0; i < 5; i++) {
-                        for (int j = 0; j < 5; j++) {
-                                map[i][j] = new Location("Empty Space", "You are drifting through empty space.", false);
-                                int variation = random.nextInt(3);
-                                switch (variation) { // randomize descriptions
-                                        case 0 -> map[i][j].setLongDescription(
-                                                        "There is nothing of interest here. Just the cold, silent void of space.");
-                                        case 1 -> map[i][j].setLongDescription(
-                                                        "Just a vast, empty void. You see nothing but darkness and distant stars.");
-                                        case 2 -> map[i][j].setLongDescription(
-                                                        "You drift through space with nothing but your own breath and the ship's hum for company.");
-                                }
-                        }
-                }
+                this(GameRandom.newSession().generator());
+        }
+
+        /**
+         * Constructor to initialize the game map with default locations.
+         *
+         * @param random the game's random stream, used to vary the descriptions
+         *               of empty space
+         */
+        public GameMap(RandomGenerator random) {
+                this(WorldTemplate.DEFAULT, random.nextLong());
+        }
 
-                // Planets
-                Location eridani = new Location(
-                                "Eridani",
-                                "A harsh desert wasteland under a blood-red sky.", true);
-                eridani.setLongDescription(
-                                "Grand General Zig's forces patrol the dunes.\nYou can trade an Ore Chunk with him for the warp drive fragment.\nAlternatively, there are less amicable ways to get it...");
-                map[2][4] = eridani;
-
-                Location ixyll = new Location(
-                                "Ixyll",
-                                "Dense jungle vines obscure your path.", true);
-                ixyll.setLongDescription(
-                                "The air hums with energy.\nZep Zop, a tribal warrior, defends the jungle.\nDefeating him grants a mysterious fruit and a warp drive fragment.");
-                map[0][3] = ixyll;
-
-                Location strix = new Location(
-                                "Strix",
-                                "Freezing winds howl across a barren tundra.", true);
-                strix.setLongDescription(
-                                "Mastermind lurks within a ruined facility.\nEntertain his musings for a special reward.\nVictory yields a warp drive fragment.");
-                map[1][1] = strix;
-
-                Location ternion = new Location(
-                                "Ternion",
-                                "Ruins of a once-thriving city now echo with silence.", true);
-                ternion.setLongDescription(
-                                "A Rogue Droid stalks the alleys.\nIts defeat is the only way to claim the warp drive fragment hidden here.");
-                map[4][0] = ternion;
-
-                // Points of Interest
-                Location station = new Location(
-                                "Abandoned Space Station",
-                                "You see the remains of an abandoned space station drifting silently.", false);
-                station.setLongDescription(
-                                "A dormant AI terminal blinks faintly.\nPower couplings near the entrance suggest this station needs an energy source.\nFaded text on the hull reads 'ARMORY - AUTHORIZED PERSONNEL ONLY'.");
-                map[2][3] = station;
-
-                Location asteroid = new Location(
-                                "Asteroid",
-                                "Jagged rocks surround a mining site carved into the asteroid's crust.", false);
-                asteroid.setLongDescription(
-                                "Laser drills hum quietly.\nRich ore veins glint beneath the surface, promising valuable resources.");
-                asteroid.setHasItem(true);
-                asteroid.setItem(new Items("Ore Chunk"));
-                map[4][2] = asteroid;
-
-                Location jungleMoon = new Location(
-                                "Jungle Moon",
-                                "Thick underbrush and alien chirps define the moon's surface.", false);
-                jungleMoon.setLongDescription(
-                                "The Feral Hermit watches from the shadows.\nHe seems open to trading a Fruit for a Shield Module.");
-                map[4][3] = jungleMoon;
-
-                Location monolith = new Location(
-                                "Mysterious Monolith",
-                                "A tall, obsidian structure pulses with otherworldly light.", false);
-                monolith.setLongDescription(
-                                "Etched glyphs hint at a riddle.\nAnswering it may unlock the key to a hidden gate.");
-                map[3][1] = monolith;
-
-                Location riftGate = new Location(
-                                "Rift Gate",
-                                "A swirling vortex pulses with dark energy.", true);
-                riftGate.setLongDescription(
-                                "The final challenge awaits.\nOnly those with the Gate Key may face Emperor Poutine and end his corruption.");
-                map[0][0] = riftGate;
+        /**
+         * Constructor to initialize a game map over any world template.
+         *
+         * @param template        the shared layout of the world
+         * @param descriptionSeed picks which empty-space description each cell
+         *                        shows
+         */
+        public GameMap(WorldTemplate template, long descriptionSeed) {
+                this.template = template;
+                this.descriptionSeed = descriptionSeed;
+                this.world = null;
+        }
 
+        /**
+         * Constructor to initialize one player's view of a shared world.
+         *
+         * @param world           the world, whose changes the map shows
+         * @param descriptionSeed picks which empty-space description each cell
+         *                        shows
+         */
+        public GameMap(SharedWorld world, long descriptionSeed) {
+                this.template = world.getTemplate();
+                this.descriptionSeed = descriptionSeed;
+                this.world = world;
         }
 
         /**
@@ -113,29 +120,289 @@ public class GameMap {
          * @return The location at the specified coordinates, or null if out of bounds.
          */
         public Location getLocation(int x, int y) {
-                if (x >= 0 && x < 5 && y >= 0 && y < 5) {
-                        return map[x][y];
+                if (template.contains(x, y)) {
+                        return new Location(this, template.cell(x, y));
                 } else {
                         return null;
                 }
         }
 
+        /**
+         * Checks whether coordinates are on the map.
+         *
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         * @return true if there is a location at the coordinates
+         */
+        public boolean contains(int x, int y) {
+                return template.contains(x, y);
+        }
+
+        /**
+         * @return the shared layout of the world
+         */
+        public WorldTemplate getTemplate() {
+                return template;
+        }
+
+        /**
+         * @return the world this map shows, or null if the map keeps its own
+         *         changes
+         */
+        public SharedWorld getWorld() {
+                return world;
+        }
+
+        /**
+         * @return the changes this game has made to the template; none for a
+         *         map over a shared world, whose changes belong to the world
+         */
+        WorldOverlay getOverlay() {
+                return overlay;
+        }
+
+        /**
+         * Returns the changes to a cell.
+         *
+         * @param cell the cell number
+         * @return an overlay holding the cell's changes, if any
+         */
+        WorldOverlay getOverlay(int cell) {
+                return world != null ? world.overlay(cell) : overlay;
+        }
+
+        /**
+         * Changes one cell, unless its current state rules the change out. In
+         * a shared world the check and the change are made together, so no
+         * other player can change the cell in between.
+         *
+         * @param cell   the cell number
+         * @param change given the overlay holding the cell, returns the changed
+         *               overlay, or the same overlay to change nothing
+         * @return true if the cell was changed
+         */
+        boolean update(int cell, UnaryOperator<WorldOverlay> change) {
+                if (world != null) {
+                        return world.update(cell, change);
+                }
+                WorldOverlay updated = change.apply(overlay);
+                if (updated == overlay) {
+                        return false;
+                }
+                setOverlay(updated, cell);
+                return true;
+        }
+
+        /**
+         * Replaces the changes this game has made to the template, as when a
+         * saved game is restored.
+         *
+         * @param overlay the new overlay
+         */
+        void setOverlay(WorldOverlay overlay) {
+                this.overlay = overlay;
+                this.pointsOfInterest = null;
+        }
+
+        /**
+         * Replaces the changes this game has made to the template after one
+         * cell has changed.
+         *
+         * @param overlay the new overlay
+         * @param cell    the cell number that changed
+         */
+        void setOverlay(WorldOverlay overlay, int cell) {
+                this.overlay = overlay;
+                if (pointsOfInterest != null) {
+                        pointsOfInterest.update(cell, interest(cell));
+                }
+        }
+
+        /**
+         * Finds the nearest location holding something of interest. Distances
+         * are counted in jumps; of locations equally near, the one furthest
+         * west, then south, wins.
+         *
+         * @param x     The x-coordinate searched from.
+         * @param y     The y-coordinate searched from.
+         * @param kinds The kinds of interest wanted, a combination of
+         *              {@link PointsOfInterest#ITEM},
+         *              {@link PointsOfInterest#HOSTILE} and
+         *              {@link PointsOfInterest#EVENT}.
+         * @return The location, or null if there is none.
+         */
+        public Location findNearest(int x, int y, int kinds) {
+                int cell = pointsOfInterest().nearest(x, y, kinds);
+                return cell >= 0 ? new Location(this, cell) : null;
+        }
+
+        /**
+         * Finds the nearest location other than the one searched from that
+         * holds something of interest, as for
+         * {@link #findNearest(int, int, int)}.
+         *
+         * @param x     The x-coordinate searched from.
+         * @param y     The y-coordinate searched from.
+         * @param kinds The kinds of interest wanted.
+         * @return The location, or null if there is none.
+         */
+        public Location findNearestOther(int x, int y, int kinds) {
+                int cell = pointsOfInterest().nearest(x, y, kinds, template.cell(x, y));
+                return cell >= 0 ? new Location(this, cell) : null;
+        }
+
+        /**
+         * Finds the locations within a number of jumps holding something of
+         * interest.
+         *
+         * @param x      The x-coordinate searched from.
+         * @param y      The y-coordinate searched from.
+         * @param radius The greatest number of jumps.
+         * @param kinds  The kinds of interest wanted, as for
+         *               {@link #findNearest(int, int, int)}.
+         * @return The locations, nearest first.
+         */
+        public List<Location> findWithin(int x, int y, int radius, int kinds) {
+                int[] cells = pointsOfInterest().within(x, y, radius, kinds);
+                List<Location> locations = new ArrayList<>(cells.length);
+                for (int cell : cells) {
+                        locations.add(new Location(this, cell));
+                }
+                return locations;
+        }
+
+        /**
+         * Returns what makes a cell interesting now.
+         *
+         * @param cell the cell number
+         * @return a combination of {@link PointsOfInterest#ITEM},
+         *         {@link PointsOfInterest#HOSTILE} and
+         *         {@link PointsOfInterest#EVENT}, or 0
+         */
+        int interest(int cell) {
+                Location location = new Location(this, cell);
+                int kinds = 0;
+                if (location.hasItem()) {
+                        kinds |= PointsOfInterest.ITEM;
+                }
+                if (location.isHostile()) {
+                        kinds |= PointsOfInterest.HOSTILE;
+                }
+                if (location.hasEvent() && !location.isEventTriggered()) {
+                        kinds |= PointsOfInterest.EVENT;
+                }
+                return kinds;
+        }
+
+        /**
+         * Returns the index of interesting cells, building it from the
+         * template's places and this game's changes if need be. Generated
+         * space holds nothing of interest, so no other cell needs looking at.
+         * In a shared world the cells anyone has changed since the last query
+         * are updated one by one, and the index is rebuilt only if there have
+         * been more changes than the world keeps.
+         *
+         * @return the index
+         */
+        private PointsOfInterest pointsOfInterest() {
+                int changes = world != null ? world.getChanges() : 0;
+                if (pointsOfInterest != null && changes != indexedChanges) {
+                        PointsOfInterest index = pointsOfInterest;
+                        if (!world.forEachChangeSince(indexedChanges, changes, cell -> index.update(cell, interest(cell)))) {
+                                pointsOfInterest = null;
+                        }
+                        indexedChanges = changes;
+                }
+                if (pointsOfInterest == null) {
+                        PointsOfInterest index = new PointsOfInterest(template.getWidth(), template.getHeight());
+                        for (int i = 0; i < template.getPlaceCount(); i++) {
+                                int cell = template.getPlaceCell(i);
+                                index.update(cell, interest(cell));
+                        }
+                        if (world != null) {
+                                world.forEachChangedCell(cell -> index.update(cell, interest(cell)));
+                        } else {
+                                for (int i = 0; i < overlay.size(); i++) {
+                                        int cell = overlay.cellAt(i);
+                                        index.update(cell, interest(cell));
+                                }
+                        }
+                        pointsOfInterest = index;
+                        indexedChanges = changes;
+                }
+                return pointsOfInterest;
+        }
+
+        /**
+         * @return the seed picking which empty-space description each cell shows
+         */
+        long getDescriptionSeed() {
+                return descriptionSeed;
+        }
+
+        /**
+         * Changes which empty-space descriptions the map shows, when a saved
+         * game is restored.
+         *
+         * @param descriptionSeed the saved seed
+         */
+        void setDescriptionSeed(long descriptionSeed) {
+                this.descriptionSeed = descriptionSeed;
+        }
+
+        /**
+         * Returns the empty-space description this map shows for a cell. The
+         * choice is derived from the map's seed, so it needs no storage.
+         *
+         * @param cell the cell number
+         * @return the long description
+         */
+        String emptySpaceDescription(int cell) {
+                String[] variants = WorldTemplate.EMPTY_SPACE_DESCRIPTIONS;
+                long hash = GameRandom.mix64(descriptionSeed + cell);
+                return variants[(int) Long.remainderUnsigned(hash, variants.length)];
+        }
+
         /**
          * Prints the game map, showing the player's position.
+         * Maps too big to show whole are drawn as a window around the player.
          *
          * @param player The player whose position is displayed on the map.
+         * @param out    The output the map is written to.
          */
-        public void printMap(Player player) {
-                for (int y = 4; y >= 0; y--) {
-                        System.out.println();
-                        for (int x = 0; x < 5; x++) {
-                                if (x == player.getX() && y == player.getY()) {
-                                        System.out.print("[ P ] ");
-                                } else {
-                                        System.out.print("[" + x + "," + y + "] ");
-                                }
+        public void printMap(Player player, GameOutput out) {
+                MapFrame layout = template.getMapFrame();
+                int x = player.getX(), y = player.getY();
+                int originX = layout.originX(x), originY = layout.originY(y);
+                if (frame == null || originX != frameX || originY != frameY) {
+                        if (frame == null) {
+                                frame = new byte[layout.size()];
                         }
-                        System.out.println();
+                        layout.render(originX, originY, frame);
+                        frameX = originX;
+                        frameY = originY;
+                } else if (markerX != x || markerY != y) {
+                        layout.drawCell(frameX, frameY, markerX, markerY, frame);
+                }
+                layout.drawPlayer(frameX, frameY, x, y, frame);
+                markerX = x;
+                markerY = y;
+
+                if (layout.isClipped()) {
+                        out.println();
+                        out.print("Showing x ");
+                        out.print(originX);
+                        out.print('-');
+                        out.print(originX + layout.getViewWidth() - 1);
+                        out.print(", y ");
+                        out.print(originY);
+                        out.print('-');
+                        out.print(originY + layout.getViewHeight() - 1);
+                        out.print(" of ");
+                        out.print(template.getWidth());
+                        out.print('x');
+                        out.println(template.getHeight());
                 }
+                out.write(frame, 0, frame.length);
         }
 }
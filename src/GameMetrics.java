@@ -0,0 +1,446 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Measures how the games in this process are played: how long each command
+ * and each combat round takes to process, and how often fights are won, fled
+ * and lost, Stimpacks used, items taken and puzzles solved.
+ * <p>
+ * Durations leave out time spent waiting for the player and for the journal to
+ * record what they typed, see {@link GameInput#getWaitNanos()}, so they
+ * measure the game rather than the player or the disk. Recording takes no
+ * locks and allocates nothing: every histogram is split into stripes chosen by
+ * thread, so threads running at the same time rarely touch the same counters,
+ * and the stripes are only added together when someone reads them.
+ * <p>
+ * {@link #install()} publishes the measurements as platform MBeans under
+ * {@code galacticdawn:*} and, if the system property
+ * {@code galacticdawn.metrics.interval} is a number of seconds, logs a
+ * summary line that often.
+ */
+public final class GameMetrics {
+    /**
+     * Events counted.
+     */
+    public enum Counter {
+        /** A fight started. */
+        FIGHTS,
+        /** A fight ended with the enemy defeated. */
+        COMBAT_WINS,
+        /** A fight ended with the player escaping. */
+        ESCAPES,
+        /** A fight ended with the player dead. */
+        DEATHS,
+        /** A Stimpack was used, in a fight or with the heal command. */
+        STIMPACKS_USED,
+        /** An item was picked up with the take command. */
+        ITEMS_TAKEN,
+        /** A puzzle was solved. */
+        PUZZLES_SOLVED,
+        /** A line at the main prompt was not a command. */
+        INVALID_COMMANDS
+    }
+
+    /**
+     * Latency of one kind of work, as published over JMX.
+     */
+    public interface LatencyMXBean {
+        /**
+         * @return number of times the work was done
+         */
+        long getCount();
+
+        /**
+         * @return mean time taken in nanoseconds
+         */
+        long getMeanNanos();
+
+        /**
+         * @return median time taken in nanoseconds
+         */
+        long getP50Nanos();
+
+        /**
+         * @return 90th percentile of the time taken in nanoseconds
+         */
+        long getP90Nanos();
+
+        /**
+         * @return 99th percentile of the time taken in nanoseconds
+         */
+        long getP99Nanos();
+
+        /**
+         * @return 99.9th percentile of the time taken in nanoseconds
+         */
+        long getP999Nanos();
+
+        /**
+         * @return longest time taken in nanoseconds
+         */
+        long getMaxNanos();
+    }
+
+    /**
+     * The event counts, as published over JMX.
+     */
+    public interface CountersMXBean {
+        /**
+         * @return number of commands run at the main prompt
+         */
+        long getCommands();
+
+        /**
+         * @return number of fights started
+         */
+        long getFights();
+
+        /**
+         * @return number of fights won
+         */
+        long getCombatWins();
+
+        /**
+         * @return number of fights the player escaped
+         */
+        long getEscapes();
+
+        /**
+         * @return number of fights the player died in
+         */
+        long getDeaths();
+
+        /**
+         * @return number of Stimpacks used
+         */
+        long getStimpacksUsed();
+
+        /**
+         * @return number of items taken
+         */
+        long getItemsTaken();
+
+        /**
+         * @return number of puzzles solved
+         */
+        long getPuzzlesSolved();
+
+        /**
+         * @return number of lines at the main prompt that were not commands
+         */
+        long getInvalidCommands();
+    }
+
+    /** Histograms per kind of work; a power of two. */
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1);
+
+    /** The commands, indexed by ordinal. */
+    private static final Command[] COMMANDS = Command.values();
+
+    /** Processing time of each command, by command ordinal, then stripe. */
+    private static final LatencyHistogram[][] COMMAND_LATENCY = new LatencyHistogram[COMMANDS.length][STRIPES];
+
+    /** Processing time of each combat round, by stripe. */
+    private static final LatencyHistogram[] ROUND_LATENCY = new LatencyHistogram[STRIPES];
+
+    /** The event counts, by counter ordinal. */
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+    /** System property holding the seconds between summary log lines. */
+    private static final String INTERVAL_PROPERTY = "galacticdawn.metrics.interval";
+
+    /** Domain of the published MBeans. */
+    private static final String DOMAIN = "galacticdawn";
+
+    /** Whether {@link #install()} has run. */
+    private static boolean installed;
+
+    static {
+        for (LatencyHistogram[] stripes : COMMAND_LATENCY) {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new LatencyHistogram();
+            }
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            ROUND_LATENCY[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Prevents instantiation.
+     */
+    private GameMetrics() {
+    }
+
+    /**
+     * Records how long a command took.
+     *
+     * @param command the command
+     * @param nanos   the time taken in nanoseconds
+     */
+    public static void commandCompleted(Command command, long nanos) {
+        COMMAND_LATENCY[command.ordinal()][stripe()].record(nanos);
+    }
+
+    /**
+     * Records how long a combat round took.
+     *
+     * @param nanos the time taken in nanoseconds
+     */
+    public static void roundCompleted(long nanos) {
+        ROUND_LATENCY[stripe()].record(nanos);
+    }
+
+    /**
+     * Counts one event.
+     *
+     * @param counter the event
+     */
+    public static void increment(Counter counter) {
+        COUNTERS[counter.ordinal()].increment();
+    }
+
+    /**
+     * Counts the end of a fight.
+     *
+     * @param outcome how the fight ended
+     */
+    public static void combatEnded(CombatOutcome outcome) {
+        increment(switch (outcome) {
+            case WIN -> Counter.COMBAT_WINS;
+            case FLEE -> Counter.ESCAPES;
+            case DEATH -> Counter.DEATHS;
+        });
+    }
+
+    /**
+     * @param command a command
+     * @return the command's processing times so far, merged into a new histogram
+     */
+    public static LatencyHistogram commandLatency(Command command) {
+        return merge(COMMAND_LATENCY[command.ordinal()]);
+    }
+
+    /**
+     * @return the combat rounds' processing times so far, merged into a new
+     *         histogram
+     */
+    public static LatencyHistogram roundLatency() {
+        return merge(ROUND_LATENCY);
+    }
+
+    /**
+     * @param counter an event
+     * @return how many times it has happened
+     */
+    public static long count(Counter counter) {
+        return COUNTERS[counter.ordinal()].sum();
+    }
+
+    /**
+     * Publishes the measurements as platform MBeans and starts the summary log
+     * if {@code galacticdawn.metrics.interval} is set. Only the first call has
+     * any effect.
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Command command : COMMANDS) {
+                server.registerMBean(new Latency(COMMAND_LATENCY[command.ordinal()]), new ObjectName(DOMAIN
+                        + ":type=CommandLatency,command=" + command.name().toLowerCase(Locale.ROOT)));
+            }
+            server.registerMBean(new Latency(ROUND_LATENCY), new ObjectName(DOMAIN + ":type=CombatRoundLatency"));
+            server.registerMBean(new Counters(), new ObjectName(DOMAIN + ":type=GameCounters"));
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not publish game metrics", e);
+        }
+
+        long interval = Long.getLong(INTERVAL_PROPERTY, 0);
+        if (interval > 0) {
+            System.Logger log = System.getLogger(GameMetrics.class.getName());
+            Thread.ofPlatform().name("game-metrics").daemon().start(() -> {
+                while (true) {
+                    try {
+                        Thread.sleep(interval * 1000);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    log.log(System.Logger.Level.INFO, summary());
+                }
+            });
+        }
+    }
+
+    /**
+     * Describes the measurements so far on one line: each command that has
+     * run with its count, median and 99th percentile, the same for combat
+     * rounds, then the event counts.
+     *
+     * @return the summary
+     */
+    public static String summary() {
+        StringBuilder line = new StringBuilder("commands:");
+        for (Command command : COMMANDS) {
+            LatencyHistogram latency = commandLatency(command);
+            if (latency.getCount() > 0) {
+                appendLatency(line.append(' ').append(command.name().toLowerCase(Locale.ROOT)), latency);
+            }
+        }
+        appendLatency(line.append(" | rounds"), roundLatency());
+        line.append(" |");
+        for (Counter counter : Counter.values()) {
+            line.append(' ').append(counter.name().toLowerCase(Locale.ROOT)).append('=').append(count(counter));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Appends a histogram's count, median and 99th percentile.
+     *
+     * @param line    the line being built
+     * @param latency the histogram
+     */
+    private static void appendLatency(StringBuilder line, LatencyHistogram latency) {
+        line.append(" n=").append(latency.getCount())
+                .append(" p50=").append(latency.getValueAtPercentile(50)).append("ns")
+                .append(" p99=").append(latency.getValueAtPercentile(99)).append("ns");
+    }
+
+    /**
+     * @return the stripe the current thread records into
+     */
+    private static int stripe() {
+        return (int) Thread.currentThread().threadId() & (STRIPES - 1);
+    }
+
+    /**
+     * Adds stripes together.
+     *
+     * @param stripes the stripes of one kind of work
+     * @return a new histogram holding every value recorded in them
+     */
+    private static LatencyHistogram merge(LatencyHistogram[] stripes) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram stripe : stripes) {
+            merged.add(stripe);
+        }
+        return merged;
+    }
+
+    /**
+     * Publishes the latency of one kind of work. Each attribute read merges
+     * the stripes afresh.
+     */
+    private static class Latency implements LatencyMXBean {
+        /** The stripes of the work's histogram. */
+        private final LatencyHistogram[] stripes;
+
+        /**
+         * @param stripes the stripes of the work's histogram
+         */
+        Latency(LatencyHistogram[] stripes) {
+            this.stripes = stripes;
+        }
+
+        @Override
+        public long getCount() {
+            return merge(stripes).getCount();
+        }
+
+        @Override
+        public long getMeanNanos() {
+            return merge(stripes).getMean();
+        }
+
+        @Override
+        public long getP50Nanos() {
+            return merge(stripes).getValueAtPercentile(50);
+        }
+
+        @Override
+        public long getP90Nanos() {
+            return merge(stripes).getValueAtPercentile(90);
+        }
+
+        @Override
+        public long getP99Nanos() {
+            return merge(stripes).getValueAtPercentile(99);
+        }
+
+        @Override
+        public long getP999Nanos() {
+            return merge(stripes).getValueAtPercentile(99.9);
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return merge(stripes).getMax();
+        }
+    }
+
+    /**
+     * Publishes the event counts.
+     */
+    private static class Counters implements CountersMXBean {
+        @Override
+        public long getCommands() {
+            long commands = 0;
+            for (Command command : COMMANDS) {
+                commands += merge(COMMAND_LATENCY[command.ordinal()]).getCount();
+            }
+            return commands;
+        }
+
+        @Override
+        public long getFights() {
+            return count(Counter.FIGHTS);
+        }
+
+        @Override
+        public long getCombatWins() {
+            return count(Counter.COMBAT_WINS);
+        }
+
+        @Override
+        public long getEscapes() {
+            return count(Counter.ESCAPES);
+        }
+
+        @Override
+        public long getDeaths() {
+            return count(Counter.DEATHS);
+        }
+
+        @Override
+        public long getStimpacksUsed() {
+            return count(Counter.STIMPACKS_USED);
+        }
+
+        @Override
+        public long getItemsTaken() {
+            return count(Counter.ITEMS_TAKEN);
+        }
+
+        @Override
+        public long getPuzzlesSolved() {
+            return count(Counter.PUZZLES_SOLVED);
+        }
+
+        @Override
+        public long getInvalidCommands() {
+            return count(Counter.INVALID_COMMANDS);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Collects the text one game shows its player and writes it to the game's
+ * sink in one go.
+ * Text is encoded as UTF-8 straight into a reusable byte buffer and numbers
+ * are written digit by digit, so printing allocates nothing. The buffer is
+ * written out when the game calls {@link #flush()}, which the game loop does
+ * once per turn and {@link GameSession} does before waiting for input, or
+ * earlier if the buffer fills up. A game that hibernates gives its empty
+ * buffer back with {@link #release()} and takes a new one when it next prints.
+ * <p>
+ * Like {@link java.io.PrintStream}, printing never throws; a failed write is
+ * remembered and reported by {@link #checkError()}, after which the rest of
+ * the game's output is dropped.
+ */
+public final class GameOutput {
+    /** Size of the buffer; a turn's text almost always fits. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Line separator, encoded. */
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /** Where the text goes. */
+    private final OutputStream sink;
+
+    /** Encoded text not yet written to the sink; null while released. */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** Number of bytes in the buffer. */
+    private int count;
+
+    /** Whether a write to the sink has failed. */
+    private boolean error;
+
+    /**
+     * @param sink where the text goes, e.g. the console, a socket or
+     *             {@link OutputStream#nullOutputStream()}
+     */
+    public GameOutput(OutputStream sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Prints text.
+     *
+     * @param text the text; null prints "null"
+     */
+    public void print(String text) {
+        if (text == null) {
+            text = "null";
+        }
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buffer[count++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+            }
+        }
+    }
+
+    /**
+     * Prints a character.
+     *
+     * @param c the character
+     */
+    public void print(char c) {
+        if (c < 0x80) {
+            ensure(1);
+            buffer[count++] = (byte) c;
+        } else {
+            writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+        }
+    }
+
+    /**
+     * Prints a number in decimal.
+     *
+     * @param value the number
+     */
+    public void print(int value) {
+        ensure(11);
+        if (value < 0) {
+            buffer[count++] = '-';
+        } else {
+            value = -value; // work with negatives so MIN_VALUE fits
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = count + digits;
+        for (int i = end - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' - value % 10);
+            value /= 10;
+        }
+        count = end;
+    }
+
+    /**
+     * Prints bytes that are already UTF-8 text.
+     *
+     * @param bytes  the bytes
+     * @param offset index of the first byte
+     * @param length number of bytes
+     */
+    public void write(byte[] bytes, int offset, int length) {
+        ensure(0);
+        if (length > buffer.length - count) {
+            drain();
+            if (length > buffer.length) {
+                if (!error) {
+                    try {
+                        sink.write(bytes, offset, length);
+                    } catch (IOException e) {
+                        error = true;
+                    }
+                }
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Ends the current line.
+     */
+    public void println() {
+        ensure(LINE_SEPARATOR.length);
+        System.arraycopy(LINE_SEPARATOR, 0, buffer, count, LINE_SEPARATOR.length);
+        count += LINE_SEPARATOR.length;
+    }
+
+    /**
+     * Prints text and ends the line.
+     *
+     * @param text the text
+     */
+    public void println(String text) {
+        print(text);
+        println();
+    }
+
+    /**
+     * Prints a number and ends the line.
+     *
+     * @param value the number
+     */
+    public void println(int value) {
+        print(value);
+        println();
+    }
+
+    /**
+     * Writes everything printed so far to the sink and flushes it.
+     */
+    public void flush() {
+        drain();
+        if (!error) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                error = true;
+            }
+        }
+    }
+
+    /**
+     * Drops the buffer while the game is idle, so a hibernated game holds no
+     * buffer. The next print takes a new one. Must only be called when
+     * everything printed has been flushed and the game is not printing.
+     */
+    void release() {
+        if (count == 0) {
+            buffer = null;
+        }
+    }
+
+    /**
+     * Flushes the output and tells whether writing to the sink ever failed,
+     * for example because the player disconnected.
+     *
+     * @return true if a write has failed
+     */
+    public boolean checkError() {
+        flush();
+        return error;
+    }
+
+    /**
+     * Encodes a code point of two to four bytes.
+     *
+     * @param codePoint the code point, at least 0x80
+     */
+    private void writeCodePoint(int codePoint) {
+        ensure(4);
+        if (codePoint < 0x800) {
+            buffer[count++] = (byte) (0xC0 | codePoint >> 6);
+        } else if (codePoint < 0x10000) {
+            buffer[count++] = (byte) (0xE0 | codePoint >> 12);
+            buffer[count++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+        } else {
+            buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[count++] = (byte) (0x80 | (codePoint >> 12 & 0x3F));
+            buffer[count++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+        }
+        buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+    }
+
+    /**
+     * Makes room in the buffer, writing it out if it is too full, or taking a
+     * new one if it was released.
+     *
+     * @param bytes number of bytes about to be added
+     */
+    private void ensure(int bytes) {
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        } else if (count + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    /**
+     * Writes the buffer to the sink without flushing the sink.
+     */
+    private void drain() {
+        if (count > 0 && !error) {
+            try {
+                sink.write(buffer, 0, count);
+            } catch (IOException e) {
+                error = true;
+            }
+        }
+        count = 0;
+    }
+}
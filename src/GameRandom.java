@@ -0,0 +1,160 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * The source of every random roll in the game.
+ * Each game session owns one GameRandom built from a recorded seed, and every
+ * worker thread gets its own stream split from it, so no generator is ever
+ * shared between threads and any game can be replayed exactly from its seed.
+ * The generator is the SplitMix64 algorithm of
+ * {@link java.util.SplittableRandom}, which is fast and does no locking, with
+ * its state exposed so a saved game can resume the exact same sequence.
+ */
+public class GameRandom {
+    /** Odd constant used to space out the seeds of child streams. */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** The seed this stream was created from. */
+    private final long seed;
+
+    /** The generator all rolls of this stream come from. */
+    private final Generator generator;
+
+    /** Number of streams handed out by {@link #split()} so far. */
+    private long splits;
+
+    /**
+     * Creates a stream from a known seed, e.g. to replay a recorded game.
+     *
+     * @param seed the seed
+     */
+    public GameRandom(long seed) {
+        this.seed = seed;
+        this.generator = new Generator(seed);
+    }
+
+    /**
+     * Creates a stream for a new game with a freshly chosen seed.
+     *
+     * @return the new stream
+     */
+    public static GameRandom newSession() {
+        return new GameRandom(newSeed());
+    }
+
+    /**
+     * Picks a seed for a new game.
+     *
+     * @return a seed that is very unlikely to repeat
+     */
+    public static long newSeed() {
+        return mix64(System.nanoTime() ^ ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Returns the seed this stream was created from. Creating a new GameRandom
+     * with this seed reproduces every roll.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the generator to roll with. It must only be used by the thread
+     * that owns this stream.
+     *
+     * @return the generator
+     */
+    public Generator generator() {
+        return generator;
+    }
+
+    /**
+     * Returns the numbered child stream of this stream. The same seed and index
+     * always give the same child, regardless of how many rolls were made.
+     *
+     * @param index the number of the child stream
+     * @return the child stream
+     */
+    public GameRandom stream(long index) {
+        return new GameRandom(mix64(seed + GOLDEN_GAMMA * (index + 1)));
+    }
+
+    /**
+     * Returns the next unused child stream, for handing to a worker.
+     *
+     * @return the child stream
+     */
+    public GameRandom split() {
+        return stream(splits++);
+    }
+
+    /**
+     * Scrambles a 64-bit value into 32 bits, as
+     * {@link java.util.SplittableRandom} does for {@code nextInt()}.
+     *
+     * @param z the value to scramble
+     * @return the scrambled value
+     */
+    static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+        return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+    }
+
+    /**
+     * Scrambles a 64-bit value so that nearby seeds give unrelated streams.
+     *
+     * @param z the value to scramble
+     * @return the scrambled value
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * A SplitMix64 generator. Given the same seed it produces exactly the
+     * numbers {@link java.util.SplittableRandom} would, and its whole state is
+     * one {@code long} that can be saved and restored.
+     */
+    public static final class Generator implements RandomGenerator {
+        /** Advanced by {@link #GOLDEN_GAMMA} before every number. */
+        private long state;
+
+        /**
+         * @param seed the initial state
+         */
+        Generator(long seed) {
+            this.state = seed;
+        }
+
+        @Override
+        public long nextLong() {
+            return mix64(state += GOLDEN_GAMMA);
+        }
+
+        @Override
+        public int nextInt() {
+            return mix32(state += GOLDEN_GAMMA);
+        }
+
+        /**
+         * @return the generator's state, for saving
+         */
+        public long getState() {
+            return state;
+        }
+
+        /**
+         * Continues from a saved state.
+         *
+         * @param state a value from {@link #getState()}
+         */
+        public void setState(long state) {
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,821 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hosts games over TCP, one per connection, for players on a plain
+ * {@code nc} or telnet client.
+ * <p>
+ * Sockets are served by a small fixed pool of I/O threads, each running a
+ * {@link Selector} over its share of the connections, so an idle player costs
+ * a registered channel and a parked virtual thread rather than a platform
+ * thread. Each connection's game is a {@link GameSession} run by a
+ * {@link SessionRuntime}, which feeds every line through the same game loop
+ * and {@code App.handleCommand} as the console; its streams are backed by the
+ * connection's buffers:
+ * <ul>
+ * <li>Bytes read are appended to the connection's input buffer, and the game
+ * is woken only once a whole line has arrived, however the line was split
+ * into packets.</li>
+ * <li>Text written by the game is copied into direct buffers taken from a
+ * shared pool, and the I/O thread writes them to the socket as it becomes
+ * writable, returning each buffer to the pool once sent.</li>
+ * </ul>
+ * Neither side can run away with memory. A client sending faster than its
+ * game reads stops being read until the game catches up, and a line longer
+ * than {@link GameInput#MAX_LINE_LENGTH} is cut short by the game, which
+ * drops the rest of it. A client reading
+ * slower than its game writes makes the game wait for room, and is
+ * disconnected if it takes no output for {@link #WRITE_TIMEOUT_SECONDS}.
+ * <p>
+ * With a {@link SessionStore}, games idle at the command prompt are
+ * hibernated to disk beyond a number kept in memory, so a server full of idle
+ * players holds little more than their sockets.
+ * <p>
+ * With more than one player per world, connections are grouped in order of
+ * arrival into {@link SharedWorld}s of that many players, who meet the same
+ * enemies and change the same locations.
+ * <p>
+ * Usage: {@code java GameServer [port] [ioThreads] [residentSessions] [playersPerWorld]},
+ * where 0 resident sessions keeps every game in memory.
+ */
+public class GameServer implements AutoCloseable {
+    /** Port listened on by default. */
+    static final int DEFAULT_PORT = 4000;
+
+    /** Size of each pooled output buffer. */
+    private static final int CHUNK_SIZE = 4096;
+
+    /** Most free output buffers kept in the pool; more are left to the collector. */
+    private static final int POOLED_CHUNKS = 4096;
+
+    /** Size of each I/O thread's read buffer. */
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    /** Unread input a connection may hold before its socket stops being read. */
+    private static final int MAX_PENDING_INPUT = 8 * 1024;
+
+    /** Unsent output a connection may hold before its game waits. */
+    private static final int MAX_PENDING_OUTPUT = 64 * 1024;
+
+    /** How long a game waits for its client to take output before disconnecting it. */
+    private static final int WRITE_TIMEOUT_SECONDS = 60;
+
+    /** Connections waiting to be accepted. */
+    private static final int BACKLOG = 1024;
+
+    /** The listening socket. */
+    private final ServerSocketChannel server;
+
+    /** The I/O threads. */
+    private final IoLoop[] loops;
+
+    /** Runs the games. */
+    private final SessionRuntime runtime;
+
+    /** Free output buffers. */
+    private final BufferPool pool = new BufferPool();
+
+    /** Number of open connections. */
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /** Loop the next accepted connection goes to; used by the accepting thread only. */
+    private int nextLoop;
+
+    /** Players put in each shared world, or 1 to give each a world of their own. */
+    private final int playersPerWorld;
+
+    /** World the next accepted connection joins; used by the accepting thread only. */
+    private SharedWorld nextWorld;
+
+    /** Players already in {@link #nextWorld}; used by the accepting thread only. */
+    private int nextWorldPlayers;
+
+    /**
+     * Starts listening and serving games.
+     *
+     * @param address   the address to listen on
+     * @param ioThreads number of I/O threads
+     * @throws IOException if the address cannot be bound
+     */
+    public GameServer(InetSocketAddress address, int ioThreads) throws IOException {
+        this(address, ioThreads, null);
+    }
+
+    /**
+     * Starts listening and serving games, hibernating idle ones to a store.
+     *
+     * @param address   the address to listen on
+     * @param ioThreads number of I/O threads
+     * @param store     the store idle games are hibernated to, or null to keep
+     *                  every game in memory
+     * @throws IOException if the address cannot be bound
+     */
+    public GameServer(InetSocketAddress address, int ioThreads, SessionStore store) throws IOException {
+        this(address, ioThreads, store, 1);
+    }
+
+    /**
+     * Starts listening and serving games, hibernating idle ones to a store and
+     * grouping players into shared worlds.
+     *
+     * @param address         the address to listen on
+     * @param ioThreads       number of I/O threads
+     * @param store           the store idle games are hibernated to, or null
+     *                        to keep every game in memory
+     * @param playersPerWorld players put in each shared world, or 1 to give
+     *                        each player a world of their own
+     * @throws IOException if the address cannot be bound
+     */
+    public GameServer(InetSocketAddress address, int ioThreads, SessionStore store, int playersPerWorld)
+            throws IOException {
+        if (playersPerWorld < 1) {
+            throw new IllegalArgumentException("playersPerWorld must be at least 1: " + playersPerWorld);
+        }
+        this.playersPerWorld = playersPerWorld;
+        runtime = new SessionRuntime(null, store);
+        server = ServerSocketChannel.open();
+        server.bind(address, BACKLOG);
+        server.configureBlocking(false);
+        loops = new IoLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new IoLoop(i);
+        }
+        IoLoop acceptor = loops[0];
+        acceptor.execute(() -> {
+            try {
+                server.register(acceptor.selector, SelectionKey.OP_ACCEPT);
+            } catch (ClosedChannelException e) {
+                // closed before it started
+            }
+        });
+        for (IoLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * @return the port listened on
+     * @throws IOException if the socket is closed
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * @return number of open connections
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Stops listening, disconnects every client and waits for their games to
+     * end.
+     *
+     * @throws IOException if the listening socket fails to close
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (IoLoop loop : loops) {
+            loop.execute(loop::stop);
+        }
+        for (IoLoop loop : loops) {
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        runtime.close();
+    }
+
+    /**
+     * Accepts every pending connection and hands each to an I/O thread in
+     * turn, along with the world its player joins.
+     *
+     * @throws IOException if accepting fails
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            IoLoop loop = loops[nextLoop++ % loops.length];
+            SocketChannel accepted = channel;
+            SharedWorld world = nextWorld();
+            loop.execute(() -> loop.open(accepted, world));
+        }
+    }
+
+    /**
+     * Picks the world the next player joins, opening a new one once the
+     * current one is full.
+     *
+     * @return the world, or null if each player has a world of their own
+     */
+    private SharedWorld nextWorld() {
+        if (playersPerWorld == 1) {
+            return null;
+        }
+        if (nextWorld == null || nextWorldPlayers == playersPerWorld) {
+            nextWorld = new SharedWorld();
+            nextWorldPlayers = 0;
+        }
+        nextWorldPlayers++;
+        return nextWorld;
+    }
+
+    /**
+     * One I/O thread and the selector it serves its connections with. Other
+     * threads hand it work through {@link #execute}.
+     */
+    private final class IoLoop {
+        /** The selector. */
+        private final Selector selector;
+
+        /** The thread running the loop. */
+        private final Thread thread;
+
+        /** Work handed over by other threads. */
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        /** Every socket read goes through this buffer. */
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        /** Whether the loop is running; used by its thread only. */
+        private boolean running = true;
+
+        /**
+         * @param index number of the loop, for its thread's name
+         * @throws IOException if the selector cannot be opened
+         */
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = Thread.ofPlatform().name("game-io-" + index).unstarted(this::run);
+        }
+
+        /**
+         * Runs a task on this loop's thread.
+         *
+         * @param task the task
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Serves the connections until stopped.
+         */
+        private void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    for (Runnable task; (task = tasks.poll()) != null;) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        handle(key);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println(thread.getName() + " failed: " + e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection connection) {
+                        connection.abort();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // stopping anyway
+                }
+            }
+        }
+
+        /**
+         * Serves one ready key.
+         *
+         * @param key the key
+         */
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+            if (!(key.attachment() instanceof Connection connection)) {
+                try {
+                    accept();
+                } catch (IOException e) {
+                    System.err.println("Failed to accept a connection: " + e);
+                }
+                return;
+            }
+            try {
+                if (key.isReadable()) {
+                    connection.onReadable(readBuffer);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.onWritable();
+                }
+            } catch (IOException e) {
+                connection.abort();
+            }
+        }
+
+        /**
+         * Registers a new connection and starts its game.
+         *
+         * @param channel the connection's socket
+         * @param world   the world the game is played in, or null for a world
+         *                of its own
+         */
+        void open(SocketChannel channel, SharedWorld world) {
+            Connection connection = new Connection(this, channel);
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                return;
+            }
+            connections.incrementAndGet();
+            runtime.start(GameRandom.newSession(), world, connection.input, connection.output);
+        }
+
+        /**
+         * Ends the loop; its connections are disconnected as it exits.
+         */
+        void stop() {
+            running = false;
+        }
+    }
+
+    /**
+     * One client's socket and the buffers between it and the client's game.
+     * The I/O thread and the game's thread share the buffers under
+     * {@link #lock}; only the I/O thread touches the socket.
+     */
+    private final class Connection {
+        /** The I/O thread serving this connection. */
+        private final IoLoop loop;
+
+        /** The socket. */
+        private final SocketChannel channel;
+
+        /** The socket's registration with the loop's selector. */
+        private SelectionKey key;
+
+        /** Guards the buffers. */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** Signalled when a line, or the end of input, arrives. */
+        private final Condition lineArrived = lock.newCondition();
+
+        /** Signalled when output is sent or the connection closes. */
+        private final Condition outputSent = lock.newCondition();
+
+        /** Bytes read and not yet taken by the game, from {@link #inStart} to {@link #inEnd}. */
+        private byte[] inBuffer = new byte[64];
+
+        /** Index of the first byte not yet taken by the game. */
+        private int inStart;
+
+        /** Index after the last byte read. */
+        private int inEnd;
+
+        /** Whether the game may take the input: it holds a line end, or is full or ended. */
+        private boolean inReady;
+
+        /** Whether the client has stopped sending. */
+        private boolean inEnded;
+
+        /** Whether the socket has stopped being read until the game takes input. */
+        private boolean readPaused;
+
+        /** Output not yet sent; each buffer holds bytes from 0 to its position. */
+        private final ArrayDeque<ByteBuffer> outChunks = new ArrayDeque<>();
+
+        /** Bytes of the first output buffer already sent. */
+        private int outSent;
+
+        /** Bytes of output not yet sent. */
+        private int outPending;
+
+        /** Whether a send is already scheduled or waiting for the socket. */
+        private boolean sendScheduled;
+
+        /** Whether the game has finished, so the socket closes once output is sent. */
+        private boolean outClosing;
+
+        /** Whether the connection is closed. */
+        private boolean closed;
+
+        /** The game's input stream. */
+        final InputStream input = new ConnectionInput();
+
+        /** The game's output stream. */
+        final OutputStream output = new ConnectionOutput();
+
+        /**
+         * @param loop    the I/O thread serving the connection
+         * @param channel the socket
+         */
+        Connection(IoLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        /**
+         * Reads what the client sent into the input buffer. Called by the I/O
+         * thread when the socket is readable.
+         *
+         * @param readBuffer the I/O thread's read buffer
+         * @throws IOException if the socket fails
+         */
+        void onReadable(ByteBuffer readBuffer) throws IOException {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            lock.lock();
+            try {
+                if (read < 0) {
+                    inEnded = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    lineArrived.signal();
+                    return;
+                }
+                if (inEnd + read > inBuffer.length) {
+                    int unread = inEnd - inStart;
+                    byte[] buffer = unread + read > inBuffer.length
+                            ? new byte[Math.max(inBuffer.length * 2, unread + read)]
+                            : inBuffer;
+                    System.arraycopy(inBuffer, inStart, buffer, 0, unread);
+                    inBuffer = buffer;
+                    inStart = 0;
+                    inEnd = unread;
+                }
+                readBuffer.flip();
+                readBuffer.get(inBuffer, inEnd, read);
+                for (int i = inEnd; i < inEnd + read && !inReady; i++) {
+                    inReady = inBuffer[i] == '\n' || inBuffer[i] == '\r';
+                }
+                inEnd += read;
+                if (inEnd - inStart >= MAX_PENDING_INPUT) {
+                    // Hand the game even a partial line, which it cuts short
+                    // and drops, so a line that never ends is not held here
+                    inReady = true;
+                    readPaused = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                }
+                if (inReady) {
+                    lineArrived.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Sends as much pending output as the socket takes, and closes the
+         * socket once the game has finished and everything is sent. Called by
+         * the I/O thread.
+         *
+         * @throws IOException if the socket fails
+         */
+        void onWritable() throws IOException {
+            boolean finished;
+            lock.lock();
+            try {
+                while (!outChunks.isEmpty()) {
+                    ByteBuffer chunk = outChunks.peekFirst();
+                    int filled = chunk.position();
+                    chunk.limit(filled).position(outSent);
+                    int sent;
+                    try {
+                        sent = channel.write(chunk);
+                    } finally {
+                        outSent = chunk.position();
+                        chunk.limit(chunk.capacity()).position(filled);
+                    }
+                    outPending -= sent;
+                    if (outSent < filled) {
+                        break; // the socket is full
+                    }
+                    pool.release(outChunks.pollFirst());
+                    outSent = 0;
+                }
+                outputSent.signalAll();
+                sendScheduled = !outChunks.isEmpty();
+                finished = outClosing && !sendScheduled;
+                if (!finished && key.isValid()) {
+                    int ops = key.interestOps();
+                    key.interestOps(sendScheduled ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (finished) {
+                abort();
+            }
+        }
+
+        /**
+         * Sends output now if the loop is not already about to. Called by the
+         * game's thread.
+         */
+        private void scheduleSend() {
+            if (!sendScheduled && !closed) {
+                sendScheduled = true;
+                loop.execute(() -> {
+                    try {
+                        onWritable();
+                    } catch (IOException e) {
+                        abort();
+                    }
+                });
+            }
+        }
+
+        /**
+         * Lets the socket be read again. Called by the I/O thread.
+         */
+        private void resumeReading() {
+            lock.lock();
+            try {
+                if (key.isValid() && !inEnded) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Closes the socket at once, ending the game's input, failing its
+         * output and returning the output buffers to the pool. Called by the
+         * I/O thread.
+         */
+        void abort() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                inEnded = true;
+                for (ByteBuffer chunk; (chunk = outChunks.pollFirst()) != null;) {
+                    pool.release(chunk);
+                }
+                outPending = 0;
+                lineArrived.signalAll();
+                outputSent.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            closeQuietly(channel); // also cancels the key
+            connections.decrementAndGet();
+        }
+
+        /**
+         * The game's input: the bytes the client sent, handed over a line at
+         * a time.
+         */
+        private final class ConnectionInput extends InputStream {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                lock.lock();
+                try {
+                    while (!inReady && !inEnded) {
+                        lineArrived.await();
+                    }
+                    if (inStart == inEnd) {
+                        return -1;
+                    }
+                    int n = Math.min(len, inEnd - inStart);
+                    System.arraycopy(inBuffer, inStart, b, off, n);
+                    inStart += n;
+                    if (inStart == inEnd) {
+                        inStart = inEnd = 0;
+                        inReady = false;
+                    }
+                    if (readPaused && inEnd - inStart < MAX_PENDING_INPUT / 2) {
+                        readPaused = false;
+                        loop.execute(Connection.this::resumeReading);
+                    }
+                    return n;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+                // the socket closes when the game's output does
+            }
+        }
+
+        /**
+         * The game's output: copied into pooled buffers and sent by the I/O
+         * thread.
+         */
+        private final class ConnectionOutput extends OutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                lock.lock();
+                try {
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WRITE_TIMEOUT_SECONDS);
+                    while (outPending >= MAX_PENDING_OUTPUT && !closed) {
+                        scheduleSend();
+                        long left = deadline - System.nanoTime();
+                        if (left <= 0) {
+                            loop.execute(Connection.this::abort);
+                            throw new IOException("Client stopped reading");
+                        }
+                        outputSent.awaitNanos(left);
+                    }
+                    if (closed || outClosing) {
+                        throw new IOException("Connection closed");
+                    }
+                    while (len > 0) {
+                        ByteBuffer chunk = outChunks.peekLast();
+                        if (chunk == null || !chunk.hasRemaining()) {
+                            chunk = pool.acquire();
+                            outChunks.addLast(chunk);
+                        }
+                        int n = Math.min(len, chunk.remaining());
+                        chunk.put(b, off, n);
+                        off += n;
+                        len -= n;
+                        outPending += n;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void flush() {
+                lock.lock();
+                try {
+                    if (outPending > 0) {
+                        scheduleSend();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+                lock.lock();
+                try {
+                    outClosing = true;
+                    if (sendScheduled) {
+                        return; // the send closes the socket when done
+                    }
+                    sendScheduled = true;
+                } finally {
+                    lock.unlock();
+                }
+                loop.execute(() -> {
+                    try {
+                        onWritable();
+                    } catch (IOException e) {
+                        abort();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Direct buffers for output, shared by every connection. A buffer is
+     * taken when a game writes and given back once its bytes are sent, so
+     * idle connections hold none.
+     */
+    private static final class BufferPool {
+        /** Free buffers. */
+        private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+        /** Number of free buffers. */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * @return an empty buffer of {@link #CHUNK_SIZE} bytes
+         */
+        ByteBuffer acquire() {
+            ByteBuffer buffer = free.poll();
+            if (buffer == null) {
+                return ByteBuffer.allocateDirect(CHUNK_SIZE);
+            }
+            size.decrementAndGet();
+            return buffer;
+        }
+
+        /**
+         * Gives a buffer back.
+         *
+         * @param buffer a buffer from {@link #acquire()}
+         */
+        void release(ByteBuffer buffer) {
+            buffer.clear();
+            if (size.incrementAndGet() <= POOLED_CHUNKS) {
+                free.add(buffer);
+            } else {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Closes a socket, ignoring failures since the connection is over anyway.
+     *
+     * @param channel the socket
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing more to do for a finished connection
+        }
+    }
+
+    /**
+     * Serves games until the process is stopped.
+     *
+     * @param args the port, the number of I/O threads, the most idle games
+     *             kept in memory and the players per world, all optional;
+     *             without a positive number of idle games, every game stays in
+     *             memory, and without more than one player per world, each
+     *             player has a world of their own
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int ioThreads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int resident = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int playersPerWorld = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        Path storePath = resident > 0 ? Files.createTempDirectory("galactic-dawn-sessions") : null;
+        SessionStore store = storePath != null ? new SessionStore(storePath, resident) : null;
+        GameMetrics.install();
+        GameServer server = new GameServer(new InetSocketAddress(port), ioThreads, store, playersPerWorld);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                if (store != null) {
+                    store.close();
+                    Files.delete(storePath);
+                }
+            } catch (IOException e) {
+                // exiting anyway
+            }
+        }));
+        System.out.println("Galactic Dawn is listening on port " + server.getPort() + " with " + ioThreads
+                + " I/O threads" + (playersPerWorld > 1 ? ", " + playersPerWorld + " players per world." : "."));
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * All the state of one player's game: their player, map and enemies, the
+ * random stream the game rolls with, and the streams the game reads commands
+ * from and writes text to.
+ * Sessions share nothing mutable, so any number of them can run at the same
+ * time in one process, each on its own thread. The exception is a session in
+ * a {@link SharedWorld}, whose map shows the world's changes and whose enemies
+ * are the world's, shared with every other session in it.
+ * <p>
+ * With a {@link SessionStore}, a game waiting at the command prompt may be
+ * hibernated: its player, map and enemies are written to disk and dropped
+ * until the next command arrives.
+ */
+public class GameSession implements Runnable {
+    /** Identifier of this session within the process. */
+    private final long id;
+
+    /** The random stream every roll of this game comes from. */
+    private final GameRandom random;
+
+    /** This game's player; null while hibernated. */
+    private Player player;
+
+    /** This game's map; null while hibernated. */
+    private GameMap map;
+
+    /** This game's enemies; null while hibernated. */
+    private Enemies enemies;
+
+    /** The world this game shares with others, or null if it has its own. */
+    private final SharedWorld world;
+
+    /** Reads the player's input. */
+    private final GameInput input;
+
+    /** Collects all text shown to the player. */
+    private final GameOutput out;
+
+    /** Parses the commands typed at the main prompt. */
+    private final CommandParser commandParser;
+
+    /** Whether the game is still being played. */
+    private boolean running;
+
+    /** Where the save and load commands keep this game, or null to disable them. */
+    private Path savePath;
+
+    /** Records this game's seed and input, or null. */
+    private GameJournal journal;
+
+    /** Hibernates this game while it is idle, or null. */
+    private SessionStore store;
+
+    /** Whether the game is running a command, idle or hibernated; see {@link SessionStore}. */
+    final AtomicInteger residency = new AtomicInteger(SessionStore.ACTIVE);
+
+    /** Whether the game has waited for a command since its store last looked at it. */
+    volatile boolean recentlyUsed = true;
+
+    /**
+     * Creates a new game reading from and writing to the given streams.
+     *
+     * @param id     identifier of this session
+     * @param random the random stream for this game; its seed replays the game
+     * @param in     the stream commands are read from
+     * @param out    the stream text is written to
+     */
+    public GameSession(long id, GameRandom random, InputStream in, OutputStream out) {
+        this(id, random, null, in, out);
+    }
+
+    /**
+     * Creates a new game in a world shared with other games, reading from and
+     * writing to the given streams.
+     *
+     * @param id     identifier of this session
+     * @param random the random stream for this game; with a shared world its
+     *               seed no longer replays the game, since other players change
+     *               the world too
+     * @param world  the world to play in, or null for a world of its own
+     * @param in     the stream commands are read from
+     * @param out    the stream text is written to
+     */
+    public GameSession(long id, GameRandom random, SharedWorld world, InputStream in, OutputStream out) {
+        this.id = id;
+        this.random = random;
+        this.world = world;
+        this.player = new Player(random.generator());
+        player.setSessionId(id);
+        this.map = newMap();
+        this.commandParser = new CommandParser(map.getTemplate());
+        this.enemies = world != null ? world.getEnemies() : new Enemies();
+        this.out = new GameOutput(out);
+        this.input = new GameInput(new FlushingInput(in, this.out), id);
+        player.addItem(Items.STIMPACK);
+    }
+
+    /**
+     * Plays the game until the player quits, dies, wins, or the input ends.
+     */
+    @Override
+    public void run() {
+        if (journal != null) {
+            journal.start(id, getSeed());
+        }
+        try {
+            App.play(this);
+        } finally {
+            if (journal != null) {
+                journal.end(id);
+            }
+        }
+    }
+
+    /**
+     * @return identifier of this session
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the random stream of this game
+     */
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * @return the seed this game was started with
+     */
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * @return this game's player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * @return this game's map
+     */
+    public GameMap getMap() {
+        return map;
+    }
+
+    /**
+     * @return the world this game shares with others, or null if it has its own
+     */
+    public SharedWorld getWorld() {
+        return world;
+    }
+
+    /**
+     * @return this game's enemies
+     */
+    public Enemies getEnemies() {
+        return enemies;
+    }
+
+    /**
+     * @return the player's input
+     */
+    public GameInput getInput() {
+        return input;
+    }
+
+    /**
+     * Records this game's seed and every line read in a journal, so it can be
+     * replayed. Must be called before the game starts.
+     *
+     * @param journal the journal, or null to record nothing
+     */
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
+        input.setJournal(journal);
+    }
+
+    /**
+     * Lets a store hibernate this game while it waits for commands. Must be
+     * called before the game starts.
+     *
+     * @param store the store, or null to keep the game in memory
+     */
+    public void setStore(SessionStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Reads the next command at the main prompt. While it waits, the game is
+     * idle and its store may hibernate it; it is back in memory when this
+     * returns.
+     *
+     * @return the line, without its line terminator
+     * @throws java.util.NoSuchElementException if the input has ended
+     */
+    String readCommand() {
+        if (store == null) {
+            return input.readLine();
+        }
+        out.flush();
+        store.idle(this);
+        try {
+            return input.readLine();
+        } finally {
+            store.resume(this);
+        }
+    }
+
+    /**
+     * Drops the player, map and enemies and the output buffer, once the game
+     * has been written to disk.
+     */
+    void release() {
+        player = null;
+        map = null;
+        enemies = null;
+        out.release();
+    }
+
+    /**
+     * Creates a new player, map and enemies for a hibernated game, ready to be
+     * overwritten by its snapshot. A game in a shared world gets the world's
+     * enemies back instead, which its snapshot leaves alone.
+     */
+    void rebuild() {
+        player = new Player(random.generator());
+        player.setSessionId(id);
+        map = newMap();
+        enemies = world != null ? world.getEnemies() : new Enemies();
+    }
+
+    /**
+     * Creates this game's map, over the shared world if there is one.
+     *
+     * @return the map
+     */
+    private GameMap newMap() {
+        return world != null ? new GameMap(world, random.generator().nextLong()) : new GameMap(random.generator());
+    }
+
+    /**
+     * @return the output text for the player is written to
+     */
+    public GameOutput getOut() {
+        return out;
+    }
+
+    /**
+     * @return the parser for commands typed at the main prompt
+     */
+    CommandParser getCommandParser() {
+        return commandParser;
+    }
+
+    /**
+     * @return where the save and load commands keep this game, or null if
+     *         saving is disabled
+     */
+    public Path getSavePath() {
+        return savePath;
+    }
+
+    /**
+     * Sets where the save and load commands keep this game.
+     *
+     * @param savePath the save file, or null to disable saving
+     */
+    public void setSavePath(Path savePath) {
+        this.savePath = savePath;
+    }
+
+    /**
+     * @return true while the game is being played
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts or ends the game loop.
+     *
+     * @param running true to keep playing, false to end the game
+     */
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    /**
+     * Input that shows the player everything printed so far before it waits
+     * for more input, so prompts are seen even in the middle of a turn.
+     */
+    private static final class FlushingInput extends FilterInputStream {
+        /** The output to flush. */
+        private final GameOutput out;
+
+        /**
+         * @param in  the player's input
+         * @param out the output to flush before reading
+         */
+        FlushingInput(InputStream in, GameOutput out) {
+            super(in);
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            out.flush();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            out.flush();
+            return super.read(b, off, len);
+        }
+    }
+}
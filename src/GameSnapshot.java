@@ -0,0 +1,345 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves and restores the full state of a {@link GameSession} in a compact,
+ * versioned binary format.
+ * <p>
+ * A snapshot starts with a fixed-layout header, so every field is read
+ * straight from its offset in a memory-mapped file with no parsing:
+ *
+ * <pre>
+ * offset size field
+ *      0    4 magic "GDSV"
+ *      4    2 format version
+ *      6    2 header size
+ *      8    8 seed of the game's random stream
+ *     16    8 state of the game's random stream
+ *     24    8 empty-space description seed
+ *     32    4 map width
+ *     36    4 map height
+ *     40    4 player x
+ *     44    4 player y
+ *     48    4 player health
+ *     52    4 offset of the player's name in the string table
+ *     56    8 bit per held item ID
+ *     64  128 count of each item ID, 2 bytes each
+ *    192   40 each enemy, in {@link Enemies#all()} order: health (4), dead (1), padding (3)
+ *    232    4 number of changed cells in the world overlay
+ *    236    4 total snapshot size
+ *    240      changed cells, 12 bytes each: cell (4), flags (1), item ID or -1 (1),
+ *             padding (2), offset of the long description in the string table or -1 (4)
+ *             string table: length (4) and UTF-8 bytes of each string
+ * </pre>
+ *
+ * All numbers are big-endian. Restoring reads the whole snapshot before
+ * changing the session, so a damaged file leaves the game untouched.
+ * <p>
+ * A game in a {@link SharedWorld} has no world overlay of its own, and its
+ * snapshot's enemies are not restored: the world and its enemies belong to
+ * every player in it and carry on changing while the game is saved.
+ */
+public final class GameSnapshot {
+    /** Format version written by this class. */
+    public static final int VERSION = 1;
+
+    /** "GDSV", marking a Galactic Dawn save. */
+    private static final int MAGIC = 0x47445356;
+
+    /** Size of the fixed header. */
+    private static final int HEADER_SIZE = 240;
+
+    /** Size of one changed-cell entry. */
+    private static final int CELL_ENTRY_SIZE = 12;
+
+    /** Size of one enemy entry. */
+    private static final int ENEMY_ENTRY_SIZE = 8;
+
+    /** Number of enemies in a snapshot. */
+    private static final int ENEMIES = 5;
+
+    // Offsets of the header fields, see the table above
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_HEADER_SIZE = 6;
+    private static final int OFF_SEED = 8;
+    private static final int OFF_RANDOM_STATE = 16;
+    private static final int OFF_DESCRIPTION_SEED = 24;
+    private static final int OFF_MAP_WIDTH = 32;
+    private static final int OFF_MAP_HEIGHT = 36;
+    private static final int OFF_PLAYER_X = 40;
+    private static final int OFF_PLAYER_Y = 44;
+    private static final int OFF_PLAYER_HEALTH = 48;
+    private static final int OFF_PLAYER_NAME = 52;
+    private static final int OFF_ITEMS_HELD = 56;
+    private static final int OFF_ITEM_COUNTS = 64;
+    private static final int OFF_ENEMIES = 192;
+    private static final int OFF_CELL_COUNT = 232;
+    private static final int OFF_SIZE = 236;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Saves a game to a file. The snapshot is written to a temporary file
+     * first and moved into place, so an existing save is never left half
+     * written.
+     *
+     * @param session the game to save
+     * @param path    the save file
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(GameSession session, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int size = size(session);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            write(session, buffer);
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores a game from a file.
+     *
+     * @param path    the save file
+     * @param session the game to overwrite; it must use the same world as the
+     *                saved game
+     * @throws IOException if the file cannot be read or is not a valid save
+     *                     for this game
+     */
+    public static void restore(Path path, GameSession session) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), session);
+        }
+    }
+
+    /**
+     * Computes the size of a game's snapshot.
+     *
+     * @param session the game
+     * @return the snapshot size in bytes
+     */
+    public static int size(GameSession session) {
+        WorldOverlay overlay = session.getMap().getOverlay();
+        int size = HEADER_SIZE + overlay.size() * CELL_ENTRY_SIZE;
+        size += stringSize(session.getPlayer().getName());
+        for (int i = 0; i < overlay.size(); i++) {
+            if ((overlay.flagsAt(i) & WorldOverlay.DESCRIPTION_SET) != 0) {
+                size += stringSize(overlay.descriptionAt(i));
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes a game's snapshot at the start of a buffer.
+     *
+     * @param session the game
+     * @param buffer  a buffer with at least {@link #size(GameSession)} bytes
+     *                from index 0
+     */
+    public static void write(GameSession session, ByteBuffer buffer) {
+        Player player = session.getPlayer();
+        GameMap map = session.getMap();
+        WorldOverlay overlay = map.getOverlay();
+        Inventory inventory = player.getItems();
+
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(OFF_VERSION, (short) VERSION);
+        buffer.putShort(OFF_HEADER_SIZE, (short) HEADER_SIZE);
+        buffer.putLong(OFF_SEED, session.getSeed());
+        buffer.putLong(OFF_RANDOM_STATE, session.getRandom().generator().getState());
+        buffer.putLong(OFF_DESCRIPTION_SEED, map.getDescriptionSeed());
+        buffer.putInt(OFF_MAP_WIDTH, map.getTemplate().getWidth());
+        buffer.putInt(OFF_MAP_HEIGHT, map.getTemplate().getHeight());
+        buffer.putInt(OFF_PLAYER_X, player.getX());
+        buffer.putInt(OFF_PLAYER_Y, player.getY());
+        buffer.putInt(OFF_PLAYER_HEALTH, player.getHealth());
+        buffer.putLong(OFF_ITEMS_HELD, inventory.getHeld());
+        for (int id = 0; id < Items.MAX_ITEMS; id++) {
+            Items item = Items.byId(id);
+            int count = item != null ? inventory.count(item) : 0;
+            buffer.putShort(OFF_ITEM_COUNTS + 2 * id, (short) Math.min(count, Short.MAX_VALUE));
+        }
+        CombatCharacters[] enemies = session.getEnemies().all();
+        for (int i = 0; i < ENEMIES; i++) {
+            int at = OFF_ENEMIES + i * ENEMY_ENTRY_SIZE;
+            buffer.putInt(at, enemies[i].getHealth());
+            buffer.put(at + 4, (byte) (enemies[i].isDead() ? 1 : 0));
+            buffer.put(at + 5, (byte) 0);
+            buffer.putShort(at + 6, (short) 0);
+        }
+        buffer.putInt(OFF_CELL_COUNT, overlay.size());
+
+        int strings = HEADER_SIZE + overlay.size() * CELL_ENTRY_SIZE;
+        buffer.putInt(OFF_PLAYER_NAME, strings);
+        strings = putString(buffer, strings, player.getName());
+        for (int i = 0; i < overlay.size(); i++) {
+            int at = HEADER_SIZE + i * CELL_ENTRY_SIZE;
+            int flags = overlay.flagsAt(i);
+            Items item = overlay.itemAt(i);
+            buffer.putInt(at, overlay.cellAt(i));
+            buffer.put(at + 4, (byte) flags);
+            buffer.put(at + 5, (byte) (item != null ? item.getId() : -1));
+            buffer.putShort(at + 6, (short) 0);
+            if ((flags & WorldOverlay.DESCRIPTION_SET) != 0) {
+                buffer.putInt(at + 8, strings);
+                strings = putString(buffer, strings, overlay.descriptionAt(i));
+            } else {
+                buffer.putInt(at + 8, -1);
+            }
+        }
+        buffer.putInt(OFF_SIZE, strings);
+    }
+
+    /**
+     * Restores a game from a snapshot at the start of a buffer.
+     *
+     * @param buffer  the snapshot
+     * @param session the game to overwrite; it must use the same world as the
+     *                saved game
+     * @throws IOException if the snapshot is damaged, from an unknown version
+     *                     or for a different world
+     */
+    public static void read(ByteBuffer buffer, GameSession session) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a Galactic Dawn save");
+        }
+        int version = buffer.getShort(OFF_VERSION);
+        if (version != VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+        int size = buffer.getInt(OFF_SIZE);
+        int cellCount = buffer.getInt(OFF_CELL_COUNT);
+        if (size > buffer.limit() || cellCount < 0 || cellCount > (size - HEADER_SIZE) / CELL_ENTRY_SIZE) {
+            throw new IOException("Save is truncated");
+        }
+        GameMap map = session.getMap();
+        WorldTemplate template = map.getTemplate();
+        if (buffer.getInt(OFF_MAP_WIDTH) != template.getWidth()
+                || buffer.getInt(OFF_MAP_HEIGHT) != template.getHeight()) {
+            throw new IOException("Save is for a different world");
+        }
+        int x = buffer.getInt(OFF_PLAYER_X);
+        int y = buffer.getInt(OFF_PLAYER_Y);
+        if (!template.contains(x, y)) {
+            throw new IOException("Saved position is off the map");
+        }
+        String name = getString(buffer, buffer.getInt(OFF_PLAYER_NAME), size);
+
+        int[] counts = new int[Items.MAX_ITEMS];
+        for (int id = 0; id < Items.MAX_ITEMS; id++) {
+            counts[id] = buffer.getShort(OFF_ITEM_COUNTS + 2 * id);
+            if (counts[id] < 0 || counts[id] > 0 && Items.byId(id) == null) {
+                throw new IOException("Save holds an unknown item");
+            }
+        }
+
+        int[] cells = new int[cellCount];
+        byte[] flags = new byte[cellCount];
+        Items[] items = new Items[cellCount];
+        String[] descriptions = new String[cellCount];
+        int cellLimit = template.getWidth() * template.getHeight();
+        for (int i = 0; i < cellCount; i++) {
+            int at = HEADER_SIZE + i * CELL_ENTRY_SIZE;
+            cells[i] = buffer.getInt(at);
+            flags[i] = buffer.get(at + 4);
+            int itemId = buffer.get(at + 5);
+            int description = buffer.getInt(at + 8);
+            if (cells[i] < 0 || cells[i] >= cellLimit || (i > 0 && cells[i] <= cells[i - 1])) {
+                throw new IOException("Save holds an invalid cell");
+            }
+            if (itemId >= 0) {
+                items[i] = Items.byId(itemId);
+                if (items[i] == null) {
+                    throw new IOException("Save holds an unknown item");
+                }
+            }
+            if (description >= 0) {
+                descriptions[i] = getString(buffer, description, size);
+            }
+        }
+
+        // Everything is valid; apply it
+        session.getRandom().generator().setState(buffer.getLong(OFF_RANDOM_STATE));
+        map.setDescriptionSeed(buffer.getLong(OFF_DESCRIPTION_SEED));
+        boolean shared = map.getWorld() != null;
+        if (!shared) {
+            map.setOverlay(WorldOverlay.of(cells, flags, items, descriptions));
+        }
+
+        Player player = session.getPlayer();
+        player.setName(name);
+        player.setX(x);
+        player.setY(y);
+        player.setHealth(buffer.getInt(OFF_PLAYER_HEALTH));
+        Inventory inventory = player.getItems();
+        for (int id = 0; id < Items.MAX_ITEMS; id++) {
+            Items item = Items.byId(id);
+            if (item != null) {
+                inventory.setCount(item, counts[id]);
+            }
+        }
+
+        CombatCharacters[] enemies = session.getEnemies().all();
+        for (int i = 0; i < ENEMIES && !shared; i++) {
+            int at = OFF_ENEMIES + i * ENEMY_ENTRY_SIZE;
+            enemies[i].setHealth(buffer.getInt(at));
+            enemies[i].setDead(buffer.get(at + 4) != 0);
+        }
+    }
+
+    /**
+     * @param text a string
+     * @return bytes the string takes in the string table
+     */
+    private static int stringSize(String text) {
+        return 4 + text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Writes a string to the string table.
+     *
+     * @param buffer the snapshot
+     * @param at     where to write
+     * @param text   the string
+     * @return the offset after the string
+     */
+    private static int putString(ByteBuffer buffer, int at, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(at, bytes.length);
+        buffer.put(at + 4, bytes);
+        return at + 4 + bytes.length;
+    }
+
+    /**
+     * Reads a string from the string table.
+     *
+     * @param buffer the snapshot
+     * @param at     where the string starts
+     * @param size   the snapshot size
+     * @return the string
+     * @throws IOException if the string runs past the end of the snapshot
+     */
+    private static String getString(ByteBuffer buffer, int at, int size) throws IOException {
+        if (at < HEADER_SIZE || at > size - 4) {
+            throw new IOException("Save holds an invalid string");
+        }
+        int length = buffer.getInt(at);
+        if (length < 0 || length > size - at - 4) {
+            throw new IOException("Save holds an invalid string");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
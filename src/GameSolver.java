@@ -0,0 +1,1123 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Explores every state the game can reach, to find the fewest commands that
+ * beat Emperor Poutine and the states from which he can no longer be beaten.
+ * Run it after changing the game's content: it fails if the game cannot be
+ * won and reports soft-locks and content no playthrough reaches.
+ * <p>
+ * A state is packed into a {@code long}: the player's cell, the items held as
+ * a bitset, a bit per place whose event has been triggered, a bit per place
+ * whose item has been taken and a bit per enemy still alive. Health is not
+ * part of the state. A fight is collapsed to its outcomes: a win, whose chance
+ * {@link CombatSolver} computes for the player at full health with the items
+ * and every Stimpack collected so far, or an escape, which is always possible.
+ * A fight counts as winnable only if that chance is at least a minimum, 50%
+ * unless set otherwise, so a route that beats Emperor Poutine only by a fluke
+ * does not count as a win. Dying ends the game and leads to no state. The
+ * transitions follow the rules of {@link App}'s commands, {@code use} and
+ * {@code solve}; moving, taking, using, solving and fighting each count as one
+ * command.
+ * <p>
+ * The search is a breadth-first search, one level at a time. Each level's
+ * frontier is split across a fork-join pool, and states are recorded in a
+ * lock-free open-addressing table of packed states that is grown between
+ * levels. Of the ways to reach a state within one level the one whose fights
+ * are likeliest to be won is kept, ties broken by command and by the order of
+ * the level before, so the result does not depend on how the work was split.
+ * The route reported is the likeliest to win among the shortest. A reachable
+ * state is soft-locked if no path from it leads to a win; these are found by
+ * sweeping the states backwards until nothing changes.
+ * <p>
+ * Usage: {@code java GameSolver [threads] [minWinChance]}, the chance from 0
+ * to 1.
+ */
+public class GameSolver {
+    /** Number of frontier states expanded by one task. */
+    private static final int STATES_PER_TASK = 256;
+
+    /** Most transitions leaving one state. */
+    private static final int MAX_EDGES = 12;
+
+    /** Bits of the held items, one per item id. */
+    private static final int ITEM_BITS = 16;
+
+    /** Bits of the parent's number in a packed way of reaching a state. */
+    private static final int PARENT_BITS = 26;
+
+    /** Bits of the transition label in a packed way of reaching a state. */
+    private static final int LABEL_BITS = 7;
+
+    /** Outcome of a transition that is not a fight. */
+    private static final int NO_FIGHT = 0;
+
+    /** Outcome of a transition that wins a fight. */
+    private static final int WON = 1;
+
+    /** Outcome of a transition that escapes a fight. */
+    private static final int FLED = 2;
+
+    /** Least chance of winning a fight for it to count as winnable, by default. */
+    public static final double DEFAULT_MIN_WIN_CHANCE = 0.5;
+
+    /** Indexes of the enemies in {@link Enemies#all()}. */
+    private static final int DROID = 0, ZEP_ZOP = 1, MASTERMIND = 2, ZIG = 3, BOSS = 4;
+
+    /** Pool the levels are expanded on. */
+    private final ForkJoinPool pool;
+
+    /** The world explored. */
+    private final WorldTemplate world;
+
+    /** Solves the fights. */
+    private final CombatSolver combatSolver;
+
+    /** Least chance of winning a fight for it to count as winnable. */
+    private final double minWinChance;
+
+    /** The enemies at full health, in the order of {@link Enemies#all()}. */
+    private final CombatCharacters[] enemies = new Enemies().all();
+
+    /** Whether each enemy drops a Stimpack. */
+    private final boolean[] dropsStimpack = new boolean[enemies.length];
+
+    /** Held-item bits each enemy drops, other than Stimpacks. */
+    private final long[] lootBits = new long[enemies.length];
+
+    /** Cells of the places with an event, ascending. */
+    private final int[] eventCells;
+
+    /** Cells of the places with a starting item, ascending. */
+    private final int[] itemCells;
+
+    /** The player's starting health. */
+    private final int startHealth;
+
+    /** The Stimpacks the player starts with. */
+    private final int startStimpacks;
+
+    /** The packed starting state. */
+    private final long startState;
+
+    /** Mask of the player's cell, the lowest bits of a state. */
+    private final long cellMask;
+
+    /** Position of the held items in a state. */
+    private final int itemsShift;
+
+    /** Position of the triggered-event bits in a state. */
+    private final int eventsShift;
+
+    /** Position of the taken-item bits in a state. */
+    private final int takenShift;
+
+    /** Position of the enemy-alive bits in a state. */
+    private final int aliveShift;
+
+    /** Chance of winning each fight, by {@link #fightKey}; filled as fights are met. */
+    private final Map<Integer, Float> winChances = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a solver for a world that counts a fight as winnable from
+     * {@link #DEFAULT_MIN_WIN_CHANCE}.
+     *
+     * @param world the world to explore, starting with a new player
+     * @param pool  the fork-join pool to search on
+     * @throws IllegalArgumentException if a state of the world does not fit in
+     *                                  64 bits
+     */
+    public GameSolver(WorldTemplate world, ForkJoinPool pool) {
+        this(world, pool, DEFAULT_MIN_WIN_CHANCE);
+    }
+
+    /**
+     * Creates a solver for a world.
+     *
+     * @param world        the world to explore, starting with a new player
+     * @param pool         the fork-join pool to search on
+     * @param minWinChance least chance of winning a fight, at full health, for
+     *                     it to count as winnable; above 0 and at most 1
+     * @throws IllegalArgumentException if a state of the world does not fit in
+     *                                  64 bits, or the chance is out of range
+     */
+    public GameSolver(WorldTemplate world, ForkJoinPool pool, double minWinChance) {
+        if (!(minWinChance > 0 && minWinChance <= 1)) {
+            throw new IllegalArgumentException("minWinChance must be above 0 and at most 1: " + minWinChance);
+        }
+        this.world = world;
+        this.pool = pool;
+        this.combatSolver = new CombatSolver(pool);
+        this.minWinChance = minWinChance;
+
+        int events = 0, items = 0;
+        int[] eventCells = new int[world.getPlaceCount()];
+        int[] itemCells = new int[world.getPlaceCount()];
+        for (int i = 0; i < world.getPlaceCount(); i++) {
+            int cell = world.getPlaceCell(i);
+            if (world.hasEvent(cell)) {
+                eventCells[events++] = cell;
+            }
+            if (world.getItem(cell) != null) {
+                itemCells[items++] = cell;
+            }
+        }
+        this.eventCells = Arrays.copyOf(eventCells, events);
+        this.itemCells = Arrays.copyOf(itemCells, items);
+
+        long cells = (long) world.getWidth() * world.getHeight();
+        int cellBits = 64 - Long.numberOfLeadingZeros(cells - 1);
+        this.cellMask = (1L << cellBits) - 1;
+        this.itemsShift = cellBits;
+        this.eventsShift = itemsShift + ITEM_BITS;
+        this.takenShift = eventsShift + events;
+        this.aliveShift = takenShift + items;
+        if (aliveShift + enemies.length > 63) {
+            throw new IllegalArgumentException("A state of a " + world.getWidth() + "x" + world.getHeight()
+                    + " world does not fit in 64 bits");
+        }
+
+        for (int e = 0; e < enemies.length; e++) {
+            for (Items item : CombatEngine.loot(enemies[e])) {
+                if (item == Items.STIMPACK) {
+                    dropsStimpack[e] = true;
+                } else {
+                    lootBits[e] |= itemBit(item);
+                }
+            }
+        }
+
+        Player player = new Player();
+        long state = world.cell(player.getX(), player.getY());
+        for (int id = 0; id < Items.MAX_ITEMS; id++) {
+            Items item = Items.byId(id);
+            if (item != null && item != Items.STIMPACK && player.hasItem(item)) {
+                state |= itemBit(item);
+            }
+        }
+        for (int e = 0; e < enemies.length; e++) {
+            state |= 1L << aliveShift + e;
+        }
+        this.startState = state;
+        this.startHealth = player.getHealth();
+        this.startStimpacks = player.countItem(Items.STIMPACK);
+    }
+
+    /**
+     * What a search found.
+     */
+    public static class Result {
+        /** The solver that searched, to describe states. */
+        private final GameSolver solver;
+
+        /** Every reachable state, in the order found: level by level, ascending within a level. */
+        private final long[] states;
+
+        /** The level of each state, its distance in commands from the start. */
+        private final int[] levels;
+
+        /** The packed best way of reaching each state. */
+        private final long[] vias;
+
+        /** Whether a win can still be reached from each state. */
+        private final boolean[] canWin;
+
+        /** Number of the first won state found, or -1 if the game cannot be won. */
+        private final int win;
+
+        /** Time the search took in nanoseconds. */
+        private final long nanos;
+
+        Result(GameSolver solver, long[] states, int[] levels, long[] vias, boolean[] canWin, int win,
+                long nanos) {
+            this.solver = solver;
+            this.states = states;
+            this.levels = levels;
+            this.vias = vias;
+            this.canWin = canWin;
+            this.win = win;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return number of reachable states
+         */
+        public int getStates() {
+            return states.length;
+        }
+
+        /**
+         * @return number of commands in the shortest winning route, or -1 if the
+         *         game cannot be won with fights at the minimum chance
+         */
+        public int getWinningMoves() {
+            return win >= 0 ? levels[win] : -1;
+        }
+
+        /**
+         * @return the chance of winning every fight on the likeliest of the
+         *         shortest winning routes at full health, or 0 if the game
+         *         cannot be won
+         */
+        public double getWinningChance() {
+            return win >= 0 ? chance(vias[win]) : 0;
+        }
+
+        /**
+         * @return number of reachable states from which the game can no longer
+         *         be won
+         */
+        public int getSoftLocked() {
+            int count = 0;
+            for (boolean b : canWin) {
+                if (!b) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Describes the search: the likeliest of the shortest winning routes
+         * command by command, the kinds of soft-locked state, and the items,
+         * events, enemies and cells no playthrough reaches.
+         *
+         * @return the report, one line per entry
+         */
+        public String report() {
+            StringBuilder out = new StringBuilder();
+            int maxLevel = levels.length > 0 ? levels[levels.length - 1] : 0;
+            out.append(String.format("Explored %,d states in %d levels in %.1f ms, counting fights won at least"
+                    + " %.3g%% of the time.%n", states.length, maxLevel + 1, nanos / 1e6, solver.minWinChance * 100));
+            if (win < 0) {
+                out.append("Emperor Poutine cannot be beaten.\n");
+            } else {
+                out.append(String.format("Fewest commands to beat Emperor Poutine: %d. The likeliest such route"
+                        + " wins its fights %.3g%% of the time at full health:%n", levels[win],
+                        getWinningChance() * 100));
+                int[] route = new int[levels[win] + 1];
+                for (int id = win, i = route.length - 1; i >= 0; i--) {
+                    route[i] = id;
+                    id = parent(vias[id]);
+                }
+                for (int i = 1; i < route.length; i++) {
+                    out.append(String.format("%4d. %-8s %s%n", i, solver.transition(vias[route[i]],
+                            vias[route[i - 1]]), solver.describeCell(states[route[i]])));
+                }
+            }
+
+            // Soft-locks, grouped by everything but the player's cell
+            Map<Long, int[]> kinds = new LinkedHashMap<>();
+            for (int id = 0; id < states.length; id++) {
+                if (!canWin[id]) {
+                    int[] kind = kinds.computeIfAbsent(states[id] & ~solver.cellMask, k -> new int[] { 0, -1 });
+                    kind[0]++;
+                    if (kind[1] < 0 && (levels[id] == 0 || canWin[parent(vias[id])])) {
+                        kind[1] = id;
+                    }
+                }
+            }
+            if (kinds.isEmpty()) {
+                out.append("No reachable state is soft-locked.\n");
+            } else {
+                out.append(String.format("Soft-locked: %,d reachable states can no longer win, of %d kinds:%n",
+                        getSoftLocked(), kinds.size()));
+                for (int[] kind : kinds.values()) {
+                    int id = kind[1] >= 0 ? kind[1] : 0;
+                    out.append(String.format("  %,d states, first after %d commands, by %s at %s: %s%n", kind[0],
+                            levels[id], solver.transition(vias[id], id > 0 ? vias[parent(vias[id])] : 0),
+                            solver.describeCell(states[id]), solver.describeProgress(states[id])));
+                }
+            }
+            out.append(solver.unreached(states));
+            return out.toString();
+        }
+    }
+
+    /**
+     * Explores every reachable state.
+     *
+     * @return what the search found
+     */
+    public Result solve() {
+        long started = System.nanoTime();
+        Visited visited = new Visited(1024);
+        visited.visit(startState, 1, via(1f, 0, 0));
+        long[] frontier = { startState };
+        long[] order = new long[1024];
+        int size = 0;
+        int win = -1;
+        for (int level = 0; frontier.length > 0; level++) {
+            // Number the level in order, so that the parents recorded by the next level are stable
+            int first = size;
+            if (size + frontier.length > order.length) {
+                order = Arrays.copyOf(order, Math.max(order.length * 2, size + frontier.length));
+            }
+            boolean winLevel = win < 0;
+            float winChance = -1;
+            for (long state : frontier) {
+                visited.setNumber(state, size);
+                order[size++] = state;
+                // Of the first level's wins, keep the likeliest; the first found breaks ties
+                if (winLevel && !alive(state, BOSS)) {
+                    float chance = chance(visited.vias.get(visited.slot(state)));
+                    if (chance > winChance) {
+                        win = size - 1;
+                        winChance = chance;
+                    }
+                }
+            }
+            if (size > 1 << PARENT_BITS) {
+                throw new IllegalStateException("More than " + (1 << PARENT_BITS) + " states to explore");
+            }
+
+            visited.ensureRoom(frontier.length * MAX_EDGES);
+            long[] next = new long[frontier.length * MAX_EDGES];
+            AtomicInteger found = new AtomicInteger();
+            pool.invoke(new ExpandTask(this, visited, frontier, 0, frontier.length, first, level + 2, next, found));
+            frontier = Arrays.copyOf(next, found.get());
+            Arrays.parallelSort(frontier);
+        }
+
+        long[] states = Arrays.copyOf(order, size);
+        int[] levels = new int[size];
+        long[] vias = new long[size];
+        for (int id = 0; id < size; id++) {
+            int slot = visited.slot(states[id]);
+            levels[id] = visited.levels[slot] - 1;
+            vias[id] = visited.vias.get(slot);
+        }
+
+        // Sweep backwards until no state learns that it can reach a win
+        boolean[] canWin = new boolean[size];
+        for (int id = 0; id < size; id++) {
+            canWin[id] = !alive(states[id], BOSS);
+        }
+        SweepTask.Flag changed = new SweepTask.Flag();
+        do {
+            changed.set = false;
+            pool.invoke(new SweepTask(this, visited, states, canWin, 0, size, changed));
+        } while (changed.set);
+
+        return new Result(this, states, levels, vias, canWin, win, System.nanoTime() - started);
+    }
+
+    /**
+     * Lists the states one command away from a state.
+     *
+     * @param state   the state
+     * @param targets receives the states reached
+     * @param labels  receives the label of each transition, see {@link #label}
+     * @param chances receives the chance of each transition succeeding
+     * @return the number of transitions
+     */
+    int expand(long state, long[] targets, int[] labels, float[] chances) {
+        if (!alive(state, BOSS)) {
+            return 0; // the game is won
+        }
+        int height = world.getHeight();
+        int cell = (int) (state & cellMask);
+        int x = cell / height, y = cell % height;
+        long at = state & ~cellMask;
+        int n = 0;
+
+        // Moves
+        if (y + 1 < height) {
+            n = add(targets, labels, chances, n, at | cell + 1, label(Command.NORTH, NO_FIGHT), 1);
+        }
+        if (y > 0) {
+            n = add(targets, labels, chances, n, at | cell - 1, label(Command.SOUTH, NO_FIGHT), 1);
+        }
+        if (x + 1 < world.getWidth()) {
+            n = add(targets, labels, chances, n, at | cell + height, label(Command.EAST, NO_FIGHT), 1);
+        }
+        if (x > 0) {
+            n = add(targets, labels, chances, n, at | cell - height, label(Command.WEST, NO_FIGHT), 1);
+        }
+
+        // take
+        int itemPlace = Arrays.binarySearch(itemCells, cell);
+        if (itemPlace >= 0 && (state & 1L << takenShift + itemPlace) == 0) {
+            Items item = world.getItem(cell);
+            long taken = state | 1L << takenShift + itemPlace | (item != Items.STIMPACK ? itemBit(item) : 0);
+            n = add(targets, labels, chances, n, taken, label(Command.TAKE, NO_FIGHT), 1);
+        }
+
+        // solve
+        if (x == 3 && y == 1 && !triggered(state, cell)) {
+            n = add(targets, labels, chances, n, trigger(state, cell) | itemBit(Items.GATE_KEY),
+                    label(Command.SOLVE, NO_FIGHT), 1);
+        } else if (x == 1 && y == 1 && !triggered(state, cell)) {
+            n = add(targets, labels, chances, n, trigger(state, cell) | itemBit(Items.CRYO_CORE),
+                    label(Command.SOLVE, NO_FIGHT), 1);
+        }
+
+        // use
+        if (x == 2 && y == 3) {
+            if (!triggered(state, cell) && holds(state, Items.CRYO_CORE)) {
+                long used = trigger(state, cell) & ~itemBit(Items.CRYO_CORE) | itemBit(Items.LASER_RIFLE);
+                n = add(targets, labels, chances, n, used, label(Command.USE, NO_FIGHT), 1);
+            }
+        } else if (x == 2 && y == 4) {
+            if (alive(state, ZIG) && !triggered(state, cell) && holds(state, Items.ORE_CHUNK)) {
+                long used = trigger(state, cell) & ~itemBit(Items.ORE_CHUNK) | itemBit(Items.WARP_DRIVE_FRAGMENT_1);
+                n = add(targets, labels, chances, n, used, label(Command.USE, NO_FIGHT), 1);
+            }
+        } else if (x == 0 && y == 0) {
+            if (holds(state, Items.GATE_KEY) && holdsAll(state, Items.FRAGMENTS)) {
+                long keyUsed = state & ~itemBit(Items.GATE_KEY);
+                n = fight(keyUsed, BOSS, Command.USE, targets, labels, chances, n);
+            }
+        } else if (x == 4 && y == 3) {
+            if (!triggered(state, cell) && holds(state, Items.IXYLL_FRUIT)) {
+                long used = trigger(state, cell) & ~itemBit(Items.IXYLL_FRUIT) | itemBit(Items.SHIELD_MODULE);
+                n = add(targets, labels, chances, n, used, label(Command.USE, NO_FIGHT), 1);
+            }
+        }
+
+        // fight
+        int enemy = -1;
+        if (x == 2 && y == 4) {
+            enemy = alive(state, ZIG) && !triggered(state, cell) ? ZIG : -1;
+        } else if (x == 0 && y == 3) {
+            enemy = alive(state, ZEP_ZOP) ? ZEP_ZOP : -1;
+        } else if (x == 1 && y == 1) {
+            enemy = alive(state, MASTERMIND) ? MASTERMIND : -1;
+        } else if (x == 4 && y == 0) {
+            enemy = alive(state, DROID) ? DROID : -1;
+        }
+        if (enemy >= 0) {
+            n = fight(state, enemy, Command.FIGHT, targets, labels, chances, n);
+        }
+        return n;
+    }
+
+    /**
+     * Adds the outcomes of a fight: a win, if its chance is at least the
+     * minimum, and an escape if it changes anything.
+     *
+     * @param state   the state as the fight starts
+     * @param enemy   the enemy's index
+     * @param command the command that starts the fight
+     * @param targets receives the states reached
+     * @param labels  receives the labels
+     * @param chances receives the chances
+     * @param n       transitions added so far
+     * @return transitions added now
+     */
+    private int fight(long state, int enemy, Command command, long[] targets, int[] labels, float[] chances,
+            int n) {
+        float chance = winChance(state, enemy);
+        if (chance > 0 && chance >= minWinChance) {
+            long won = state & ~(1L << aliveShift + enemy) | lootBits[enemy];
+            n = add(targets, labels, chances, n, won, label(command, WON), chance);
+        }
+        return add(targets, labels, chances, n, state, label(command, FLED), 1);
+    }
+
+    /**
+     * Stores a transition unless it leads back to where it started.
+     *
+     * @param targets receives the state reached
+     * @param labels  receives the label
+     * @param chances receives the chance
+     * @param n       transitions stored so far
+     * @param target  the state reached
+     * @param label   the label
+     * @param chance  the chance of the transition succeeding
+     * @return transitions stored now
+     */
+    private static int add(long[] targets, int[] labels, float[] chances, int n, long target, int label,
+            float chance) {
+        if (n > 0 && target == targets[n - 1] && label == labels[n - 1]) {
+            return n;
+        }
+        targets[n] = target;
+        labels[n] = label;
+        chances[n] = chance;
+        return n + 1;
+    }
+
+    /**
+     * Returns the chance of winning a fight at full health with what a state
+     * holds, computing it the first time it is needed.
+     *
+     * @param state the state as the fight starts
+     * @param enemy the enemy's index
+     * @return the chance, from 0 to 1
+     */
+    private float winChance(long state, int enemy) {
+        boolean rifle = holds(state, Items.LASER_RIFLE);
+        boolean shield = holds(state, Items.SHIELD_MODULE);
+        int stimpacks = startStimpacks;
+        for (int e = 0; e < enemies.length; e++) {
+            if (dropsStimpack[e] && !alive(state, e)) {
+                stimpacks++;
+            }
+        }
+        int key = fightKey(enemy, rifle, shield, stimpacks);
+        Float chance = winChances.get(key);
+        if (chance == null) {
+            CombatSimulator.Loadout loadout = new CombatSimulator.Loadout(rifle, shield, stimpacks);
+            CombatCharacters foe = enemies[enemy];
+            chance = (float) combatSolver.solve(foe, loadout, startHealth, 0)
+                    .winProbability(startHealth, foe.getHealth(), stimpacks);
+            winChances.put(key, chance);
+        }
+        return chance;
+    }
+
+    /**
+     * @param enemy     the enemy's index
+     * @param rifle     whether the player has the Laser Rifle
+     * @param shield    whether the player has the Shield Module
+     * @param stimpacks the player's Stimpacks
+     * @return a key for {@link #winChances}
+     */
+    private static int fightKey(int enemy, boolean rifle, boolean shield, int stimpacks) {
+        return ((enemy * 2 + (rifle ? 1 : 0)) * 2 + (shield ? 1 : 0)) * 256 + stimpacks;
+    }
+
+    /**
+     * @param item an item
+     * @return the item's bit in a state
+     */
+    private long itemBit(Items item) {
+        if (item.getId() >= ITEM_BITS) {
+            throw new IllegalStateException("Item id too large to solve: " + item.getName());
+        }
+        return 1L << itemsShift + item.getId();
+    }
+
+    /**
+     * @param state a state
+     * @param item  an item
+     * @return whether the state holds the item
+     */
+    private boolean holds(long state, Items item) {
+        return (state & itemBit(item)) != 0;
+    }
+
+    /**
+     * @param state a state
+     * @param items some items
+     * @return whether the state holds every one of them
+     */
+    private boolean holdsAll(long state, Items[] items) {
+        for (Items item : items) {
+            if (!holds(state, item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param state a state
+     * @param enemy an enemy's index
+     * @return whether the enemy is alive in the state
+     */
+    private boolean alive(long state, int enemy) {
+        return (state & 1L << aliveShift + enemy) != 0;
+    }
+
+    /**
+     * @param state a state
+     * @param cell  a place with an event
+     * @return whether the place's event has been triggered in the state
+     */
+    private boolean triggered(long state, int cell) {
+        return (state & 1L << eventsShift + Arrays.binarySearch(eventCells, cell)) != 0;
+    }
+
+    /**
+     * @param state a state
+     * @param cell  a place with an event
+     * @return the state with the place's event triggered
+     */
+    private long trigger(long state, int cell) {
+        return state | 1L << eventsShift + Arrays.binarySearch(eventCells, cell);
+    }
+
+    /**
+     * @param command the command
+     * @param outcome {@link #NO_FIGHT}, {@link #WON} or {@link #FLED}
+     * @return the label of a transition
+     */
+    private static int label(Command command, int outcome) {
+        return command.ordinal() << 2 | outcome;
+    }
+
+    /**
+     * Packs a way of reaching a state so that the better of two ways is the
+     * larger number: a higher chance of winning its fights, then a lower
+     * label, then a lower parent.
+     *
+     * @param chance the chance of winning every fight on the way
+     * @param label  the label of the last transition
+     * @param parent the number of the state it leaves from
+     * @return the packed way
+     */
+    static long via(float chance, int label, int parent) {
+        int labelMask = (1 << LABEL_BITS) - 1, parentMask = (1 << PARENT_BITS) - 1;
+        return (long) Float.floatToIntBits(chance) << LABEL_BITS + PARENT_BITS
+                | (long) (~label & labelMask) << PARENT_BITS | ~parent & parentMask;
+    }
+
+    /**
+     * @param via a packed way of reaching a state
+     * @return its chance of winning every fight on the way
+     */
+    static float chance(long via) {
+        return Float.intBitsToFloat((int) (via >>> LABEL_BITS + PARENT_BITS));
+    }
+
+    /**
+     * @param via a packed way of reaching a state
+     * @return the label of its last transition
+     */
+    static int label(long via) {
+        return ~(int) (via >>> PARENT_BITS) & (1 << LABEL_BITS) - 1;
+    }
+
+    /**
+     * @param via a packed way of reaching a state
+     * @return the number of the state it leaves from
+     */
+    static int parent(long via) {
+        return ~(int) via & (1 << PARENT_BITS) - 1;
+    }
+
+    /**
+     * Names the transition a way of reaching a state ends with, such as
+     * {@code fight (won 97.2%)}.
+     *
+     * @param via       the way of reaching the state
+     * @param parentVia the way of reaching the state it leaves from, to work
+     *                  out the chance of a fight
+     * @return the command and outcome
+     */
+    String transition(long via, long parentVia) {
+        int label = label(via);
+        String command = Command.values()[label >> 2].getWords()[0];
+        return switch (label & 3) {
+            case WON -> String.format("%s (won %.3g%%)", command, 100.0 * chance(via) / chance(parentVia));
+            case FLED -> command + " (fled)";
+            default -> command;
+        };
+    }
+
+    /**
+     * @param state a state
+     * @return the name and coordinates of the player's cell
+     */
+    String describeCell(long state) {
+        int cell = (int) (state & cellMask);
+        return world.getName(cell) + " (" + cell / world.getHeight() + ", " + cell % world.getHeight() + ")";
+    }
+
+    /**
+     * @param state a state
+     * @return the items held and the enemies still alive
+     */
+    String describeProgress(long state) {
+        StringBuilder text = new StringBuilder("holding");
+        int held = 0;
+        for (int id = 0; id < ITEM_BITS; id++) {
+            Items item = Items.byId(id);
+            if (item != null && item != Items.STIMPACK && holds(state, item)) {
+                text.append(held++ == 0 ? " " : ", ").append(item.getName());
+            }
+        }
+        if (held == 0) {
+            text.append(" nothing");
+        }
+        text.append("; alive:");
+        for (int e = 0; e < enemies.length; e++) {
+            if (alive(state, e)) {
+                text.append(' ').append(enemies[e].getName()).append(',');
+            }
+        }
+        text.setLength(text.length() - 1);
+        return text.toString();
+    }
+
+    /**
+     * Lists the items never held, events never triggered, enemies never
+     * defeated and cells never visited in any reachable state.
+     *
+     * @param states every reachable state
+     * @return the report, one line per kind, or a line saying all is reached
+     */
+    String unreached(long[] states) {
+        long seen = 0;
+        boolean[] visitedCells = new boolean[(int) Math.min(cellMask + 1, Integer.MAX_VALUE)];
+        for (long state : states) {
+            seen |= state ^ (startState & ~cellMask & (-1L << aliveShift)); // alive bits flip on defeat
+            visitedCells[(int) (state & cellMask)] = true;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int id = 0; id < ITEM_BITS; id++) {
+            Items item = Items.byId(id);
+            if (item != null && item != Items.STIMPACK && (seen & itemBit(item)) == 0) {
+                text.append("  item never held: ").append(item.getName()).append('\n');
+            }
+        }
+        for (int i = 0; i < eventCells.length; i++) {
+            if ((seen & 1L << eventsShift + i) == 0) {
+                text.append("  event never triggered: ").append(describeCell(eventCells[i])).append('\n');
+            }
+        }
+        for (int e = 0; e < enemies.length; e++) {
+            if ((seen & 1L << aliveShift + e) == 0) {
+                text.append("  enemy never defeated: ").append(enemies[e].getName()).append('\n');
+            }
+        }
+        int unvisited = 0;
+        for (int cell = 0; cell < (long) world.getWidth() * world.getHeight(); cell++) {
+            if (!visitedCells[cell]) {
+                unvisited++;
+            }
+        }
+        if (unvisited > 0) {
+            text.append("  cells never visited: ").append(unvisited).append('\n');
+        }
+        return text.isEmpty() ? "Every item, event, enemy and cell can be reached.\n" : "Never reached:\n" + text;
+    }
+
+    /**
+     * The states found so far: a lock-free open-addressing table of packed
+     * states, each with its level and best way of reaching it. Only grown
+     * between levels, when no thread is inserting.
+     */
+    private static final class Visited {
+        /** Marks an empty slot; no state has every bit set. */
+        private static final long EMPTY = -1;
+
+        /** The states. */
+        private AtomicLongArray keys;
+
+        /** The best way of reaching each state, see {@link GameSolver#via}; 0 before the first. */
+        private AtomicLongArray vias;
+
+        /** The level of each state plus one; 0 while it is being added. */
+        private int[] levels;
+
+        /** The number of each state, in the order found. */
+        private int[] numbers;
+
+        /** States in the table. */
+        private final AtomicInteger size = new AtomicInteger();
+
+        /**
+         * @param capacity slots in the table; a power of two
+         */
+        Visited(int capacity) {
+            allocate(capacity);
+        }
+
+        /**
+         * Replaces the arrays with empty ones.
+         *
+         * @param capacity slots in the new arrays
+         */
+        private void allocate(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            vias = new AtomicLongArray(capacity);
+            levels = new int[capacity];
+            numbers = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, EMPTY);
+            }
+        }
+
+        /**
+         * Grows the table so that it stays at most half full after adding some
+         * states.
+         *
+         * @param more states that may be added
+         */
+        void ensureRoom(int more) {
+            int capacity = keys.length();
+            long needed = 2L * (size.get() + (long) more);
+            if (needed <= capacity) {
+                return;
+            }
+            while (capacity < needed) {
+                capacity *= 2;
+            }
+            AtomicLongArray oldKeys = keys, oldVias = vias;
+            int[] oldLevels = levels, oldNumbers = numbers;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length(); i++) {
+                long key = oldKeys.get(i);
+                if (key != EMPTY) {
+                    int slot = slot(key);
+                    keys.set(slot, key);
+                    vias.set(slot, oldVias.get(i));
+                    levels[slot] = oldLevels[i];
+                    numbers[slot] = oldNumbers[i];
+                }
+            }
+        }
+
+        /**
+         * @param state a state
+         * @return the slot holding the state, or the empty slot where it would go
+         */
+        int slot(long state) {
+            int mask = keys.length() - 1;
+            int slot = (int) GameRandom.mix64(state) & mask;
+            long key;
+            while ((key = keys.get(slot)) != EMPTY && key != state) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Records reaching a state, adding it if it is new and keeping the
+         * better way of reaching it if it was added in the same level.
+         *
+         * @param state the state
+         * @param level the level being found, plus one
+         * @param via   the way of reaching it
+         * @return true if the state is new
+         */
+        boolean visit(long state, int level, long via) {
+            int mask = keys.length() - 1;
+            int slot = (int) GameRandom.mix64(state) & mask;
+            while (true) {
+                long key = keys.get(slot);
+                if (key == EMPTY && keys.compareAndSet(slot, EMPTY, state)) {
+                    levels[slot] = level;
+                    size.incrementAndGet();
+                    raise(slot, via);
+                    return true;
+                }
+                key = keys.get(slot);
+                if (key == state) {
+                    int found = levels[slot];
+                    if (found == 0 || found == level) {
+                        raise(slot, via);
+                    }
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Keeps the larger of a slot's way and another.
+         *
+         * @param slot the slot
+         * @param via  the other way
+         */
+        private void raise(int slot, long via) {
+            long old;
+            while ((old = vias.get(slot)) < via && !vias.compareAndSet(slot, old, via)) {
+                // another thread raised it first; compare again
+            }
+        }
+
+        /**
+         * Numbers a state once its level is complete.
+         *
+         * @param state  the state
+         * @param number its number
+         */
+        void setNumber(long state, int number) {
+            numbers[slot(state)] = number;
+        }
+
+        /**
+         * @param state a state in the table
+         * @return its number
+         */
+        int number(long state) {
+            return numbers[slot(state)];
+        }
+    }
+
+    /**
+     * Expands a range of one level's frontier, adding the new states it finds
+     * to the next frontier.
+     */
+    @SuppressWarnings("serial") // a fork-join task, never serialized
+    private static class ExpandTask extends RecursiveAction {
+        /** The solver. */
+        private final GameSolver solver;
+
+        /** The states found so far. */
+        private final Visited visited;
+
+        /** The level being expanded. */
+        private final long[] frontier;
+
+        /** First index to expand, inclusive. */
+        private final int from;
+
+        /** Last index to expand, exclusive. */
+        private final int to;
+
+        /** Number of the frontier's first state. */
+        private final int firstNumber;
+
+        /** The next level plus one, as recorded in {@link Visited#levels}. */
+        private final int nextLevel;
+
+        /** The next frontier. */
+        private final long[] next;
+
+        /** States in the next frontier. */
+        private final AtomicInteger found;
+
+        ExpandTask(GameSolver solver, Visited visited, long[] frontier, int from, int to, int firstNumber,
+                int nextLevel, long[] next, AtomicInteger found) {
+            this.solver = solver;
+            this.visited = visited;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.firstNumber = firstNumber;
+            this.nextLevel = nextLevel;
+            this.next = next;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > STATES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ExpandTask(solver, visited, frontier, from, mid, firstNumber, nextLevel, next, found),
+                        new ExpandTask(solver, visited, frontier, mid, to, firstNumber, nextLevel, next, found));
+                return;
+            }
+            long[] targets = new long[MAX_EDGES];
+            int[] labels = new int[MAX_EDGES];
+            float[] chances = new float[MAX_EDGES];
+            long[] added = new long[(to - from) * MAX_EDGES];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                long state = frontier[i];
+                float chance = chance(visited.vias.get(visited.slot(state)));
+                int edges = solver.expand(state, targets, labels, chances);
+                for (int e = 0; e < edges; e++) {
+                    long via = via(chance * chances[e], labels[e], firstNumber + i);
+                    if (visited.visit(targets[e], nextLevel, via)) {
+                        added[count++] = targets[e];
+                    }
+                }
+            }
+            int at = found.getAndAdd(count);
+            System.arraycopy(added, 0, next, at, count);
+        }
+    }
+
+    /**
+     * Marks the states in a range that have a transition to a state that can
+     * reach a win.
+     */
+    @SuppressWarnings("serial") // a fork-join task, never serialized
+    private static class SweepTask extends RecursiveAction {
+        /**
+         * Set when a sweep marks any state.
+         */
+        static final class Flag {
+            /** Whether a state was marked; written only from false to true. */
+            volatile boolean set;
+        }
+
+        /** The solver. */
+        private final GameSolver solver;
+
+        /** Every reachable state. */
+        private final Visited visited;
+
+        /** Every reachable state, by number. */
+        private final long[] states;
+
+        /** Whether each state can reach a win. */
+        private final boolean[] canWin;
+
+        /** First number to sweep, inclusive. */
+        private final int from;
+
+        /** Last number to sweep, exclusive. */
+        private final int to;
+
+        /** Set if the sweep marks any state. */
+        private final Flag changed;
+
+        SweepTask(GameSolver solver, Visited visited, long[] states, boolean[] canWin, int from, int to,
+                Flag changed) {
+            this.solver = solver;
+            this.visited = visited;
+            this.states = states;
+            this.canWin = canWin;
+            this.from = from;
+            this.to = to;
+            this.changed = changed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > STATES_PER_TASK * 4) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SweepTask(solver, visited, states, canWin, from, mid, changed),
+                        new SweepTask(solver, visited, states, canWin, mid, to, changed));
+                return;
+            }
+            long[] targets = new long[MAX_EDGES];
+            int[] labels = new int[MAX_EDGES];
+            float[] chances = new float[MAX_EDGES];
+            boolean marked = false;
+            // Backwards, so that a win found late in the range spreads through it in one sweep
+            for (int id = to - 1; id >= from; id--) {
+                if (canWin[id]) {
+                    continue;
+                }
+                int edges = solver.expand(states[id], targets, labels, chances);
+                for (int e = 0; e < edges; e++) {
+                    if (canWin[visited.number(targets[e])]) {
+                        canWin[id] = true;
+                        marked = true;
+                        break;
+                    }
+                }
+            }
+            if (marked) {
+                changed.set = true;
+            }
+        }
+    }
+
+    /**
+     * Solves the game on the configured world and prints the report.
+     * Exits with status 1 if the game cannot be won with every fight on the
+     * way won at least the minimum chance.
+     *
+     * @param args the number of threads and the least chance of winning a
+     *             fight, from 0 to 1, both optional
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        double minWinChance = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_MIN_WIN_CHANCE;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Result result = new GameSolver(WorldTemplate.DEFAULT, pool, minWinChance).solve();
+            System.out.print(result.report());
+            if (result.getWinningMoves() < 0) {
+                System.exit(1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
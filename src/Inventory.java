@@ -0,0 +1,194 @@
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * The items a player carries, indexed by {@link Items#getId() item ID}.
+ * Which items are held is kept as one bit per ID in a single {@code long},
+ * and how many of each as a small count array, so checking for an item,
+ * taking one or testing for a whole set of items never scans or compares
+ * names.
+ * <p>
+ * Items are listed in ID order, which is the order they are declared in
+ * {@link Items}.
+ */
+public class Inventory {
+    /** One bit per item ID, set while at least one of that item is held. */
+    private long held;
+
+    /** How many of each item are held, indexed by item ID. */
+    private final int[] counts = new int[Items.MAX_ITEMS];
+
+    /** Total number of items held. */
+    private int size;
+
+    /**
+     * Returns the bit mask covering a set of items, for {@link #hasAll(long)}.
+     *
+     * @param items the items
+     * @return a mask with the bit of each item's ID set
+     */
+    public static long mask(Items... items) {
+        long mask = 0;
+        for (Items item : items) {
+            mask |= 1L << item.getId();
+        }
+        return mask;
+    }
+
+    /**
+     * Adds one of an item.
+     *
+     * @param item the item to add
+     */
+    public void add(Items item) {
+        int id = item.getId();
+        counts[id]++;
+        held |= 1L << id;
+        size++;
+    }
+
+    /**
+     * Removes one of an item.
+     *
+     * @param id the item's ID
+     * @return {@code true} if the item was held and one was removed
+     */
+    public boolean remove(int id) {
+        if (counts[id] == 0) {
+            return false;
+        }
+        if (--counts[id] == 0) {
+            held &= ~(1L << id);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes one of an item.
+     *
+     * @param item the item to remove
+     * @return {@code true} if the item was held and one was removed
+     */
+    public boolean remove(Items item) {
+        return remove(item.getId());
+    }
+
+    /**
+     * Checks whether at least one of an item is held.
+     *
+     * @param id the item's ID
+     * @return {@code true} if the item is held
+     */
+    public boolean has(int id) {
+        return (held & (1L << id)) != 0;
+    }
+
+    /**
+     * Checks whether at least one of an item is held.
+     *
+     * @param item the item
+     * @return {@code true} if the item is held
+     */
+    public boolean has(Items item) {
+        return (held & (1L << item.getId())) != 0;
+    }
+
+    /**
+     * Checks whether every item in a mask is held.
+     *
+     * @param mask a mask from {@link #mask(Items...)}
+     * @return {@code true} if all of the items are held
+     */
+    public boolean hasAll(long mask) {
+        return (held & mask) == mask;
+    }
+
+    /**
+     * @param item the item
+     * @return how many of the item are held
+     */
+    public int count(Items item) {
+        return counts[item.getId()];
+    }
+
+    /**
+     * @return one bit per held item ID
+     */
+    public long getHeld() {
+        return held;
+    }
+
+    /**
+     * @return total number of items held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if nothing is held
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Sets how many of an item are held, e.g. when restoring a saved game.
+     *
+     * @param item  the item
+     * @param count the number held, at least 0
+     */
+    public void setCount(Items item, int count) {
+        int id = item.getId();
+        size += count - counts[id];
+        counts[id] = count;
+        if (count > 0) {
+            held |= 1L << id;
+        } else {
+            held &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Removes every item.
+     */
+    public void clear() {
+        for (long bits = held; bits != 0; bits &= bits - 1) {
+            counts[Long.numberOfTrailingZeros(bits)] = 0;
+        }
+        held = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns a read-only list of the held items, one entry per item held,
+     * that follows later changes to the inventory.
+     *
+     * @return the items, in ID order
+     */
+    public List<Items> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Items get(int index) {
+                if (index < 0) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                int remaining = index;
+                for (long bits = held; bits != 0; bits &= bits - 1) {
+                    int id = Long.numberOfTrailingZeros(bits);
+                    if (remaining < counts[id]) {
+                        return Items.byId(id);
+                    }
+                    remaining -= counts[id];
+                }
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
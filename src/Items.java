@@ -1,25 +1,136 @@
+import java.util.Arrays;
+
 /**
  * Represents an item in the game.
  * Each item has a name and can be used for various gameplay mechanics like
  * healing,
  * unlocking areas, or enhancing combat.
+ * <p>
+ * The constants below are the only items there are. They are registered when
+ * the class loads, each with a stable numeric ID, and never change, so items
+ * are compared by identity or ID rather than by name.
  * 
  * @author George Thodis
  */
 public class Items {
+    /**
+     * Highest number of distinct item types, so that an inventory can track
+     * which items it holds in a single 64-bit word.
+     */
+    public static final int MAX_ITEMS = 64;
+
+    /**
+     * Flag for items the player can carry several of.
+     */
+    private static final int STACKABLE = 1;
+
+    /**
+     * Flag for items that are used up when used or traded.
+     */
+    private static final int CONSUMABLE = 2;
+
+    /**
+     * Every registered item, indexed by ID.
+     */
+    private static final Items[] BY_ID = new Items[MAX_ITEMS];
+
+    /**
+     * Number of registered items.
+     */
+    private static int count;
+
+    /**
+     * Stable numeric ID of the item, used by inventories and saved games.
+     */
+    private final int id;
 
     /**
      * Name of the item
      */
-    private String name;
+    private final String name;
 
     /**
-     * Creates a new item with the given name.
+     * {@link #STACKABLE} and {@link #CONSUMABLE} flags of the item.
+     */
+    private final int flags;
+
+    /**
+     * Damage added to each of the player's attacks while carried.
+     */
+    private final int damageBonus;
+
+    /**
+     * Fraction of incoming damage absorbed while carried.
+     */
+    private final double damageReduction;
+
+    /**
+     * Health restored when the item is used.
+     */
+    private final int healAmount;
+
+    /**
+     * Registers an item with no combat effect.
      *
-     * @param name The name of the item.
+     * @param id    The stable ID of the item.
+     * @param name  The name of the item.
+     * @param flags The item's {@link #STACKABLE} and {@link #CONSUMABLE} flags.
      */
-    public Items(String name) {
+    private Items(int id, String name, int flags) {
+        this(id, name, flags, 0, 0, 0);
+    }
+
+    /**
+     * Registers an item.
+     *
+     * @param id              The stable ID of the item.
+     * @param name            The name of the item.
+     * @param flags           The item's {@link #STACKABLE} and
+     *                        {@link #CONSUMABLE} flags.
+     * @param damageBonus     Damage added to the player's attacks while carried.
+     * @param damageReduction Fraction of incoming damage absorbed while carried.
+     * @param healAmount      Health restored when used.
+     */
+    private Items(int id, String name, int flags, int damageBonus, double damageReduction, int healAmount) {
+        if (BY_ID[id] != null) {
+            throw new IllegalStateException("Item ID " + id + " is used by " + BY_ID[id].name + " and " + name);
+        }
+        this.id = id;
         this.name = name;
+        this.flags = flags;
+        this.damageBonus = damageBonus;
+        this.damageReduction = damageReduction;
+        this.healAmount = healAmount;
+        BY_ID[id] = this;
+        count = Math.max(count, id + 1);
+    }
+
+    /**
+     * Looks up an item by ID.
+     *
+     * @param id The item ID.
+     * @return The item, or null if no item has that ID.
+     */
+    public static Items byId(int id) {
+        return id >= 0 && id < count ? BY_ID[id] : null;
+    }
+
+    /**
+     * Gets every item, in ID order.
+     *
+     * @return A new array of all registered items.
+     */
+    public static Items[] values() {
+        return Arrays.copyOf(BY_ID, count);
+    }
+
+    /**
+     * Gets the item's ID.
+     *
+     * @return The stable numeric ID of the item.
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -32,26 +143,63 @@ public class Items {
     }
 
     /**
-     * Sets the item's name.
+     * Checks whether the player can carry several of this item.
      *
-     * @param name The new name of the item.
+     * @return {@code true} if the item stacks.
      */
-    public void setName(String name) {
-        this.name = name;
+    public boolean isStackable() {
+        return (flags & STACKABLE) != 0;
+    }
+
+    /**
+     * Checks whether the item is used up when used or traded.
+     *
+     * @return {@code true} if the item is consumed.
+     */
+    public boolean isConsumable() {
+        return (flags & CONSUMABLE) != 0;
+    }
+
+    /**
+     * Gets the damage this item adds to each of the player's attacks.
+     *
+     * @return The damage bonus, 0 for items that are not weapons.
+     */
+    public int getDamageBonus() {
+        return damageBonus;
+    }
+
+    /**
+     * Gets the fraction of incoming damage this item absorbs.
+     *
+     * @return The damage reduction, 0 for items that are not shields.
+     */
+    public double getDamageReduction() {
+        return damageReduction;
+    }
+
+    /**
+     * Gets the health this item restores when used.
+     *
+     * @return The heal amount, 0 for items that do not heal.
+     */
+    public int getHealAmount() {
+        return healAmount;
     }
 
-    // Predefined items used throughout the game.
-    public static final Items ORE_CHUNK = new Items("Ore Chunk");
-    public static final Items LASER_RIFLE = new Items("Laser Rifle");
-    public static final Items GATE_KEY = new Items("Gate Key");
-    public static final Items CRYO_CORE = new Items("Cryo Core");
-    public static final Items SHIELD_MODULE = new Items("Shield Module");
-    public static final Items IXYLL_FRUIT = new Items("Ixyll Fruit");
-    public static final Items STIMPACK = new Items("Stimpack");
-    public static final Items WARP_DRIVE_FRAGMENT_1 = new Items("Warp Drive Fragment 1");
-    public static final Items WARP_DRIVE_FRAGMENT_2 = new Items("Warp Drive Fragment 2");
-    public static final Items WARP_DRIVE_FRAGMENT_3 = new Items("Warp Drive Fragment 3");
-    public static final Items WARP_DRIVE_FRAGMENT_4 = new Items("Warp Drive Fragment 4");
+    // Predefined items used throughout the game. IDs are stored in saved
+    // games, so existing IDs must never change.
+    public static final Items ORE_CHUNK = new Items(0, "Ore Chunk", CONSUMABLE);
+    public static final Items LASER_RIFLE = new Items(1, "Laser Rifle", 0, 20, 0, 0);
+    public static final Items GATE_KEY = new Items(2, "Gate Key", CONSUMABLE);
+    public static final Items CRYO_CORE = new Items(3, "Cryo Core", CONSUMABLE);
+    public static final Items SHIELD_MODULE = new Items(4, "Shield Module", 0, 0, 0.3, 0);
+    public static final Items IXYLL_FRUIT = new Items(5, "Ixyll Fruit", CONSUMABLE);
+    public static final Items STIMPACK = new Items(6, "Stimpack", STACKABLE | CONSUMABLE, 0, 0, 50);
+    public static final Items WARP_DRIVE_FRAGMENT_1 = new Items(7, "Warp Drive Fragment 1", 0);
+    public static final Items WARP_DRIVE_FRAGMENT_2 = new Items(8, "Warp Drive Fragment 2", 0);
+    public static final Items WARP_DRIVE_FRAGMENT_3 = new Items(9, "Warp Drive Fragment 3", 0);
+    public static final Items WARP_DRIVE_FRAGMENT_4 = new Items(10, "Warp Drive Fragment 4", 0);
 
     /**
      * Resources array
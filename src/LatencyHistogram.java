@@ -0,0 +1,144 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets whose width grows with the value, in the style
+ * of an HDR histogram: every power of two is split into {@link #SUB_BUCKETS}
+ * equal buckets, so any recorded value is known to within about 6% whether it
+ * is 80 nanoseconds or 8 seconds, and a fixed array covers them all.
+ * <p>
+ * {@link #record(long)} is lock-free and allocates nothing, so many threads
+ * can record into one histogram. Histograms with the same layout can be added
+ * together, which is how {@link GameMetrics} merges its stripes into a single
+ * view.
+ */
+public final class LatencyHistogram {
+    /** Bits of each value kept exactly below its leading one bit. */
+    private static final int SUB_BITS = 4;
+
+    /** Buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Largest power of two tracked; longer durations count as the largest. */
+    private static final int MAX_EXPONENT = 40;
+
+    /** Largest value tracked, about 18 minutes in nanoseconds. */
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    /** Number of buckets. */
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    /** Number of values recorded in each bucket. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /** Sum of all recorded values. */
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.getAndIncrement(index(value));
+        total.getAndAdd(value);
+    }
+
+    /**
+     * Adds every value recorded in another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.getAndAdd(i, count);
+            }
+        }
+        total.getAndAdd(other.total.get());
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return mean of the values recorded in nanoseconds, or 0 if there are none
+     */
+    public long getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : total.get() / count;
+    }
+
+    /**
+     * @return the largest value recorded, to the histogram's precision
+     */
+    public long getMax() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the value that the given percentage of recorded values are at
+     * or below, to the histogram's precision.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the value in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Finds the bucket a value is counted in.
+     *
+     * @param value a value from 0 to {@link #MAX_VALUE}
+     * @return the bucket's index
+     */
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param index a bucket's index
+     * @return the largest value counted in the bucket
+     */
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -2,46 +2,47 @@
  * This class represents a location in the game world.
  * It contains information about the location's name, description, items,
  * hostility, events, and characters.
+ * A Location is a lightweight view of one cell of a {@link GameMap}: the
+ * unchanging parts come from the shared {@link WorldTemplate} and every change
+ * is recorded in the map's own {@link WorldOverlay}, or in its
+ * {@link SharedWorld}'s.
  * 
  * @author Ricky Nguyen
  */
 public class Location {
-    /** The name of the location. */
-    private final String name;
+    /** The map this location belongs to. */
+    private final GameMap map;
 
-    /** A short description of the location. */
-    private final String description;
+    /** The cell number of this location in the map's template. */
+    private final int cell;
 
-    /** A long description of the location. */
-    private String longDescription;
-
-    /** Indicates whether the location contains an item. */
-    private boolean hasItem;
-
-    /** Indicates whether the location is hostile. */
-    private boolean isHostile;
-
-    /** The item present in the location, if any. */
-    private Items item;
+    /**
+     * Constructs a view of one cell of a map.
+     *
+     * @param map  The map the location belongs to.
+     * @param cell The cell number of the location.
+     */
+    Location(GameMap map, int cell) {
+        this.map = map;
+        this.cell = cell;
+    }
 
-    /** Indicates whether a special event in the location has been triggered. */
-    private boolean eventTriggered;
+    /**
+     * Returns the x-coordinate of the location.
+     *
+     * @return The x-coordinate, increasing going east.
+     */
+    public int getX() {
+        return cell / map.getTemplate().getHeight();
+    }
 
     /**
-     * Constructs a Location with name, description, and hostility indicator..
+     * Returns the y-coordinate of the location.
      *
-     * @param name        The name of the location.
-     * @param description A short description of the location.
-     * @param isHostile   Indication of location's hostility.
+     * @return The y-coordinate, increasing going north.
      */
-    public Location(String name, String description, boolean isHostile) {
-        this.name = name;
-        this.description = description;
-        this.hasItem = false;
-        this.isHostile = isHostile;
-        this.eventTriggered = false;
-        this.item = null;
-        this.longDescription = "";
+    public int getY() {
+        return cell % map.getTemplate().getHeight();
     }
 
     /**
@@ -50,7 +51,7 @@ public class Location {
      * @return The name of the location.
      */
     public String getName() {
-        return name;
+        return map.getTemplate().getName(cell);
     }
 
     /**
@@ -59,7 +60,7 @@ public class Location {
      * @return The description of the location.
      */
     public String getDescription() {
-        return description;
+        return map.getTemplate().getDescription(cell);
     }
 
     /**
@@ -68,7 +69,12 @@ public class Location {
      * @return The long description of the location.
      */
     public String getLongDescription() {
-        return longDescription;
+        WorldOverlay overlay = map.getOverlay(cell);
+        if ((overlay.flags(cell) & WorldOverlay.DESCRIPTION_SET) != 0) {
+            return overlay.description(cell);
+        }
+        String description = map.getTemplate().getLongDescription(cell);
+        return description != null ? description : map.emptySpaceDescription(cell);
     }
 
     /**
@@ -77,7 +83,7 @@ public class Location {
      * @param longDescription The long description to set.
      */
     public void setLongDescription(String longDescription) {
-        this.longDescription = longDescription;
+        map.update(cell, overlay -> overlay.withDescription(cell, longDescription));
     }
 
     /**
@@ -86,16 +92,20 @@ public class Location {
      * @return True if the location contains an item, false otherwise.
      */
     public boolean hasItem() {
-        return hasItem;
+        return getItemAtLoc() != null;
     }
 
     /**
      * Sets whether the location contains an item.
+     * Whether a location has an item follows from its item, so passing false
+     * removes the item and passing true keeps the current one.
      *
      * @param value True if the location contains an item, false otherwise.
      */
     public void setHasItem(boolean value) {
-        this.hasItem = value;
+        if (!value) {
+            setItem(null);
+        }
     }
 
     /**
@@ -104,7 +114,35 @@ public class Location {
      * @return The item in the location, or null if none.
      */
     public Items getItemAtLoc() {
-        return item;
+        return itemIn(map.getOverlay(cell));
+    }
+
+    /**
+     * Returns the item present in the location with the given changes.
+     *
+     * @param overlay An overlay holding the location's changes.
+     * @return The item in the location, or null if none.
+     */
+    private Items itemIn(WorldOverlay overlay) {
+        if ((overlay.flags(cell) & WorldOverlay.ITEM_SET) != 0) {
+            return overlay.item(cell);
+        }
+        return map.getTemplate().getItem(cell);
+    }
+
+    /**
+     * Removes the item present in the location and returns it. When players
+     * share a world, only one of them taking the same item gets it.
+     *
+     * @return The item taken, or null if there was none.
+     */
+    public Items takeItem() {
+        Items[] taken = new Items[1];
+        map.update(cell, overlay -> {
+            taken[0] = itemIn(overlay);
+            return taken[0] != null ? overlay.withItem(cell, null) : overlay;
+        });
+        return taken[0];
     }
 
     /**
@@ -114,8 +152,7 @@ public class Location {
      * @param item The item to set, or null if no item.
      */
     public void setItem(Items item) {
-        this.item = item;
-        this.hasItem = item != null;
+        map.update(cell, overlay -> overlay.withItem(cell, item));
     }
 
     /**
@@ -124,7 +161,11 @@ public class Location {
      * @return True if the location is hostile, false otherwise.
      */
     public boolean isHostile() {
-        return isHostile;
+        int flags = map.getOverlay(cell).flags(cell);
+        if ((flags & WorldOverlay.HOSTILE_SET) != 0) {
+            return (flags & WorldOverlay.HOSTILE) != 0;
+        }
+        return map.getTemplate().isHostile(cell);
     }
 
     /**
@@ -133,7 +174,21 @@ public class Location {
      * @param value True if the location is hostile, false otherwise.
      */
     public void setHostile(boolean value) {
-        this.isHostile = value;
+        if (value) {
+            map.update(cell, overlay -> overlay.withFlags(cell, WorldOverlay.HOSTILE_SET | WorldOverlay.HOSTILE, 0));
+        } else {
+            map.update(cell, overlay -> overlay.withFlags(cell, WorldOverlay.HOSTILE_SET, WorldOverlay.HOSTILE));
+        }
+    }
+
+    /**
+     * Checks if the location has a special event, such as a puzzle or a
+     * trade, that can be triggered once.
+     *
+     * @return True if the location has an event, triggered or not.
+     */
+    public boolean hasEvent() {
+        return map.getTemplate().hasEvent(cell);
     }
 
     /**
@@ -142,13 +197,24 @@ public class Location {
      * @return True if the event has been triggered, false otherwise.
      */
     public boolean isEventTriggered() {
-        return eventTriggered;
+        return (map.getOverlay(cell).flags(cell) & WorldOverlay.EVENT_TRIGGERED) != 0;
     }
 
     /**
      * Triggers the special event in the location.
      */
     public void triggerEvent() {
-        this.eventTriggered = true;
+        claimEvent();
+    }
+
+    /**
+     * Triggers the special event in the location unless it has already been
+     * triggered. When players share a world, only one of them triggering the
+     * same event succeeds, so only that player should be rewarded.
+     *
+     * @return True if this call triggered the event.
+     */
+    public boolean claimEvent() {
+        return map.update(cell, overlay -> overlay.withFlags(cell, WorldOverlay.EVENT_TRIGGERED, 0));
     }
 }
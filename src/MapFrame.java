@@ -0,0 +1,231 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The layout of the text drawn by the {@code map} command for one
+ * {@link WorldTemplate}, with the frame for the top-left viewport rendered
+ * once and shared by every game on that template.
+ * <p>
+ * Every cell is drawn as {@code [x,y] } padded to the same width, so a cell's
+ * bytes sit at a fixed offset and can be overwritten in place: each
+ * {@link GameMap} keeps its own copy of the frame and only redraws the cells
+ * the player left and entered. Maps larger than {@link #VIEWPORT} cells on a
+ * side are drawn as a window around the player.
+ */
+final class MapFrame {
+    /** Most cells drawn on each side. */
+    static final int VIEWPORT = 9;
+
+    /** Line separator, encoded. */
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /** Columns in the world. */
+    private final int mapWidth;
+
+    /** Rows in the world. */
+    private final int mapHeight;
+
+    /** Columns drawn. */
+    private final int viewWidth;
+
+    /** Rows drawn. */
+    private final int viewHeight;
+
+    /** Digits of the largest x-coordinate. */
+    private final int xDigits;
+
+    /** Digits of the largest y-coordinate. */
+    private final int yDigits;
+
+    /** Bytes per drawn cell, including the trailing space. */
+    private final int cellWidth;
+
+    /** Bytes per drawn row, including the line separators around it. */
+    private final int rowBytes;
+
+    /** The frame with the viewport at the bottom-left corner and no player. */
+    private final byte[] corner;
+
+    /**
+     * @param mapWidth  columns in the world
+     * @param mapHeight rows in the world
+     */
+    MapFrame(int mapWidth, int mapHeight) {
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.viewWidth = Math.min(mapWidth, VIEWPORT);
+        this.viewHeight = Math.min(mapHeight, VIEWPORT);
+        this.xDigits = digits(mapWidth - 1);
+        this.yDigits = digits(mapHeight - 1);
+        this.cellWidth = xDigits + yDigits + 4;
+        this.rowBytes = 2 * LINE_SEPARATOR.length + viewWidth * cellWidth;
+        this.corner = new byte[viewHeight * rowBytes];
+        renderAll(0, 0, corner);
+    }
+
+    /**
+     * @return bytes in a frame
+     */
+    int size() {
+        return corner.length;
+    }
+
+    /**
+     * @return true if the viewport shows only part of the world
+     */
+    boolean isClipped() {
+        return viewWidth < mapWidth || viewHeight < mapHeight;
+    }
+
+    /**
+     * Returns the first column shown when the player is in a given column.
+     *
+     * @param playerX the player's x-coordinate
+     * @return the viewport's leftmost x-coordinate
+     */
+    int originX(int playerX) {
+        return Math.max(0, Math.min(playerX - viewWidth / 2, mapWidth - viewWidth));
+    }
+
+    /**
+     * Returns the first row shown when the player is in a given row.
+     *
+     * @param playerY the player's y-coordinate
+     * @return the viewport's bottom y-coordinate
+     */
+    int originY(int playerY) {
+        return Math.max(0, Math.min(playerY - viewHeight / 2, mapHeight - viewHeight));
+    }
+
+    /**
+     * @return columns drawn
+     */
+    int getViewWidth() {
+        return viewWidth;
+    }
+
+    /**
+     * @return rows drawn
+     */
+    int getViewHeight() {
+        return viewHeight;
+    }
+
+    /**
+     * Draws the frame for a viewport, without the player.
+     *
+     * @param originX the viewport's leftmost x-coordinate
+     * @param originY the viewport's bottom y-coordinate
+     * @param frame   the frame to draw into, {@link #size()} bytes long
+     */
+    void render(int originX, int originY, byte[] frame) {
+        if (originX == 0 && originY == 0) {
+            System.arraycopy(corner, 0, frame, 0, corner.length);
+        } else {
+            renderAll(originX, originY, frame);
+        }
+    }
+
+    /**
+     * Draws one cell's coordinates.
+     *
+     * @param originX the viewport's leftmost x-coordinate
+     * @param originY the viewport's bottom y-coordinate
+     * @param x       the cell's x-coordinate, inside the viewport
+     * @param y       the cell's y-coordinate, inside the viewport
+     * @param frame   the frame to draw into
+     */
+    void drawCell(int originX, int originY, int x, int y, byte[] frame) {
+        int i = offset(originX, originY, x, y);
+        frame[i++] = '[';
+        i = writePadded(x, xDigits, frame, i);
+        frame[i++] = ',';
+        i = writePadded(y, yDigits, frame, i);
+        frame[i++] = ']';
+        frame[i] = ' ';
+    }
+
+    /**
+     * Draws the player marker over a cell.
+     *
+     * @param originX the viewport's leftmost x-coordinate
+     * @param originY the viewport's bottom y-coordinate
+     * @param x       the player's x-coordinate, inside the viewport
+     * @param y       the player's y-coordinate, inside the viewport
+     * @param frame   the frame to draw into
+     */
+    void drawPlayer(int originX, int originY, int x, int y, byte[] frame) {
+        int i = offset(originX, originY, x, y);
+        int inner = cellWidth - 3;
+        frame[i] = '[';
+        for (int k = 1; k <= inner; k++) {
+            frame[i + k] = ' ';
+        }
+        frame[i + 1 + (inner - 1) / 2] = 'P';
+        frame[i + inner + 1] = ']';
+        frame[i + inner + 2] = ' ';
+    }
+
+    /**
+     * Draws every row of a viewport.
+     *
+     * @param originX the viewport's leftmost x-coordinate
+     * @param originY the viewport's bottom y-coordinate
+     * @param frame   the frame to draw into
+     */
+    private void renderAll(int originX, int originY, byte[] frame) {
+        int separator = LINE_SEPARATOR.length;
+        for (int row = 0; row < viewHeight; row++) {
+            int start = row * rowBytes;
+            System.arraycopy(LINE_SEPARATOR, 0, frame, start, separator);
+            System.arraycopy(LINE_SEPARATOR, 0, frame, start + rowBytes - separator, separator);
+            int y = originY + viewHeight - 1 - row;
+            for (int x = originX; x < originX + viewWidth; x++) {
+                drawCell(originX, originY, x, y, frame);
+            }
+        }
+    }
+
+    /**
+     * Finds where a cell starts in a frame. The top row is drawn first.
+     *
+     * @param originX the viewport's leftmost x-coordinate
+     * @param originY the viewport's bottom y-coordinate
+     * @param x       the cell's x-coordinate
+     * @param y       the cell's y-coordinate
+     * @return the offset of the cell's first byte
+     */
+    private int offset(int originX, int originY, int x, int y) {
+        int row = originY + viewHeight - 1 - y;
+        return row * rowBytes + LINE_SEPARATOR.length + (x - originX) * cellWidth;
+    }
+
+    /**
+     * Writes a non-negative number right-aligned in a fixed width.
+     *
+     * @param value the number
+     * @param width the width in characters
+     * @param frame the frame to write into
+     * @param i     where to start writing
+     * @return the offset after the number
+     */
+    private static int writePadded(int value, int width, byte[] frame, int i) {
+        for (int k = i + width - 1; k >= i; k--) {
+            frame[k] = k == i + width - 1 || value != 0 ? (byte) ('0' + value % 10) : (byte) ' ';
+            value /= 10;
+        }
+        return i + width;
+    }
+
+    /**
+     * @param value a non-negative number
+     * @return the number of decimal digits in it
+     */
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
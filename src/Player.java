@@ -1,12 +1,11 @@
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a player in the game.
  * The player has a name, health, position on the map, and an inventory of
  * items.
- * The player can move in cardinal directions within the game’s 5x5 grid.
+ * The player can move in cardinal directions within the bounds of the game map.
  * There are 2 different messages that can be randomly displayed each time the
  * playr moves.
  * 
@@ -14,7 +13,15 @@ import java.util.Random;
  * @author Ricky Nguyen
  */
 public class Player {
-    Random random = new Random();
+    /**
+     * Mask of the four Warp Drive Fragments, checked in one step.
+     */
+    private static final long WARP_FRAGMENTS = Inventory.mask(Items.FRAGMENTS);
+
+    /**
+     * Random stream used to pick movement messages.
+     */
+    private final RandomGenerator random;
 
     /**
      * The x-coordinate of the player's position (horizontal).
@@ -38,13 +45,31 @@ public class Player {
     /**
      * The player's inventory of items.
      */
-    private final ArrayList<Items> inventory = new ArrayList<>();
+    private final Inventory inventory = new Inventory();
+
+    /**
+     * Identifier of the session the player is in, or -1 for a player outside
+     * any session, such as in a simulation, whose moves and items are not
+     * reported to the flight recorder.
+     */
+    private long sessionId = -1;
 
     /**
      * Creates a new player starting at the center of the map with default health
-     * and name.
+     * and name, using a freshly seeded random stream.
      */
     public Player() {
+        this(GameRandom.newSession().generator());
+    }
+
+    /**
+     * Creates a new player starting at the center of the map with default health
+     * and name.
+     *
+     * @param random the game's random stream, used to pick movement messages
+     */
+    public Player(RandomGenerator random) {
+        this.random = random;
         this.x = 2;
         this.y = 2;
         this.health = 200;
@@ -53,68 +78,98 @@ public class Player {
 
     /**
      * Moves the player north (up the map), if within bounds.
+     *
+     * @param map The map whose bounds limit the move.
+     * @param out The output the movement message is written to.
      */
-    public void moveNorth() {
-        if (y < 4) {
+    public void moveNorth(GameMap map, GameOutput out) {
+        if (map.contains(x, y + 1)) {
             y++;
+            moved(x, y - 1);
             if (random.nextBoolean()) {
-                System.out.println("Your ship moves forward to the north.");
+                out.println("Your ship moves forward to the north.");
             } else {
-                System.out.println("You guide your ship northward through space.");
+                out.println("You guide your ship northward through space.");
             }
         } else {
-            System.out.println("Can't go further North.");
+            out.println("Can't go further North.");
         }
     }
 
     /**
      * Moves the player south (down the map), if within bounds.
+     *
+     * @param map The map whose bounds limit the move.
+     * @param out The output the movement message is written to.
      */
-    public void moveSouth() {
-        if (y > 0) {
+    public void moveSouth(GameMap map, GameOutput out) {
+        if (map.contains(x, y - 1)) {
             y--;
+            moved(x, y + 1);
             if (random.nextBoolean()) {
-                System.out.println("Your ship moves forward to the south.");
+                out.println("Your ship moves forward to the south.");
             } else {
-                System.out.println("You guide your ship southward through space.");
+                out.println("You guide your ship southward through space.");
             }
         } else {
-            System.out.println("Can't go further south.");
+            out.println("Can't go further south.");
         }
     }
 
     /**
      * Moves the player east (right on the map), if within bounds.
+     *
+     * @param map The map whose bounds limit the move.
+     * @param out The output the movement message is written to.
      */
-    public void moveEast() {
-        if (x < 4) {
+    public void moveEast(GameMap map, GameOutput out) {
+        if (map.contains(x + 1, y)) {
             x++;
+            moved(x - 1, y);
             if (random.nextBoolean()) {
-                System.out.println("Your ship moves forward to the east.");
+                out.println("Your ship moves forward to the east.");
             } else {
-                System.out.println("You guide your ship eastward through space.");
+                out.println("You guide your ship eastward through space.");
             }
         } else {
-            System.out.println("Can't go further east.");
+            out.println("Can't go further east.");
         }
     }
 
     /**
      * Moves the player west (left on the map), if within bounds.
+     *
+     * @param map The map whose bounds limit the move.
+     * @param out The output the movement message is written to.
      */
-    public void moveWest() {
-        if (x > 0) {
+    public void moveWest(GameMap map, GameOutput out) {
+        if (map.contains(x - 1, y)) {
             x--;
+            moved(x + 1, y);
             if (random.nextBoolean()) {
-                System.out.println("Your ship moves forward to the west.");
+                out.println("Your ship moves forward to the west.");
             } else {
-                System.out.println("You guide your ship westward through space.");
+                out.println("You guide your ship westward through space.");
             }
         } else {
-            System.out.println("Can't go further west.");
+            out.println("Can't go further west.");
         }
     }
 
+    /**
+     * Moves the player straight to a location, at the end of a route planned
+     * by the {@code goto} command.
+     *
+     * @param x the new x-coordinate
+     * @param y the new y-coordinate
+     */
+    public void travelTo(int x, int y) {
+        int fromX = this.x, fromY = this.y;
+        this.x = x;
+        this.y = y;
+        moved(fromX, fromY);
+    }
+
     /**
      * Adds an item to the player's inventory.
      *
@@ -122,61 +177,118 @@ public class Player {
      */
     public void addItem(Items item) {
         inventory.add(item);
+        transferred(item, 1);
+    }
+
+    /**
+     * Removes every item from the player's inventory.
+     */
+    public void clearInventory() {
+        inventory.clear();
     }
 
     /**
-     * Checks if the player's inventory contains an item with the specified name.
+     * Checks if the player's inventory contains an item.
      *
-     * @param itemName the name of the item to search for in the inventory
-     * @return {@code true} if an item with the specified name exists in the
-     *         inventory,
+     * @param item the item to look for
+     * @return {@code true} if at least one of the item is in the inventory,
      *         {@code false} otherwise
      */
-    public boolean hasItem(String itemName) {
-        for (Items item : inventory) {
-            if (item.getName().equals(itemName)) {
-                return true;
-            }
-        }
-        return false;
+    public boolean hasItem(Items item) {
+        return inventory.has(item);
+    }
+
+    /**
+     * Counts how many of an item the player carries.
+     *
+     * @param item the item to count
+     * @return the number of that item in the inventory
+     */
+    public int countItem(Items item) {
+        return inventory.count(item);
     }
 
     /**
-     * Removes an item from the player's inventory based on the item's name.
+     * Removes one of an item from the player's inventory.
      *
-     * @param itemName The name of the item to be removed from the inventory.
+     * @param item The item to be removed from the inventory.
      * @return {@code true} if the item was found and removed successfully,
      *         {@code false} otherwise.
      */
-    public boolean removeItem(String itemName) {
-        for (int i = 0; i < inventory.size(); i++) {
-            if (inventory.get(i).getName().equals(itemName)) {
-                inventory.remove(i);
-                return true;
-            }
+    public boolean removeItem(Items item) {
+        if (!inventory.remove(item)) {
+            return false;
         }
-        return false;
+        transferred(item, -1);
+        return true;
     }
 
     /**
-     * Gets a list of all items in the player's inventory.
+     * Reports a move to the flight recorder.
+     *
+     * @param fromX the x-coordinate the player left
+     * @param fromY the y-coordinate the player left
+     */
+    private void moved(int fromX, int fromY) {
+        GameEvents.LocationChangeEvent event = new GameEvents.LocationChangeEvent();
+        if (sessionId >= 0 && event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.fromX = fromX;
+            event.fromY = fromY;
+            event.x = x;
+            event.y = y;
+            event.commit();
+        }
+    }
+
+    /**
+     * Reports an item entering or leaving the inventory to the flight recorder.
+     *
+     * @param item   the item
+     * @param change 1 if the item was gained, -1 if it was lost
+     */
+    private void transferred(Items item, int change) {
+        GameEvents.ItemTransferEvent event = new GameEvents.ItemTransferEvent();
+        if (sessionId >= 0 && event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.x = x;
+            event.y = y;
+            event.item = item.getName();
+            event.change = change;
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets a read-only list of all items in the player's inventory.
      *
      * @return A list of the player's inventory items.
      */
     public List<Items> getInventory() {
+        return inventory.asList();
+    }
+
+    /**
+     * Gets the player's inventory itself.
+     *
+     * @return The inventory, indexed by item ID.
+     */
+    public Inventory getItems() {
         return inventory;
     }
 
     /**
      * Prints a list of items currently in the player's inventory.
+     *
+     * @param out The output the list is written to.
      */
-    public void listInventory() {
+    public void listInventory(GameOutput out) {
         if (inventory.isEmpty()) {
-            System.out.println("Your inventory is empty.");
+            out.println("Your inventory is empty.");
         } else {
-            System.out.println("Your Inventory:");
-            for (Items item : inventory) {
-                System.out.println(" - " + item.getName());
+            out.println("Your Inventory:");
+            for (Items item : inventory.asList()) {
+                out.println(" - " + item.getName());
             }
         }
     }
@@ -217,6 +329,16 @@ public class Player {
         this.y = y;
     }
 
+    /**
+     * Sets the session the player is in, identifying its events in flight
+     * recordings.
+     *
+     * @param sessionId the session identifier
+     */
+    void setSessionId(long sessionId) {
+        this.sessionId = sessionId;
+    }
+
     /**
      * Gets the player's current health.
      *
@@ -260,10 +382,7 @@ public class Player {
      *         {@code false} otherwise.
      */
     public boolean hasAllWarpFragments() {
-        return hasItem("Warp Drive Fragment 1")
-                && hasItem("Warp Drive Fragment 2")
-                && hasItem("Warp Drive Fragment 3")
-                && hasItem("Warp Drive Fragment 4");
+        return inventory.hasAll(WARP_FRAGMENTS);
     }
 
 }
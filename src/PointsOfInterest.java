@@ -0,0 +1,383 @@
+import java.util.Arrays;
+
+/**
+ * An index of the cells of one game's map that hold something of interest:
+ * an item, hostility or an event not yet triggered. It answers which such cell
+ * is nearest to a point and which lie within a distance of it, for scanners
+ * and for anything else that needs to find its way to the action.
+ * <p>
+ * Cells are grouped into square buckets of {@link #BUCKET} by {@link #BUCKET}
+ * cells, found through an open-addressing table keyed by bucket number. Each
+ * bucket holds a linked list of its cells in parallel primitive arrays. A
+ * query visits the buckets around the point ring by ring and stops once no
+ * further ring can hold anything closer. If the rings cover more buckets
+ * than there are cells in the index, it scans the cells directly instead, so
+ * a query on a sparse, huge world costs no more than one over the handful of
+ * cells indexed. Distances are in jumps, the Manhattan distance.
+ * <p>
+ * The index is kept up to date one cell at a time, see
+ * {@link #update(int, int)}.
+ */
+final class PointsOfInterest {
+    /** The cell holds an item. */
+    static final int ITEM = 1;
+
+    /** The cell is hostile. */
+    static final int HOSTILE = 2;
+
+    /** The cell has an event that has not been triggered. */
+    static final int EVENT = 4;
+
+    /** Every kind of interest. */
+    static final int ANY = ITEM | HOSTILE | EVENT;
+
+    /** Bits of a coordinate inside its bucket. */
+    private static final int SHIFT = 5;
+
+    /** Cells on each side of a bucket. */
+    private static final int BUCKET = 1 << SHIFT;
+
+    /** Marks an empty table slot or the end of a list. */
+    private static final int NONE = -1;
+
+    /** Rows in the world. */
+    private final int height;
+
+    /** Buckets per row of the world. */
+    private final int bucketsWide;
+
+    /** Buckets per column of the world. */
+    private final int bucketsHigh;
+
+    /** Bucket numbers in the table; empty slots hold {@link #NONE}. */
+    private int[] bucketKeys = new int[16];
+
+    /** First entry of each bucket in the table, or {@link #NONE}. */
+    private int[] bucketHeads = new int[16];
+
+    /** Buckets in the table, including ones that have become empty. */
+    private int buckets;
+
+    /** Cell of each entry. */
+    private int[] entryCells = new int[16];
+
+    /** Kinds of interest of each entry; 0 for a free entry. */
+    private byte[] entryKinds = new byte[16];
+
+    /** Next entry in the same bucket, or in the free list. */
+    private int[] entryNext = new int[16];
+
+    /** Entries ever used; later slots of the entry arrays are unused. */
+    private int used;
+
+    /** First free entry, or {@link #NONE}. */
+    private int free = NONE;
+
+    /** Cells in the index. */
+    private int size;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param width  columns in the world
+     * @param height rows in the world
+     */
+    PointsOfInterest(int width, int height) {
+        this.height = height;
+        this.bucketsWide = (width + BUCKET - 1) >> SHIFT;
+        this.bucketsHigh = (height + BUCKET - 1) >> SHIFT;
+        Arrays.fill(bucketKeys, NONE);
+    }
+
+    /**
+     * @return number of cells in the index
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Records what a cell holds now, adding, changing or removing its entry.
+     *
+     * @param cell  the cell number
+     * @param kinds the cell's kinds of interest, 0 for none
+     */
+    void update(int cell, int kinds) {
+        int slot = slot(bucketOf(cell));
+        int previous = NONE;
+        int entry = bucketKeys[slot] == NONE ? NONE : bucketHeads[slot];
+        while (entry != NONE && entryCells[entry] != cell) {
+            previous = entry;
+            entry = entryNext[entry];
+        }
+        if (entry != NONE) {
+            if (kinds != 0) {
+                entryKinds[entry] = (byte) kinds;
+                return;
+            }
+            if (previous == NONE) {
+                bucketHeads[slot] = entryNext[entry];
+            } else {
+                entryNext[previous] = entryNext[entry];
+            }
+            entryKinds[entry] = 0;
+            entryNext[entry] = free;
+            free = entry;
+            size--;
+        } else if (kinds != 0) {
+            if (bucketKeys[slot] == NONE) {
+                slot = addBucket(bucketOf(cell));
+            }
+            entry = newEntry();
+            entryCells[entry] = cell;
+            entryKinds[entry] = (byte) kinds;
+            entryNext[entry] = bucketHeads[slot];
+            bucketHeads[slot] = entry;
+            size++;
+        }
+    }
+
+    /**
+     * Finds the nearest cell holding any of some kinds of interest. Of cells
+     * equally near, the lowest numbered wins.
+     *
+     * @param x     the x-coordinate searched from
+     * @param y     the y-coordinate searched from
+     * @param kinds the kinds wanted
+     * @return the cell number, or -1 if there is none
+     */
+    int nearest(int x, int y, int kinds) {
+        return nearest(x, y, kinds, NONE);
+    }
+
+    /**
+     * Finds the nearest cell holding any of some kinds of interest, other
+     * than one cell, such as the one searched from. Of cells equally near, the
+     * lowest numbered wins.
+     *
+     * @param x           the x-coordinate searched from
+     * @param y           the y-coordinate searched from
+     * @param kinds       the kinds wanted
+     * @param excludeCell the cell never returned, or -1 for none
+     * @return the cell number, or -1 if there is none
+     */
+    int nearest(int x, int y, int kinds, int excludeCell) {
+        int centreX = x >> SHIFT, centreY = y >> SHIFT;
+        int maxRing = Math.max(Math.max(centreX, bucketsWide - 1 - centreX),
+                Math.max(centreY, bucketsHigh - 1 - centreY));
+        long best = Long.MAX_VALUE; // distance << 32 | cell
+        int visited = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every cell in this ring is more than (ring - 1) buckets away along one axis
+            if (ring > 0 && best >> 32 <= (long) (ring - 1) * BUCKET) {
+                break;
+            }
+            visited += ring == 0 ? 1 : 8 * ring;
+            if (visited > size) {
+                return scanNearest(x, y, kinds, excludeCell);
+            }
+            for (int bx = centreX - ring; bx <= centreX + ring; bx++) {
+                int step = bx == centreX - ring || bx == centreX + ring ? 1 : Math.max(2 * ring, 1);
+                for (int by = centreY - ring; by <= centreY + ring; by += step) {
+                    best = nearestInBucket(bx, by, x, y, kinds, excludeCell, best);
+                }
+            }
+        }
+        return best == Long.MAX_VALUE ? -1 : (int) best;
+    }
+
+    /**
+     * Finds the cells within a distance holding any of some kinds of
+     * interest.
+     *
+     * @param x      the x-coordinate searched from
+     * @param y      the y-coordinate searched from
+     * @param radius the greatest distance in jumps
+     * @param kinds  the kinds wanted
+     * @return the cell numbers, nearest first, ties in cell order
+     */
+    int[] within(int x, int y, int radius, int kinds) {
+        long fromX = Math.max((long) x - radius, 0) >> SHIFT;
+        long toX = Math.min((long) x + radius >> SHIFT, bucketsWide - 1);
+        long fromY = Math.max((long) y - radius, 0) >> SHIFT;
+        long toY = Math.min((long) y + radius >> SHIFT, bucketsHigh - 1);
+        if (fromX > toX || fromY > toY) {
+            return new int[0];
+        }
+        long[] found = new long[8];
+        int count = 0;
+        if ((toX - fromX + 1) * (toY - fromY + 1) > size) {
+            for (int entry = 0; entry < used; entry++) {
+                long key = key(entryCells[entry], x, y);
+                if ((entryKinds[entry] & kinds) != 0 && key >> 32 <= radius) {
+                    found = append(found, count++, key);
+                }
+            }
+        } else {
+            for (long bx = fromX; bx <= toX; bx++) {
+                for (long by = fromY; by <= toY; by++) {
+                    int slot = slot((int) (bx * bucketsHigh + by));
+                    if (bucketKeys[slot] == NONE) {
+                        continue;
+                    }
+                    for (int entry = bucketHeads[slot]; entry != NONE; entry = entryNext[entry]) {
+                        long key = key(entryCells[entry], x, y);
+                        if ((entryKinds[entry] & kinds) != 0 && key >> 32 <= radius) {
+                            found = append(found, count++, key);
+                        }
+                    }
+                }
+            }
+        }
+        Arrays.sort(found, 0, count);
+        int[] cells = new int[count];
+        for (int i = 0; i < count; i++) {
+            cells[i] = (int) found[i];
+        }
+        return cells;
+    }
+
+    /**
+     * Stores a value at the end of an array, growing it if need be.
+     *
+     * @param array the array
+     * @param count values already stored
+     * @param value the value
+     * @return the array, or a longer copy
+     */
+    private static long[] append(long[] array, int count, long value) {
+        if (count == array.length) {
+            array = Arrays.copyOf(array, count * 2);
+        }
+        array[count] = value;
+        return array;
+    }
+
+    /**
+     * Looks through one bucket for a cell nearer than the best so far.
+     *
+     * @param bx          the bucket's column
+     * @param by          the bucket's row
+     * @param x           the x-coordinate searched from
+     * @param y           the y-coordinate searched from
+     * @param kinds       the kinds wanted
+     * @param excludeCell the cell to pass over, or -1 for none
+     * @param best        the best so far, as distance shifted left 32 bits or'd
+     *                    with the cell, or {@link Long#MAX_VALUE}
+     * @return the new best
+     */
+    private long nearestInBucket(int bx, int by, int x, int y, int kinds, int excludeCell, long best) {
+        if (bx < 0 || bx >= bucketsWide || by < 0 || by >= bucketsHigh) {
+            return best;
+        }
+        int slot = slot(bx * bucketsHigh + by);
+        if (bucketKeys[slot] == NONE) {
+            return best;
+        }
+        for (int entry = bucketHeads[slot]; entry != NONE; entry = entryNext[entry]) {
+            if ((entryKinds[entry] & kinds) != 0 && entryCells[entry] != excludeCell) {
+                best = Math.min(best, key(entryCells[entry], x, y));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the nearest cell by looking at every entry.
+     *
+     * @param x           the x-coordinate searched from
+     * @param y           the y-coordinate searched from
+     * @param kinds       the kinds wanted
+     * @param excludeCell the cell to pass over, or -1 for none
+     * @return the cell number, or -1 if there is none
+     */
+    private int scanNearest(int x, int y, int kinds, int excludeCell) {
+        long best = Long.MAX_VALUE;
+        for (int entry = 0; entry < used; entry++) {
+            if ((entryKinds[entry] & kinds) != 0 && entryCells[entry] != excludeCell) {
+                best = Math.min(best, key(entryCells[entry], x, y));
+            }
+        }
+        return best == Long.MAX_VALUE ? -1 : (int) best;
+    }
+
+    /**
+     * @param cell a cell number
+     * @param x    the x-coordinate searched from
+     * @param y    the y-coordinate searched from
+     * @return the cell's distance from the point shifted left 32 bits, or'd
+     *         with the cell, so that keys order by distance and then cell
+     */
+    private long key(int cell, int x, int y) {
+        long distance = Math.abs((long) cell / height - x) + Math.abs((long) cell % height - y);
+        return distance << 32 | cell;
+    }
+
+    /**
+     * @param cell a cell number
+     * @return the number of the bucket holding it
+     */
+    private int bucketOf(int cell) {
+        return (cell / height >> SHIFT) * bucketsHigh + (cell % height >> SHIFT);
+    }
+
+    /**
+     * @param bucket a bucket number
+     * @return the table slot holding the bucket, or the empty slot where it
+     *         would go
+     */
+    private int slot(int bucket) {
+        int mask = bucketKeys.length - 1;
+        int slot = (int) GameRandom.mix64(bucket) & mask;
+        while (bucketKeys[slot] != NONE && bucketKeys[slot] != bucket) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Adds an empty bucket to the table, growing it if need be.
+     *
+     * @param bucket the bucket number
+     * @return the bucket's slot
+     */
+    private int addBucket(int bucket) {
+        if (2 * (buckets + 1) > bucketKeys.length) {
+            int[] keys = bucketKeys, heads = bucketHeads;
+            bucketKeys = new int[keys.length * 2];
+            bucketHeads = new int[keys.length * 2];
+            Arrays.fill(bucketKeys, NONE);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != NONE) {
+                    int slot = slot(keys[i]);
+                    bucketKeys[slot] = keys[i];
+                    bucketHeads[slot] = heads[i];
+                }
+            }
+        }
+        int slot = slot(bucket);
+        bucketKeys[slot] = bucket;
+        bucketHeads[slot] = NONE;
+        buckets++;
+        return slot;
+    }
+
+    /**
+     * Takes an entry from the free list, or a new one.
+     *
+     * @return the entry
+     */
+    private int newEntry() {
+        if (free != NONE) {
+            int entry = free;
+            free = entryNext[entry];
+            return entry;
+        }
+        if (used == entryCells.length) {
+            entryCells = Arrays.copyOf(entryCells, used * 2);
+            entryKinds = Arrays.copyOf(entryKinds, used * 2);
+            entryNext = Arrays.copyOf(entryNext, used * 2);
+        }
+        return used++;
+    }
+}
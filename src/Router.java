@@ -0,0 +1,263 @@
+import java.util.Arrays;
+
+/**
+ * Plans routes for the {@code goto} command: the shortest way between two
+ * cells that passes no hostile location except, if need be, the destination.
+ * <p>
+ * The search is A*. The template has no impassable cells, so the Manhattan
+ * distance to the destination is the exact distance field of an empty map;
+ * it is computed rather than stored, which keeps it free on worlds of any
+ * size. Ties are broken towards the cell nearest the destination, so on open
+ * space the search walks straight along one shortest path and only widens
+ * around hostile cells. A route query therefore visits a number of cells
+ * close to the length of the route, not the area between its ends.
+ */
+final class Router {
+    /** Cells a search may visit beyond a multiple of the straight-line distance. */
+    private static final int SEARCH_SLACK = 100_000;
+
+    /** The map searched. */
+    private final GameMap map;
+
+    /** Rows in the world. */
+    private final int height;
+
+    /** Destination x-coordinate. */
+    private final int toX;
+
+    /** Destination y-coordinate. */
+    private final int toY;
+
+    /** Open cells as a binary heap, keyed by cost estimate then remaining distance. */
+    private long[] heapKeys = new long[64];
+
+    /** The cell of each heap entry. */
+    private int[] heapCells = new int[64];
+
+    /** Entries in the heap. */
+    private int heapSize;
+
+    /** Cells reached so far, in an open-addressing table; empty slots hold -1. */
+    private int[] seenCells = new int[256];
+
+    /** Cost of the best known way to each cell in {@link #seenCells}. */
+    private int[] seenCosts = new int[256];
+
+    /** The cell each cell in {@link #seenCells} is best reached from. */
+    private int[] seenParents = new int[256];
+
+    /** Cells in the table. */
+    private int seen;
+
+    /**
+     * @param map the map searched
+     * @param toX destination x-coordinate
+     * @param toY destination y-coordinate
+     */
+    private Router(GameMap map, int toX, int toY) {
+        this.map = map;
+        this.height = map.getTemplate().getHeight();
+        this.toX = toX;
+        this.toY = toY;
+        Arrays.fill(seenCells, -1);
+    }
+
+    /**
+     * Finds a shortest route that avoids hostile locations other than the
+     * destination.
+     *
+     * @param map   the map to travel on
+     * @param fromX starting x-coordinate
+     * @param fromY starting y-coordinate
+     * @param toX   destination x-coordinate, on the map
+     * @param toY   destination y-coordinate, on the map
+     * @return the cells of the route after the start, ending at the
+     *         destination; empty if start and destination are the same; null if
+     *         every route is blocked
+     */
+    static int[] route(GameMap map, int fromX, int fromY, int toX, int toY) {
+        return new Router(map, toX, toY).search(fromX, fromY);
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @param fromX starting x-coordinate
+     * @param fromY starting y-coordinate
+     * @return the route, as for {@link #route}
+     */
+    private int[] search(int fromX, int fromY) {
+        int start = fromX * height + fromY;
+        int goal = toX * height + toY;
+        long limit = 16L * distance(fromX, fromY) + SEARCH_SLACK;
+        reach(start, 0, -1);
+        push(start, 0);
+        while (heapSize > 0) {
+            int cell = pop();
+            if (cell == goal) {
+                return path(start, goal);
+            }
+            if (--limit < 0) {
+                return null;
+            }
+            int cost = seenCosts[find(cell)];
+            int x = cell / height, y = cell % height;
+            step(x + 1, y, cell, cost);
+            step(x - 1, y, cell, cost);
+            step(x, y + 1, cell, cost);
+            step(x, y - 1, cell, cost);
+        }
+        return null;
+    }
+
+    /**
+     * Considers moving from a cell to a neighbour.
+     *
+     * @param x      the neighbour's x-coordinate
+     * @param y      the neighbour's y-coordinate
+     * @param parent the cell moved from
+     * @param cost   the cost of reaching the cell moved from
+     */
+    private void step(int x, int y, int parent, int cost) {
+        if (!map.contains(x, y) || (x != toX || y != toY) && map.getLocation(x, y).isHostile()) {
+            return;
+        }
+        int cell = x * height + y;
+        int slot = find(cell);
+        if (seenCells[slot] == cell && seenCosts[slot] <= cost + 1) {
+            return;
+        }
+        reach(cell, cost + 1, parent);
+        push(cell, cost + 1);
+    }
+
+    /**
+     * @param x an x-coordinate
+     * @param y a y-coordinate
+     * @return the number of moves from there to the destination on open space
+     */
+    private int distance(int x, int y) {
+        return Math.abs(x - toX) + Math.abs(y - toY);
+    }
+
+    /**
+     * Rebuilds the route by following parents back from the destination.
+     *
+     * @param start the starting cell
+     * @param goal  the destination cell
+     * @return the route after the start
+     */
+    private int[] path(int start, int goal) {
+        int length = seenCosts[find(goal)];
+        int[] path = new int[length];
+        for (int cell = goal, i = length - 1; cell != start; i--) {
+            path[i] = cell;
+            cell = seenParents[find(cell)];
+        }
+        return path;
+    }
+
+    /**
+     * Records the best known way to a cell.
+     *
+     * @param cell   the cell
+     * @param cost   moves from the start
+     * @param parent the cell it is reached from, or -1 for the start
+     */
+    private void reach(int cell, int cost, int parent) {
+        int slot = find(cell);
+        if (seenCells[slot] != cell) {
+            if (2 * (seen + 1) > seenCells.length) {
+                grow();
+                slot = find(cell);
+            }
+            seenCells[slot] = cell;
+            seen++;
+        }
+        seenCosts[slot] = cost;
+        seenParents[slot] = parent;
+    }
+
+    /**
+     * @param cell a cell
+     * @return the table slot holding the cell, or the empty slot where it
+     *         would go
+     */
+    private int find(int cell) {
+        int mask = seenCells.length - 1;
+        int slot = (int) GameRandom.mix64(cell) & mask;
+        while (seenCells[slot] != -1 && seenCells[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the table of reached cells.
+     */
+    private void grow() {
+        int[] cells = seenCells, costs = seenCosts, parents = seenParents;
+        seenCells = new int[cells.length * 2];
+        seenCosts = new int[cells.length * 2];
+        seenParents = new int[cells.length * 2];
+        Arrays.fill(seenCells, -1);
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != -1) {
+                int slot = find(cells[i]);
+                seenCells[slot] = cells[i];
+                seenCosts[slot] = costs[i];
+                seenParents[slot] = parents[i];
+            }
+        }
+    }
+
+    /**
+     * Adds a cell to the open heap.
+     *
+     * @param cell the cell
+     * @param cost moves from the start
+     */
+    private void push(int cell, int cost) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+        }
+        int remaining = distance(cell / height, cell % height);
+        long key = (long) (cost + remaining) << 32 | remaining;
+        int i = heapSize++;
+        while (i > 0 && heapKeys[(i - 1) / 2] > key) {
+            heapKeys[i] = heapKeys[(i - 1) / 2];
+            heapCells[i] = heapCells[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+    }
+
+    /**
+     * Removes the open cell with the lowest key.
+     *
+     * @return the cell
+     */
+    private int pop() {
+        int top = heapCells[0];
+        long key = heapKeys[--heapSize];
+        int cell = heapCells[heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= key) {
+                break;
+            }
+            heapKeys[i] = heapKeys[child];
+            heapCells[i] = heapCells[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+        return top;
+    }
+}
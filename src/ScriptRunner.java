@@ -0,0 +1,230 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays a recorded command script through the game without a player, to test
+ * that a playthrough still ends the way it should and to measure how many
+ * playthroughs a second the game can take.
+ * <p>
+ * The script holds the lines a player would type, from the welcome menu on.
+ * It is read once and each playthrough reads it from memory as its input,
+ * with the game's text discarded, so nothing waits on a prompt. The
+ * playthroughs run one after another on each of a few platform threads;
+ * since their input never blocks, this beats a thread per game.
+ * <p>
+ * Usage: {@code java ScriptRunner [script] [runs] [seed] [threads]}, where
+ * the script is a file or {@code -} for standard input. Prints how the runs
+ * ended, how fast they were played and the final state of the first.
+ */
+public class ScriptRunner {
+    /**
+     * How a playthrough ended.
+     */
+    enum Outcome {
+        /** Emperor Poutine was beaten. */
+        WON("won"),
+        /** The player died. */
+        DIED("died"),
+        /** The player quit. */
+        QUIT("quit"),
+        /** The script ended while the game wanted more. */
+        INPUT_ENDED("input ended");
+
+        /** Label shown in the summary. */
+        private final String label;
+
+        /**
+         * @param label label shown in the summary
+         */
+        Outcome(String label) {
+            this.label = label;
+        }
+    }
+
+    /** The lines played, as the bytes a player would send. */
+    private final byte[] script;
+
+    /** Number of lines in the script. */
+    private final int lines;
+
+    /**
+     * @param script the lines to play, each ended by a line terminator
+     */
+    public ScriptRunner(byte[] script) {
+        this.script = script;
+        int count = 0;
+        for (int i = 0; i < script.length; i++) {
+            if (script[i] == '\n' || script[i] == '\r' && (i + 1 == script.length || script[i + 1] != '\n')) {
+                count++;
+            }
+        }
+        if (script.length > 0 && script[script.length - 1] != '\n' && script[script.length - 1] != '\r') {
+            count++;
+        }
+        this.lines = count;
+    }
+
+    /**
+     * @return number of lines in the script
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Plays the script once.
+     *
+     * @param id     identifier of the session
+     * @param random the random stream of the game
+     * @return the finished game
+     */
+    public GameSession play(long id, GameRandom random) {
+        GameSession session = new GameSession(id, random, new ByteArrayInputStream(script),
+                OutputStream.nullOutputStream());
+        session.run();
+        return session;
+    }
+
+    /**
+     * Tells how a finished game ended.
+     *
+     * @param session the game
+     * @return the outcome
+     */
+    static Outcome outcome(GameSession session) {
+        if (session.getEnemies().boss.isDead()) {
+            return Outcome.WON;
+        } else if (session.getPlayer().getHealth() <= 0) {
+            return Outcome.DIED;
+        } else if (session.getInput().isExhausted()) {
+            return Outcome.INPUT_ENDED;
+        }
+        return Outcome.QUIT;
+    }
+
+    /**
+     * Describes the state a game ended in.
+     *
+     * @param session the finished game
+     * @return the description, one line per entry
+     */
+    static String describe(GameSession session) {
+        Player player = session.getPlayer();
+        Location location = session.getMap().getLocation(player.getX(), player.getY());
+        StringBuilder text = new StringBuilder();
+        text.append("  outcome: ").append(outcome(session).label).append('\n');
+        text.append("  player: ").append(player.getName()).append(", health ").append(player.getHealth())
+                .append('\n');
+        text.append("  location: ").append(location.getName()).append(" (").append(player.getX()).append(", ")
+                .append(player.getY()).append(")\n");
+        text.append("  inventory:");
+        appendNames(text, player.getInventory().stream().map(Items::getName).toList());
+        List<String> defeated = new ArrayList<>();
+        for (CombatCharacters enemy : session.getEnemies().all()) {
+            if (enemy.isDead()) {
+                defeated.add(enemy.getName());
+            }
+        }
+        text.append("  defeated:");
+        appendNames(text, defeated);
+        text.append("  lines read: ").append(session.getInput().getLinesRead()).append('\n');
+        return text.toString();
+    }
+
+    /**
+     * Appends a comma-separated list and ends the line.
+     *
+     * @param text  where the list goes
+     * @param names the names listed
+     */
+    private static void appendNames(StringBuilder text, List<String> names) {
+        text.append(names.isEmpty() ? " none" : " " + String.join(", ", names)).append('\n');
+    }
+
+    /**
+     * Plays a script many times and reports the results.
+     *
+     * @param args the script file or {@code -}, the number of runs, the base
+     *             seed and the number of threads, all optional
+     * @throws Exception if the script cannot be read or a run fails
+     */
+    public static void main(String[] args) throws Exception {
+        String source = args.length > 0 ? args[0] : "-";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        GameRandom seeds = new GameRandom(args.length > 2 ? Long.parseLong(args[2]) : 2511);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        ScriptRunner runner = new ScriptRunner(read(source));
+        GameRandom[] randoms = new GameRandom[runs];
+        for (int i = 0; i < runs; i++) {
+            randoms[i] = seeds.split();
+        }
+
+        Outcome[] outcomes = new Outcome[runs];
+        int[] linesRead = new int[runs];
+        GameSession[] first = new GameSession[1];
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < runs; i = next.getAndIncrement()) {
+                        GameSession session = runner.play(i, randoms[i]);
+                        outcomes[i] = outcome(session);
+                        linesRead[i] = session.getInput().getLinesRead();
+                        if (i == 0) {
+                            first[0] = session;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int[] counts = new int[Outcome.values().length];
+        int unfinished = 0;
+        for (int i = 0; i < runs; i++) {
+            counts[outcomes[i].ordinal()]++;
+            if (linesRead[i] < runner.getLines()) {
+                unfinished++;
+            }
+        }
+        System.out.printf("Played %s (%d lines) %d times in %.2f s on %d threads (%.0f playthroughs/s)%n",
+                source.equals("-") ? "standard input" : source, runner.getLines(), runs, seconds, threads,
+                runs / seconds);
+        StringBuilder summary = new StringBuilder();
+        for (Outcome outcome : Outcome.values()) {
+            summary.append(summary.isEmpty() ? "" : ", ").append(outcome.label).append(' ')
+                    .append(counts[outcome.ordinal()]);
+        }
+        System.out.println("  " + summary + "; " + unfinished + " ended before the script did");
+        if (first[0] != null) {
+            System.out.println("Final state of the first run (seed " + first[0].getSeed() + "):");
+            System.out.print(describe(first[0]));
+        }
+    }
+
+    /**
+     * Reads a whole script.
+     *
+     * @param source a file name, or {@code -} for standard input
+     * @return the script's bytes
+     * @throws IOException if it cannot be read
+     */
+    private static byte[] read(String source) throws IOException {
+        return source.equals("-") ? System.in.readAllBytes() : Files.readAllBytes(Path.of(source));
+    }
+}
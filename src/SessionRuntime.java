@@ -0,0 +1,350 @@
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many games in one process.
+ * Every session gets its own {@link GameSession} with its own player, map,
+ * enemies and random stream, and runs on its own virtual thread, so a session
+ * blocked waiting for input costs no platform thread.
+ * <p>
+ * Running this class starts a load test:
+ * {@code java SessionRuntime [sessions] [seed] [journal] [resident]} plays the given
+ * number of scripted games at the same time and reports how long they took.
+ * With a journal file, every game is recorded and then replayed from the
+ * journal to check that replay rebuilds the same games. With a limit on
+ * resident games, idle games are hibernated to a temporary
+ * {@link SessionStore} between commands.
+ */
+public class SessionRuntime implements AutoCloseable {
+    /**
+     * A complete winning playthrough, used by the load test.
+     * Extra attack choices after a fight ends are read as invalid commands.
+     */
+    static final String DEMO_SCRIPT = """
+            1
+            Tester
+            e
+            e
+            take
+            w
+            w
+            w
+            s
+            solve
+            seven
+            e
+            n
+            n
+            use
+            y
+            n
+            use
+            y
+            e
+            e
+            s
+            s
+            s
+            s
+            fight
+            1
+            1
+            1
+            1
+            w
+            w
+            w
+            w
+            n
+            n
+            n
+            fight
+            1
+            1
+            1
+            1
+            e
+            e
+            e
+            e
+            use
+            y
+            w
+            w
+            w
+            s
+            s
+            fight
+            1
+            1
+            1
+            1
+            1
+            1
+            e
+            e
+            solve
+            false
+            true
+            false
+            w
+            w
+            w
+            s
+            heal
+            y
+            heal
+            y
+            heal
+            y
+            heal
+            y
+            use
+            y
+            1
+            1
+            1
+            1
+            1
+            1
+            1
+            1
+            1
+            1
+            1
+            1
+            q
+            y
+            """;
+
+    /** Runs each session on its own virtual thread. */
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Identifier for the next session. */
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /** Number of sessions currently being played. */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /** Records every session's seed and input, or null. */
+    private final GameJournal journal;
+
+    /** Hibernates idle sessions, or null. */
+    private final SessionStore store;
+
+    /**
+     * Creates a runtime that does not record its games.
+     */
+    public SessionRuntime() {
+        this(null);
+    }
+
+    /**
+     * Creates a runtime that records every game in a journal.
+     *
+     * @param journal the journal, or null to record nothing
+     */
+    public SessionRuntime(GameJournal journal) {
+        this(journal, null);
+    }
+
+    /**
+     * Creates a runtime that records every game in a journal and keeps its
+     * games in a store.
+     *
+     * @param journal the journal, or null to record nothing
+     * @param store   the store idle games are hibernated to, or null to keep
+     *                every game in memory
+     */
+    public SessionRuntime(GameJournal journal, SessionStore store) {
+        this.journal = journal;
+        this.store = store;
+    }
+
+    /**
+     * Starts a new game with a fresh seed on its own virtual thread.
+     *
+     * @param in  the stream the player's commands are read from
+     * @param out the stream text for the player is written to
+     * @return the running session's result; completes when the game ends
+     */
+    public Future<GameSession> start(InputStream in, OutputStream out) {
+        return start(GameRandom.newSession(), in, out);
+    }
+
+    /**
+     * Starts a new game on its own virtual thread. Both streams are closed when
+     * the game ends.
+     *
+     * @param random the random stream for the game
+     * @param in     the stream the player's commands are read from
+     * @param out    the stream text for the player is written to
+     * @return the running session's result; completes when the game ends
+     */
+    public Future<GameSession> start(GameRandom random, InputStream in, OutputStream out) {
+        return start(random, null, in, out);
+    }
+
+    /**
+     * Starts a new game in a world shared with other games, on its own virtual
+     * thread. Both streams are closed when the game ends.
+     *
+     * @param random the random stream for the game
+     * @param world  the world to play in, or null for a world of its own
+     * @param in     the stream the player's commands are read from
+     * @param out    the stream text for the player is written to
+     * @return the running session's result; completes when the game ends
+     */
+    public Future<GameSession> start(GameRandom random, SharedWorld world, InputStream in, OutputStream out) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), random, world, in, out);
+        session.setJournal(journal);
+        active.incrementAndGet();
+        return executor.submit(() -> {
+            try {
+                if (store != null) {
+                    store.add(session);
+                }
+                session.run();
+            } finally {
+                if (store != null) {
+                    store.remove(session);
+                }
+                active.decrementAndGet();
+                closeQuietly(in);
+                closeQuietly(out);
+            }
+            return session;
+        });
+    }
+
+    /**
+     * @return number of sessions currently being played
+     */
+    public int getActiveSessions() {
+        return active.get();
+    }
+
+    /**
+     * Stops accepting sessions and waits for the running ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Closes a stream, ignoring failures since the session is over anyway.
+     *
+     * @param stream the stream to close
+     */
+    private static void closeQuietly(AutoCloseable stream) {
+        try {
+            stream.close();
+        } catch (Exception e) {
+            // nothing more to do for a finished session
+        }
+    }
+
+    /**
+     * Plays many scripted games at once and reports the results.
+     *
+     * @param args number of sessions, base seed, journal file and most
+     *             sessions kept in memory while idle, all optional
+     * @throws Exception if a session fails
+     */
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        GameRandom seeds = new GameRandom(args.length > 1 ? Long.parseLong(args[1]) : 2511);
+        byte[] script = DEMO_SCRIPT.getBytes(StandardCharsets.UTF_8);
+
+        Path journalPath = args.length > 2 && !args[2].equals("-") ? Path.of(args[2]) : null;
+        if (journalPath != null) {
+            Files.deleteIfExists(journalPath);
+        }
+        int resident = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        Path storePath = resident > 0 ? Files.createTempDirectory("galactic-dawn-sessions") : null;
+
+        GameMetrics.install();
+        long start = System.nanoTime();
+        int won = 0;
+        String storeSummary = null;
+        List<GameSession> played = new ArrayList<>(sessions);
+        try (GameJournal journal = journalPath != null ? new GameJournal(journalPath) : null;
+                SessionStore store = storePath != null ? new SessionStore(storePath, resident) : null;
+                SessionRuntime runtime = new SessionRuntime(journal, store)) {
+            List<Future<GameSession>> games = new ArrayList<>(sessions);
+            for (int i = 0; i < sessions; i++) {
+                games.add(runtime.start(seeds.split(), new ByteArrayInputStream(script),
+                        OutputStream.nullOutputStream()));
+            }
+            for (Future<GameSession> game : games) {
+                played.add(game.get());
+                if (game.get().getEnemies().boss.isDead()) {
+                    won++;
+                }
+            }
+            if (store != null) {
+                storeSummary = String.format("%d hibernations and %d restores with at most %d idle sessions"
+                        + " in memory", store.getHibernations(), store.getRestores(), resident);
+            }
+        }
+        if (storePath != null) {
+            Files.delete(storePath);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d sessions in %.2f s (%.0f sessions/s), %d beat Emperor Poutine%n",
+                sessions, seconds, sessions / seconds, won);
+        System.out.println(GameMetrics.summary());
+        if (storeSummary != null) {
+            System.out.println(storeSummary);
+        }
+
+        if (journalPath != null) {
+            start = System.nanoTime();
+            // The journal was started afresh, so each identifier is one game
+            Map<Long, GameSession> replayed = new HashMap<>();
+            for (GameSession copy : GameJournal.replay(journalPath)) {
+                replayed.put(copy.getId(), copy);
+            }
+            int matching = 0;
+            for (GameSession game : played) {
+                GameSession copy = replayed.get(game.getId());
+                if (copy != null && sameState(game, copy)) {
+                    matching++;
+                }
+            }
+            seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Replayed %d sessions from %d journal bytes in %.2f s, %d match%n",
+                    replayed.size(), Files.size(journalPath), seconds, matching);
+        }
+    }
+
+    /**
+     * Compares the state of two games by their save snapshots.
+     *
+     * @param a one game
+     * @param b the other game
+     * @return true if both games would save identically
+     */
+    private static boolean sameState(GameSession a, GameSession b) {
+        ByteBuffer snapshotA = ByteBuffer.allocate(GameSnapshot.size(a));
+        ByteBuffer snapshotB = ByteBuffer.allocate(GameSnapshot.size(b));
+        GameSnapshot.write(a, snapshotA);
+        GameSnapshot.write(b, snapshotB);
+        return snapshotA.equals(snapshotB);
+    }
+}
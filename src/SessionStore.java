@@ -0,0 +1,412 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps at most a given number of games in memory, hibernating the least
+ * recently used idle ones to disk, so that heap use grows with the players
+ * who are playing rather than those who are connected.
+ * <p>
+ * A game is idle while it waits at the command prompt, see
+ * {@link GameSession#readCommand()}. Hibernating it writes its
+ * {@link GameSnapshot} to a file in the store's directory and drops its
+ * player, map, enemies and output buffer. When its next command arrives, its
+ * own thread reads the snapshot back before running the command, first
+ * waiting for the snapshot to be finished if it is still being written. A
+ * game in the middle of a command is never hibernated, so more games than the
+ * limit stay in memory while more than that many are running commands at
+ * once.
+ * <p>
+ * Resident games wait in a queue in the order they came into memory, and are
+ * evicted from its head with the second-chance clock algorithm: a game used
+ * since the clock last passed it is moved to the back instead. This
+ * approximates least-recently-used order without a lock or a list that every
+ * command reorders. Games are evicted by the store's own virtual thread,
+ * woken whenever a game comes into memory or goes idle while there are too
+ * many, so no game's command waits for other games to be written. Each game's
+ * residency is an atomic state, so the evictor and the games resuming and
+ * ending at the same time agree on it by compare-and-set:
+ * <pre>
+ * ACTIVE --idle--&gt; IDLE --resume--&gt; ACTIVE
+ *                   IDLE --evict--&gt; HIBERNATING --&gt; HIBERNATED --resume--&gt; ACTIVE
+ * ACTIVE --end--&gt; ENDED
+ * </pre>
+ * Snapshots are not forced to disk: they only need to outlive the process's
+ * idle periods, not a crash, since the games' connections would not survive
+ * one either.
+ */
+public final class SessionStore implements AutoCloseable {
+    /** The game is running a command, or not yet waiting for one. */
+    static final int ACTIVE = 0;
+
+    /** The game is waiting for a command and in memory. */
+    static final int IDLE = 1;
+
+    /** The game is being written to disk. */
+    static final int HIBERNATING = 2;
+
+    /** The game is on disk. */
+    static final int HIBERNATED = 3;
+
+    /** The game has ended. */
+    static final int ENDED = 4;
+
+    /** Where snapshots are kept. */
+    private final Path directory;
+
+    /** Most games kept in memory while idle. */
+    private final int maxResident;
+
+    /** Games in memory, in clock order; may also hold ended games not yet passed. */
+    private final Queue<GameSession> clock = new ConcurrentLinkedQueue<>();
+
+    /** Number of games in memory. */
+    private final AtomicInteger resident = new AtomicInteger();
+
+    /** Number of games hibernated so far. */
+    private final AtomicLong hibernations = new AtomicLong();
+
+    /** Number of games brought back from disk so far. */
+    private final AtomicLong restores = new AtomicLong();
+
+    /** Guards waking the evictor and waiting for a hibernation to finish. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Signalled when there may be too many games in memory, or on closing. */
+    private final Condition evictionRequested = lock.newCondition();
+
+    /** Signalled when a game stops being {@link #HIBERNATING}. */
+    private final Condition hibernationFinished = lock.newCondition();
+
+    /** Whether the evictor has been asked to run again; guarded by {@link #lock}. */
+    private boolean evictionPending;
+
+    /** Whether the store has been closed; guarded by {@link #lock}. */
+    private boolean closed;
+
+    /** Hibernates idle games while there are too many in memory. */
+    private final Thread evictor;
+
+    /**
+     * @param directory   where snapshots are kept; created if missing
+     * @param maxResident most games kept in memory while idle, at least 1
+     * @throws IOException if the directory cannot be created
+     */
+    public SessionStore(Path directory, int maxResident) throws IOException {
+        if (maxResident < 1) {
+            throw new IllegalArgumentException("maxResident must be at least 1: " + maxResident);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxResident = maxResident;
+        this.evictor = Thread.ofVirtual().name("session-evictor").start(this::runEvictor);
+    }
+
+    /**
+     * @return number of games in memory
+     */
+    public int getResident() {
+        return resident.get();
+    }
+
+    /**
+     * @return number of games hibernated so far
+     */
+    public long getHibernations() {
+        return hibernations.get();
+    }
+
+    /**
+     * @return number of games brought back from disk so far
+     */
+    public long getRestores() {
+        return restores.get();
+    }
+
+    /**
+     * Starts keeping a new game, which is in memory and running.
+     *
+     * @param session the game
+     */
+    public void add(GameSession session) {
+        session.setStore(this);
+        admit(session);
+    }
+
+    /**
+     * Stops keeping a game that has ended. Called from the game's thread
+     * after it last resumed.
+     *
+     * @param session the game
+     */
+    public void remove(GameSession session) {
+        if (session.residency.compareAndSet(ACTIVE, ENDED)) {
+            resident.decrementAndGet();
+            // Pass one game so that ended ones leave the queue as fast as they join it
+            advance(false, true);
+        }
+    }
+
+    /**
+     * Marks a game idle, so it may be hibernated, and wakes the evictor if
+     * there are too many games in memory, which there may be after many were
+     * busy at once. Called from the game's thread, with its output flushed,
+     * before it waits for a command.
+     *
+     * @param session the game
+     */
+    void idle(GameSession session) {
+        session.recentlyUsed = true;
+        session.residency.set(IDLE);
+        if (resident.get() > maxResident) {
+            requestEviction();
+        }
+    }
+
+    /**
+     * Makes sure an idle game is in memory and marks it running, waiting for
+     * the evictor if it is writing the game to disk. Called from the game's
+     * thread once its command has arrived.
+     *
+     * @param session the game
+     * @throws UncheckedIOException  if the game's snapshot cannot be read back
+     * @throws IllegalStateException if the game is not idle or hibernated
+     */
+    void resume(GameSession session) {
+        while (true) {
+            int state = session.residency.get();
+            if (state == IDLE) {
+                if (session.residency.compareAndSet(IDLE, ACTIVE)) {
+                    return;
+                }
+            } else if (state == HIBERNATED) {
+                restore(session);
+                session.residency.set(ACTIVE);
+                admit(session);
+                return;
+            } else if (state == HIBERNATING) {
+                lock.lock();
+                try {
+                    while (session.residency.get() == HIBERNATING) {
+                        hibernationFinished.awaitUninterruptibly();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                throw new IllegalStateException("Session " + session.getId() + " resumed while "
+                        + (state == ACTIVE ? "running" : "ended"));
+            }
+        }
+    }
+
+    /**
+     * Counts a game as resident and queues it, then wakes the evictor if
+     * there are too many in memory.
+     *
+     * @param session the game, which is running
+     */
+    private void admit(GameSession session) {
+        session.recentlyUsed = true;
+        clock.add(session);
+        if (resident.incrementAndGet() > maxResident) {
+            requestEviction();
+        }
+    }
+
+    /**
+     * Wakes the evictor, or has it look again once it finishes its current
+     * pass.
+     */
+    private void requestEviction() {
+        lock.lock();
+        try {
+            evictionPending = true;
+            evictionRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the evictor: waits to be asked, then evicts, until the store is
+     * closed. If every game in memory is busy it evicts nothing and waits for
+     * the next game to go idle.
+     */
+    private void runEvictor() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!evictionPending && !closed) {
+                    evictionRequested.awaitUninterruptibly();
+                }
+                if (closed) {
+                    return;
+                }
+                evictionPending = false;
+            } finally {
+                lock.unlock();
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Hibernates idle games while there are too many in memory. The clock
+     * goes round at most twice honouring marks, which is enough to clear
+     * every one; if games keep marking themselves faster than that, it goes
+     * round once more evicting idle games regardless, in queue order.
+     */
+    private void evict() {
+        int lap = resident.get();
+        for (int step = 0; step < 3 * lap && resident.get() > maxResident; step++) {
+            if (!advance(true, step < 2 * lap)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Moves the clock past the game at the head of the queue: an ended game is
+     * dropped, an idle game is hibernated if evicting and it is not marked
+     * as used since the clock last passed it, and any other game goes to the
+     * back, losing its mark if evicting.
+     *
+     * @param evict     whether to clear marks and hibernate
+     * @param honorMark whether a marked game is spared
+     * @return false if the queue was empty
+     */
+    private boolean advance(boolean evict, boolean honorMark) {
+        GameSession session = clock.poll();
+        if (session == null) {
+            return false;
+        }
+        int state = session.residency.get();
+        if (state == ENDED) {
+            return true;
+        }
+        if (evict && honorMark && session.recentlyUsed) {
+            session.recentlyUsed = false;
+        } else if (evict && state == IDLE && session.residency.compareAndSet(IDLE, HIBERNATING)) {
+            if (hibernate(session)) {
+                return true;
+            }
+        }
+        clock.add(session);
+        return true;
+    }
+
+    /**
+     * Writes an idle game to disk and drops it from memory. On failure the
+     * game stays in memory and idle.
+     *
+     * @param session the game, claimed by setting it to {@link #HIBERNATING}
+     * @return true if the game was hibernated
+     */
+    private boolean hibernate(GameSession session) {
+        ByteBuffer snapshot = ByteBuffer.allocate(GameSnapshot.size(session));
+        GameSnapshot.write(session, snapshot);
+        try (FileChannel channel = FileChannel.open(path(session), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not hibernate session " + session.getId() + ": " + e);
+            finishHibernating(session, IDLE);
+            return false;
+        }
+        session.release();
+        resident.decrementAndGet();
+        hibernations.incrementAndGet();
+        finishHibernating(session, HIBERNATED);
+        return true;
+    }
+
+    /**
+     * Moves a game out of {@link #HIBERNATING} and wakes its thread if it is
+     * waiting to resume.
+     *
+     * @param session the game
+     * @param state   {@link #HIBERNATED}, or {@link #IDLE} if writing failed
+     */
+    private void finishHibernating(GameSession session, int state) {
+        session.residency.set(state);
+        lock.lock();
+        try {
+            hibernationFinished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a hibernated game back from disk and deletes its snapshot.
+     *
+     * @param session the game
+     * @throws UncheckedIOException if the snapshot cannot be read
+     */
+    private void restore(GameSession session) {
+        Path path = path(session);
+        try {
+            session.rebuild();
+            GameSnapshot.read(ByteBuffer.wrap(Files.readAllBytes(path)), session);
+            Files.delete(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not restore session " + session.getId(), e);
+        }
+        restores.incrementAndGet();
+    }
+
+    /**
+     * @param session a game
+     * @return the file its snapshot is kept in
+     */
+    private Path path(GameSession session) {
+        return directory.resolve("session-" + session.getId() + ".gds");
+    }
+
+    /**
+     * Stops the evictor and deletes every snapshot left in the directory.
+     * Call once no game uses the store any more.
+     *
+     * @throws IOException if a snapshot cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            evictionRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                evictor.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, "session-*.gds")) {
+            for (Path snapshot : snapshots) {
+                Files.delete(snapshot);
+            }
+        }
+    }
+}
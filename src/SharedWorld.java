@@ -0,0 +1,182 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * A world played by several games at once: its enemies and every change to
+ * its locations are shared, while each player keeps their own inventory,
+ * position and health. Each game sees the world through its own
+ * {@link GameMap}, which keeps that player's map drawing and search index.
+ * <p>
+ * Players hit a shared enemy through its atomic health, see
+ * {@link CombatCharacters#takeDamage(int)}, so no hit is lost and exactly one
+ * hit defeats it. Location changes are split by cell into a fixed number of
+ * stripes, each a copy-on-write {@link WorldOverlay} replaced under its own
+ * lock:
+ * <ul>
+ * <li>Reading a location takes no lock; it reads its stripe's current
+ * overlay.</li>
+ * <li>A change checks and replaces its stripe's overlay while holding the
+ * stripe's lock, so two players cannot both take an item or both claim an
+ * event, and changes to cells in different stripes do not wait for each
+ * other.</li>
+ * </ul>
+ * Every change is numbered, and the cells of the last {@link #LOG_SIZE}
+ * changes are kept in a ring, so a game can bring its search index up to date
+ * by looking again at only the cells changed since it last looked.
+ * <p>
+ * The locks are {@link ReentrantLock}s rather than monitors since games run
+ * on virtual threads, which a monitor would pin to their carrier.
+ */
+public final class SharedWorld {
+    /** Number of stripes location changes are split into; a power of two. */
+    private static final int STRIPES = 16;
+
+    /** The shared layout of the world. */
+    private final WorldTemplate template;
+
+    /** The enemies every player in this world fights. */
+    private final Enemies enemies = new Enemies();
+
+    /** The changes made to each stripe's cells. */
+    private final AtomicReferenceArray<WorldOverlay> overlays = new AtomicReferenceArray<>(STRIPES);
+
+    /** Guards the changes to each stripe's overlay. */
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    /** Number of recent changes whose cells are kept; a power of two. */
+    private static final int LOG_SIZE = 1024;
+
+    /** Number of changes made so far, so games can tell when their index is stale. */
+    private final AtomicInteger changes = new AtomicInteger();
+
+    /** Cell of each recent change, change n in slot n modulo {@link #LOG_SIZE}. */
+    private final AtomicIntegerArray log = new AtomicIntegerArray(LOG_SIZE);
+
+    /** Guards numbering and logging a change, so the log holds changes in order. */
+    private final ReentrantLock logLock = new ReentrantLock();
+
+    /**
+     * Creates a shared world over the default template.
+     */
+    public SharedWorld() {
+        this(WorldTemplate.DEFAULT);
+    }
+
+    /**
+     * Creates a shared world over any template.
+     *
+     * @param template the shared layout of the world
+     */
+    public SharedWorld(WorldTemplate template) {
+        this.template = template;
+        for (int i = 0; i < STRIPES; i++) {
+            overlays.set(i, WorldOverlay.EMPTY);
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return the shared layout of the world
+     */
+    public WorldTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the enemies every player in this world fights
+     */
+    public Enemies getEnemies() {
+        return enemies;
+    }
+
+    /**
+     * @return number of location changes made so far
+     */
+    int getChanges() {
+        return changes.get();
+    }
+
+    /**
+     * Returns the changes made to the stripe holding a cell.
+     *
+     * @param cell the cell number
+     * @return an overlay holding the cell's changes, if any
+     */
+    WorldOverlay overlay(int cell) {
+        return overlays.get(cell & (STRIPES - 1));
+    }
+
+    /**
+     * Changes one cell, unless its current state rules the change out.
+     *
+     * @param cell   the cell number
+     * @param change given the current overlay of the cell's stripe, returns
+     *               the changed overlay, or the same overlay to change nothing;
+     *               called once, with the stripe locked
+     * @return true if the cell was changed
+     */
+    boolean update(int cell, UnaryOperator<WorldOverlay> change) {
+        int stripe = cell & (STRIPES - 1);
+        ReentrantLock lock = locks[stripe];
+        lock.lock();
+        try {
+            WorldOverlay current = overlays.get(stripe);
+            WorldOverlay updated = change.apply(current);
+            if (updated == current) {
+                return false;
+            }
+            overlays.set(stripe, updated);
+        } finally {
+            lock.unlock();
+        }
+        logLock.lock();
+        try {
+            int number = changes.get();
+            log.set(number & (LOG_SIZE - 1), cell);
+            changes.set(number + 1);
+        } finally {
+            logLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Passes the cell of each change from one count to another to an action,
+     * oldest first; a cell changed more than once is passed each time.
+     *
+     * @param since  the change count last seen
+     * @param until  the change count now, from {@link #getChanges()}
+     * @param action receives each changed cell number
+     * @return false if some of the changes are no longer kept, in which case
+     *         the cells passed are incomplete and the caller should look at
+     *         every changed cell instead
+     */
+    boolean forEachChangeSince(int since, int until, IntConsumer action) {
+        if (until - since >= LOG_SIZE) {
+            return false;
+        }
+        for (int change = since; change != until; change++) {
+            action.accept(log.get(change & (LOG_SIZE - 1)));
+        }
+        // A change logged while reading may have overwritten the oldest slots read
+        return changes.get() - since < LOG_SIZE;
+    }
+
+    /**
+     * Passes every changed cell to an action, stripe by stripe.
+     *
+     * @param action receives each changed cell number
+     */
+    void forEachChangedCell(IntConsumer action) {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            WorldOverlay overlay = overlays.get(stripe);
+            for (int i = 0; i < overlay.size(); i++) {
+                action.accept(overlay.cellAt(i));
+            }
+        }
+    }
+}
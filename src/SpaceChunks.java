@@ -0,0 +1,158 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The procedurally generated open space of a large {@link WorldTemplate}:
+ * nebulae, debris fields and ion storms scattered through empty space.
+ * <p>
+ * The world is cut into chunks of {@link #SIZE} by {@link #SIZE} cells. A
+ * chunk is generated from the world seed and its own coordinates the first
+ * time a game looks at one of its cells, and kept in a fixed-size cache shared
+ * by every game on the template. When the cache is full the least recently
+ * used chunk of a pair makes room; since generation is deterministic, an
+ * evicted chunk comes back identical on the next visit. Memory therefore grows
+ * with the area players explore, up to the size of the cache, and not with
+ * the size of the world.
+ * <p>
+ * The cache takes no locks. Two threads generating the same chunk at once
+ * build identical copies and either may stay.
+ */
+final class SpaceChunks {
+    /** Cells on each side of a chunk; a power of two. */
+    static final int SIZE = 16;
+
+    /** Plain empty space. */
+    static final byte EMPTY = 0;
+
+    /** Bits of a coordinate inside its chunk. */
+    private static final int SHIFT = Integer.numberOfTrailingZeros(SIZE);
+
+    /** Pairs of cache slots; a power of two. */
+    private static final int SETS = 1024;
+
+    /** Rows in the world. */
+    private final int height;
+
+    /** Chunks per column of the world. */
+    private final int chunksHigh;
+
+    /** Seeds every chunk. */
+    private final long seed;
+
+    /** Number of kinds of space, including {@link #EMPTY}. */
+    private final int kinds;
+
+    /** Cached chunks; the two ways of set {@code s} are slots {@code 2s} and {@code 2s + 1}. */
+    private final AtomicReferenceArray<Chunk> slots = new AtomicReferenceArray<>(2 * SETS);
+
+    /** Number of chunks generated so far, used as the clock for recency. */
+    private final AtomicLong generated = new AtomicLong();
+
+    /**
+     * A generated chunk.
+     */
+    private static final class Chunk {
+        /** Which chunk this is. */
+        final long number;
+
+        /** Kind of space in each cell, by {@code x * SIZE + y} within the chunk. */
+        final byte[] cells;
+
+        /** Value of the generation clock when the chunk was last used. */
+        volatile long lastUsed;
+
+        /**
+         * @param number which chunk this is
+         * @param cells  kind of space in each cell
+         * @param now    the generation clock
+         */
+        Chunk(long number, byte[] cells, long now) {
+            this.number = number;
+            this.cells = cells;
+            this.lastUsed = now;
+        }
+    }
+
+    /**
+     * @param height rows in the world
+     * @param seed   seeds every chunk
+     * @param kinds  number of kinds of space, including {@link #EMPTY}
+     */
+    SpaceChunks(int height, long seed, int kinds) {
+        this.height = height;
+        this.chunksHigh = (height + SIZE - 1) / SIZE;
+        this.seed = seed;
+        this.kinds = kinds;
+    }
+
+    /**
+     * Returns the kind of space in a cell, generating its chunk if needed.
+     *
+     * @param cell the cell number
+     * @return the kind, {@link #EMPTY} or a higher number
+     */
+    byte kind(int cell) {
+        int x = cell / height, y = cell % height;
+        long number = (long) (x >> SHIFT) * chunksHigh + (y >> SHIFT);
+        return chunk(number).cells[(x & (SIZE - 1)) * SIZE + (y & (SIZE - 1))];
+    }
+
+    /**
+     * @return number of chunks generated so far, counting regenerated ones
+     */
+    long getGenerated() {
+        return generated.get();
+    }
+
+    /**
+     * Finds a chunk in the cache, or generates it into the way of its set that
+     * was used least recently.
+     *
+     * @param number which chunk
+     * @return the chunk
+     */
+    private Chunk chunk(long number) {
+        int set = (int) GameRandom.mix64(number) & (SETS - 1);
+        Chunk first = slots.get(2 * set), second = slots.get(2 * set + 1);
+        long now = generated.get();
+        if (first != null && first.number == number) {
+            first.lastUsed = now;
+            return first;
+        }
+        if (second != null && second.number == number) {
+            second.lastUsed = now;
+            return second;
+        }
+        Chunk chunk = new Chunk(number, generate(number), generated.incrementAndGet());
+        int victim = first == null || second != null && first.lastUsed <= second.lastUsed ? 0 : 1;
+        slots.set(2 * set + victim, chunk);
+        return chunk;
+    }
+
+    /**
+     * Generates a chunk: up to three clouds of one kind each, grown by a random
+     * walk from a random cell.
+     *
+     * @param number which chunk
+     * @return the kind of space in each cell
+     */
+    private byte[] generate(long number) {
+        GameRandom.Generator random = new GameRandom.Generator(GameRandom.mix64(seed ^ number));
+        byte[] cells = new byte[SIZE * SIZE];
+        int clouds = random.nextInt(4);
+        for (int i = 0; i < clouds; i++) {
+            byte kind = (byte) (1 + random.nextInt(kinds - 1));
+            int x = random.nextInt(SIZE), y = random.nextInt(SIZE);
+            for (int steps = 12 + random.nextInt(36); steps > 0; steps--) {
+                cells[x * SIZE + y] = kind;
+                switch (random.nextInt(4)) {
+                    case 0 -> x = Math.min(x + 1, SIZE - 1);
+                    case 1 -> x = Math.max(x - 1, 0);
+                    case 2 -> y = Math.min(y + 1, SIZE - 1);
+                    default -> y = Math.max(y - 1, 0);
+                }
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numbers the names and descriptions used by world storage, so that
+ * {@link WorldTemplate} and {@link WorldOverlay} can keep an {@code int}
+ * per cell instead of a reference. Every distinct string is stored once and
+ * keeps its number for the life of the process.
+ * <p>
+ * Looking up a string by number takes no lock: the table is an array that
+ * is replaced, never changed in place, when it grows.
+ */
+final class StringTable {
+    /** Number meaning no string. */
+    static final int NONE = -1;
+
+    /** The number of each string added so far. */
+    private static final ConcurrentHashMap<String, Integer> NUMBERS = new ConcurrentHashMap<>();
+
+    /** Each string by number; slots past {@link #size} are null. */
+    private static volatile String[] strings = new String[64];
+
+    /** Number of strings added. */
+    private static int size;
+
+    /**
+     * Prevents instantiation.
+     */
+    private StringTable() {
+    }
+
+    /**
+     * Returns the number of a string, adding it if it is new.
+     *
+     * @param string the string, or null
+     * @return its number, or {@link #NONE} for null
+     */
+    static int indexOf(String string) {
+        if (string == null) {
+            return NONE;
+        }
+        Integer number = NUMBERS.get(string);
+        return number != null ? number : add(string);
+    }
+
+    /**
+     * @param number a number from {@link #indexOf(String)}, or {@link #NONE}
+     * @return the string, or null for {@link #NONE}
+     */
+    static String get(int number) {
+        return number == NONE ? null : strings[number];
+    }
+
+    /**
+     * Adds a string unless another thread got there first.
+     *
+     * @param string the string
+     * @return its number
+     */
+    private static synchronized int add(String string) {
+        Integer number = NUMBERS.get(string);
+        if (number != null) {
+            return number;
+        }
+        String[] table = strings;
+        if (size == table.length) {
+            table = Arrays.copyOf(table, size * 2);
+        }
+        table[size] = string;
+        strings = table;
+        NUMBERS.put(string, size);
+        return size++;
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.Arrays;
+
+/**
+ * Maps typed words to values, ignoring case and extra whitespace.
+ * Words are stored in a trie laid out in flat arrays and built once, so
+ * looking up part of an input line walks the characters in place without
+ * trimming, lowercasing or copying them.
+ * <p>
+ * Besides exact words, any prefix shared by only one value matches that
+ * value, so "nor" finds "north" while "he" matches neither "heal" nor
+ * "help". Words may contain letters, digits, single spaces and '?'.
+ *
+ * @param <T> the type of value a word maps to
+ */
+final class WordTable<T> {
+    /** Number of distinct characters a word may contain. */
+    private static final int SYMBOLS = 38;
+
+    /** Symbol of a run of whitespace. */
+    private static final int SPACE = 36;
+
+    /** Symbol of '?'. */
+    private static final int QUESTION_MARK = 37;
+
+    /** Marks a prefix shared by words with different values. */
+    private static final Object AMBIGUOUS = new Object();
+
+    /** Child of each node for each symbol, at node * SYMBOLS + symbol; 0 for none. */
+    private int[] children = new int[SYMBOLS * 16];
+
+    /** Value of the word ending at each node, or null. */
+    private Object[] exact = new Object[16];
+
+    /** Value shared by every word below each node, or {@link #AMBIGUOUS}. */
+    private Object[] unique = new Object[16];
+
+    /** Number of nodes in use; node 0 is the root. */
+    private int nodes = 1;
+
+    /**
+     * Adds a word. Only used while building the table.
+     *
+     * @param word  the word, in lower case
+     * @param value the value the word maps to
+     * @return this table
+     * @throws IllegalArgumentException if the word contains a character a
+     *                                  word may not contain
+     */
+    WordTable<T> add(String word, T value) {
+        int node = 0;
+        for (int i = 0; i < word.length(); i++) {
+            int symbol = symbol(word.charAt(i));
+            if (symbol < 0) {
+                throw new IllegalArgumentException("Unsupported character in \"" + word + "\"");
+            }
+            int slot = node * SYMBOLS + symbol;
+            node = children[slot];
+            if (node == 0) {
+                node = newNode(); // may replace the children array
+                children[slot] = node;
+            }
+            Object shared = unique[node];
+            unique[node] = shared == null || shared == value ? value : AMBIGUOUS;
+        }
+        exact[node] = value;
+        return this;
+    }
+
+    /**
+     * Looks up part of a line, ignoring surrounding whitespace.
+     *
+     * @param text  the line
+     * @param start index of the first character to look at
+     * @param end   index after the last character to look at
+     * @return the value of the matching word or unique prefix, or null if
+     *         there is none or the prefix is ambiguous
+     */
+    @SuppressWarnings("unchecked")
+    T match(CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            int symbol;
+            if (Character.isWhitespace(c)) {
+                if (Character.isWhitespace(text.charAt(i - 1))) {
+                    continue;
+                }
+                symbol = SPACE;
+            } else {
+                symbol = symbol(c);
+                if (symbol < 0) {
+                    return null;
+                }
+            }
+            node = children[node * SYMBOLS + symbol];
+            if (node == 0) {
+                return null;
+            }
+        }
+        Object value = exact[node] != null ? exact[node] : unique[node];
+        return value == AMBIGUOUS ? null : (T) value;
+    }
+
+    /**
+     * Looks up a whole line, ignoring surrounding whitespace.
+     *
+     * @param text the line
+     * @return the value of the matching word or unique prefix, or null
+     */
+    T match(CharSequence text) {
+        return match(text, 0, text.length());
+    }
+
+    /**
+     * Maps a character to its symbol, folding upper case to lower case.
+     *
+     * @param c the character
+     * @return the symbol, or -1 if words cannot contain the character
+     */
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        } else if (c == ' ') {
+            return SPACE;
+        } else if (c == '?') {
+            return QUESTION_MARK;
+        }
+        return -1;
+    }
+
+    /**
+     * Allocates a node, growing the arrays when they are full.
+     *
+     * @return the new node
+     */
+    private int newNode() {
+        if (nodes == exact.length) {
+            int capacity = nodes * 2;
+            children = Arrays.copyOf(children, capacity * SYMBOLS);
+            exact = Arrays.copyOf(exact, capacity);
+            unique = Arrays.copyOf(unique, capacity);
+        }
+        return nodes++;
+    }
+}
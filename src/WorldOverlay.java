@@ -0,0 +1,256 @@
+import java.util.Arrays;
+
+/**
+ * The changes one game has made to its {@link WorldTemplate}: triggered
+ * events, hostility changes, taken or placed items and replaced long
+ * descriptions.
+ * <p>
+ * Only changed cells are stored, in parallel arrays sorted by cell number.
+ * The arrays hold only primitives: items by id and long descriptions by
+ * their number in the {@link StringTable}, so an entry costs ten bytes and
+ * nothing for the garbage collector to trace.
+ * An overlay never changes once created; every change returns a new overlay
+ * with copied arrays, so a freshly started game shares {@link #EMPTY} and
+ * copies of a game's world can share their overlay until one of them changes.
+ */
+final class WorldOverlay {
+    /** The cell's event has been triggered. */
+    static final int EVENT_TRIGGERED = 1;
+
+    /** The cell's hostility differs from the template. */
+    static final int HOSTILE_SET = 2;
+
+    /** The cell is hostile; only meaningful with {@link #HOSTILE_SET}. */
+    static final int HOSTILE = 4;
+
+    /** The cell's item differs from the template. */
+    static final int ITEM_SET = 8;
+
+    /** The cell's long description differs from the template. */
+    static final int DESCRIPTION_SET = 16;
+
+    /** An overlay with no changes. */
+    static final WorldOverlay EMPTY = new WorldOverlay(new int[0], new byte[0], new byte[0], new int[0]);
+
+    /** Item id meaning no item. */
+    private static final byte NO_ITEM = -1;
+
+    /** Changed cells, ascending. */
+    private final int[] cells;
+
+    /** Flags of each changed cell. */
+    private final byte[] flags;
+
+    /** Item id of each changed cell, when {@link #ITEM_SET} is set, or {@link #NO_ITEM}. */
+    private final byte[] items;
+
+    /**
+     * String table number of each changed cell's long description, when
+     * {@link #DESCRIPTION_SET} is set.
+     */
+    private final int[] descriptions;
+
+    /**
+     * @param cells        changed cells, ascending
+     * @param flags        flags of each changed cell
+     * @param items        item id of each changed cell
+     * @param descriptions string number of each changed cell's long description
+     */
+    private WorldOverlay(int[] cells, byte[] flags, byte[] items, int[] descriptions) {
+        this.cells = cells;
+        this.flags = flags;
+        this.items = items;
+        this.descriptions = descriptions;
+    }
+
+    /**
+     * Rebuilds an overlay from the entries of a saved one.
+     *
+     * @param cells        changed cells, ascending
+     * @param flags        flags of each changed cell
+     * @param items        item of each changed cell
+     * @param descriptions long description of each changed cell
+     * @return the overlay
+     * @throws IllegalArgumentException if the cells are not ascending
+     */
+    static WorldOverlay of(int[] cells, byte[] flags, Items[] items, String[] descriptions) {
+        for (int i = 1; i < cells.length; i++) {
+            if (cells[i - 1] >= cells[i]) {
+                throw new IllegalArgumentException("Overlay cells are not ascending");
+            }
+        }
+        if (cells.length == 0) {
+            return EMPTY;
+        }
+        byte[] itemIds = new byte[cells.length];
+        int[] descriptionNumbers = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            itemIds[i] = id(items[i]);
+            descriptionNumbers[i] = StringTable.indexOf(descriptions[i]);
+        }
+        return new WorldOverlay(cells.clone(), flags.clone(), itemIds, descriptionNumbers);
+    }
+
+    /**
+     * @return number of changed cells
+     */
+    int size() {
+        return cells.length;
+    }
+
+    /**
+     * @param i index of a changed cell, below {@link #size()}
+     * @return the cell number
+     */
+    int cellAt(int i) {
+        return cells[i];
+    }
+
+    /**
+     * @param i index of a changed cell, below {@link #size()}
+     * @return the cell's flags
+     */
+    int flagsAt(int i) {
+        return flags[i];
+    }
+
+    /**
+     * @param i index of a changed cell, below {@link #size()}
+     * @return the cell's item
+     */
+    Items itemAt(int i) {
+        return Items.byId(items[i]);
+    }
+
+    /**
+     * @param i index of a changed cell, below {@link #size()}
+     * @return the cell's long description
+     */
+    String descriptionAt(int i) {
+        return StringTable.get(descriptions[i]);
+    }
+
+    /**
+     * @param cell the cell number
+     * @return the flags of the cell, 0 if it is unchanged
+     */
+    int flags(int cell) {
+        int i = Arrays.binarySearch(cells, cell);
+        return i >= 0 ? flags[i] : 0;
+    }
+
+    /**
+     * @param cell the cell number
+     * @return the cell's item; only meaningful when {@link #ITEM_SET} is set
+     */
+    Items item(int cell) {
+        int i = Arrays.binarySearch(cells, cell);
+        return i >= 0 ? Items.byId(items[i]) : null;
+    }
+
+    /**
+     * @param cell the cell number
+     * @return the cell's long description; only meaningful when
+     *         {@link #DESCRIPTION_SET} is set
+     */
+    String description(int cell) {
+        int i = Arrays.binarySearch(cells, cell);
+        return i >= 0 ? StringTable.get(descriptions[i]) : null;
+    }
+
+    /**
+     * Returns an overlay with some flags of a cell set and others cleared.
+     *
+     * @param cell  the cell number
+     * @param set   flags to set
+     * @param clear flags to clear
+     * @return the changed overlay
+     */
+    WorldOverlay withFlags(int cell, int set, int clear) {
+        int i = Arrays.binarySearch(cells, cell);
+        int old = i >= 0 ? flags[i] : 0;
+        int changed = (old | set) & ~clear;
+        if (i >= 0 && changed == old) {
+            return this;
+        }
+        return copyWith(i, cell, changed, i >= 0 ? items[i] : NO_ITEM, i >= 0 ? descriptions[i] : StringTable.NONE);
+    }
+
+    /**
+     * Returns an overlay where a cell holds the given item.
+     *
+     * @param cell the cell number
+     * @param item the item, or null for none
+     * @return the changed overlay
+     */
+    WorldOverlay withItem(int cell, Items item) {
+        int i = Arrays.binarySearch(cells, cell);
+        int old = i >= 0 ? flags[i] : 0;
+        return copyWith(i, cell, old | ITEM_SET, id(item), i >= 0 ? descriptions[i] : StringTable.NONE);
+    }
+
+    /**
+     * Returns an overlay where a cell has the given long description.
+     *
+     * @param cell        the cell number
+     * @param description the long description
+     * @return the changed overlay
+     */
+    WorldOverlay withDescription(int cell, String description) {
+        int i = Arrays.binarySearch(cells, cell);
+        int old = i >= 0 ? flags[i] : 0;
+        return copyWith(i, cell, old | DESCRIPTION_SET, i >= 0 ? items[i] : NO_ITEM,
+                StringTable.indexOf(description));
+    }
+
+    /**
+     * Copies the arrays, replacing or inserting one cell's entry.
+     *
+     * @param i           the binary search result for the cell
+     * @param cell        the cell number
+     * @param cellFlags   the cell's new flags
+     * @param item        the cell's new item id
+     * @param description the string number of the cell's new long description
+     * @return the new overlay
+     */
+    private WorldOverlay copyWith(int i, int cell, int cellFlags, byte item, int description) {
+        int[] newCells;
+        byte[] newFlags;
+        byte[] newItems;
+        int[] newDescriptions;
+        if (i >= 0) {
+            newCells = cells;
+            newFlags = flags.clone();
+            newItems = items.clone();
+            newDescriptions = descriptions.clone();
+        } else {
+            i = -i - 1;
+            int n = cells.length;
+            newCells = new int[n + 1];
+            newFlags = new byte[n + 1];
+            newItems = new byte[n + 1];
+            newDescriptions = new int[n + 1];
+            System.arraycopy(cells, 0, newCells, 0, i);
+            System.arraycopy(cells, i, newCells, i + 1, n - i);
+            System.arraycopy(flags, 0, newFlags, 0, i);
+            System.arraycopy(flags, i, newFlags, i + 1, n - i);
+            System.arraycopy(items, 0, newItems, 0, i);
+            System.arraycopy(items, i, newItems, i + 1, n - i);
+            System.arraycopy(descriptions, 0, newDescriptions, 0, i);
+            System.arraycopy(descriptions, i, newDescriptions, i + 1, n - i);
+            newCells[i] = cell;
+        }
+        newFlags[i] = (byte) cellFlags;
+        newItems[i] = item;
+        newDescriptions[i] = description;
+        return new WorldOverlay(newCells, newFlags, newItems, newDescriptions);
+    }
+
+    /**
+     * @param item an item, or null
+     * @return the item's id, or {@link #NO_ITEM}
+     */
+    private static byte id(Items item) {
+        return item != null ? (byte) item.getId() : NO_ITEM;
+    }
+}
@@ -0,0 +1,448 @@
+import java.util.Arrays;
+
+/**
+ * The unchanging layout of a game world: the name, descriptions, starting item,
+ * starting hostility and one-time event of every location.
+ * A template is built once and shared by every game; each {@link GameMap}
+ * only records how its own world differs from the template.
+ * <p>
+ * Only the hand-authored places are stored, sorted by cell number, in
+ * parallel arrays of primitives: strings by their number in the
+ * {@link StringTable}, items by id, and hostility and events as flag bits.
+ * Every other cell is empty space, except that worlds larger than the
+ * authored area fill the space beyond it with nebulae, debris fields and ion
+ * storms generated from the world seed, see {@link SpaceChunks}. A template's
+ * memory therefore does not depend on the size of its world.
+ * <p>
+ * Cells are numbered {@code x * height + y}, matching the [x][y] layout of the
+ * map where x increases going east and y increases going north.
+ */
+public class WorldTemplate {
+        /** Long descriptions of empty space; each game picks one per cell. */
+        static final String[] EMPTY_SPACE_DESCRIPTIONS = {
+                        "There is nothing of interest here. Just the cold, silent void of space.",
+                        "Just a vast, empty void. You see nothing but darkness and distant stars.",
+                        "You drift through space with nothing but your own breath and the ship's hum for company."
+        };
+
+        /** Columns and rows of the hand-authored Galactic Dawn area. */
+        private static final int AUTHORED_SIZE = 5;
+
+        /** Name of empty space and of each generated kind of space, by kind. */
+        private static final String[] SPACE_NAMES = { "Empty Space", "Nebula", "Debris Field", "Ion Storm" };
+
+        /** Short description of each kind of space. */
+        private static final String[] SPACE_DESCRIPTIONS = {
+                        "You are drifting through empty space.",
+                        "Glowing clouds of ionised gas drift around your ship.",
+                        "Twisted wreckage tumbles slowly through the dark.",
+                        "Arcs of blue lightning crawl across your hull."
+        };
+
+        /** Long description of each kind of space; empty space varies per game. */
+        private static final String[] SPACE_LONG_DESCRIPTIONS = {
+                        null,
+                        "Sensors crackle with static.\nThe nebula's colours shift slowly as you pass through.",
+                        "Hull plating from a long-forgotten battle drifts past.\nNothing here looks salvageable.",
+                        "Your instruments flicker as the storm rolls over you.\nBest not to linger."
+        };
+
+        /** System property giving the world's size as {@code WIDTHxHEIGHT}. */
+        private static final String SIZE_PROPERTY = "galacticdawn.world";
+
+        /** System property giving the seed of the generated space. */
+        private static final String SEED_PROPERTY = "galacticdawn.world.seed";
+
+        /**
+         * The Galactic Dawn world shared by every game: 5x5 cells, or the size
+         * given by the system property {@code galacticdawn.world}, such as
+         * {@code 2000x2000}, with generated space seeded by
+         * {@code galacticdawn.world.seed}.
+         */
+        public static final WorldTemplate DEFAULT = createConfigured();
+
+        /** Number of columns, going east. */
+        private final int width;
+
+        /** Number of rows, going north. */
+        private final int height;
+
+        /** Flag bit of a place that starts hostile. */
+        private static final byte HOSTILE = 1;
+
+        /** Flag bit of a place with an event the player can trigger once. */
+        private static final byte EVENT = 2;
+
+        /** Cells holding a hand-authored place, ascending. */
+        private int[] placeCells = new int[0];
+
+        /** String number of each place's name. */
+        private int[] placeNames = new int[0];
+
+        /** String number of each place's short description. */
+        private int[] placeDescriptions = new int[0];
+
+        /** String number of each place's starting long description. */
+        private int[] placeLongDescriptions = new int[0];
+
+        /** Id of each place's starting item, or -1. */
+        private byte[] placeItems = new byte[0];
+
+        /** Flag bits of each place. */
+        private byte[] placeFlags = new byte[0];
+
+        /**
+         * The cell of each place by its name in lower case and by each word of
+         * its name that no other place shares, for the {@code goto} command.
+         */
+        private final WordTable<Integer> placesByName = new WordTable<>();
+
+        /** Generated space beyond the authored area, or null if the world has none. */
+        private final SpaceChunks space;
+
+        /** Layout of the map drawn for this world, shared by every game. */
+        private final MapFrame mapFrame;
+
+        /**
+         * Creates a template filled with empty space.
+         *
+         * @param width  number of columns
+         * @param height number of rows
+         * @param seed   seeds the space generated beyond the authored area
+         * @throws IllegalArgumentException if the world is smaller than the
+         *                                  authored area or has too many cells
+         *                                  to number
+         */
+        private WorldTemplate(int width, int height, long seed) {
+                if (width < AUTHORED_SIZE || height < AUTHORED_SIZE) {
+                        throw new IllegalArgumentException("The world must be at least " + AUTHORED_SIZE + "x"
+                                        + AUTHORED_SIZE);
+                }
+                if ((long) width * height > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("The world has more than " + Integer.MAX_VALUE + " cells");
+                }
+                this.width = width;
+                this.height = height;
+                boolean generated = width > AUTHORED_SIZE || height > AUTHORED_SIZE;
+                this.space = generated ? new SpaceChunks(height, seed, SPACE_NAMES.length) : null;
+                this.mapFrame = new MapFrame(width, height);
+        }
+
+        /**
+         * Places a location in the template. Only used while building it.
+         *
+         * @param x               the x-coordinate
+         * @param y               the y-coordinate
+         * @param name            the name of the location
+         * @param description     a short description
+         * @param isHostile       whether the location starts hostile
+         * @param hasEvent        whether the location has an event, such as a
+         *                        puzzle or a trade, that can happen once
+         * @param longDescription the starting long description
+         * @param item            the starting item, or null
+         */
+        private void place(int x, int y, String name, String description, boolean isHostile,
+                        boolean hasEvent, String longDescription, Items item) {
+                int cell = cell(x, y);
+                int i = Arrays.binarySearch(placeCells, cell);
+                if (i < 0) {
+                        i = -i - 1;
+                        placeCells = insert(placeCells, i);
+                        placeNames = insert(placeNames, i);
+                        placeDescriptions = insert(placeDescriptions, i);
+                        placeLongDescriptions = insert(placeLongDescriptions, i);
+                        placeItems = insert(placeItems, i);
+                        placeFlags = insert(placeFlags, i);
+                        placeCells[i] = cell;
+                }
+                placeNames[i] = StringTable.indexOf(name);
+                placeDescriptions[i] = StringTable.indexOf(description);
+                placeLongDescriptions[i] = StringTable.indexOf(longDescription);
+                placeItems[i] = (byte) (item != null ? item.getId() : -1);
+                placeFlags[i] = (byte) ((isHostile ? HOSTILE : 0) | (hasEvent ? EVENT : 0));
+        }
+
+        /**
+         * Copies an array with a zero inserted.
+         *
+         * @param array the array
+         * @param i     where to insert
+         * @return the longer copy
+         */
+        private static int[] insert(int[] array, int i) {
+                int[] grown = new int[array.length + 1];
+                System.arraycopy(array, 0, grown, 0, i);
+                System.arraycopy(array, i, grown, i + 1, array.length - i);
+                return grown;
+        }
+
+        /**
+         * Copies an array with a zero inserted.
+         *
+         * @param array the array
+         * @param i     where to insert
+         * @return the longer copy
+         */
+        private static byte[] insert(byte[] array, int i) {
+                byte[] grown = new byte[array.length + 1];
+                System.arraycopy(array, 0, grown, 0, i);
+                System.arraycopy(array, i, grown, i + 1, array.length - i);
+                return grown;
+        }
+
+        /**
+         * Builds the Galactic Dawn world at the size and seed given by the
+         * system properties, 5x5 by default.
+         *
+         * @return the template
+         * @throws IllegalArgumentException if the size is malformed or too small
+         */
+        private static WorldTemplate createConfigured() {
+                String size = System.getProperty(SIZE_PROPERTY, AUTHORED_SIZE + "x" + AUTHORED_SIZE);
+                int split = size.indexOf('x');
+                if (split < 0) {
+                        throw new IllegalArgumentException(SIZE_PROPERTY + " must look like 2000x2000: " + size);
+                }
+                int width = Integer.parseInt(size.substring(0, split).trim());
+                int height = Integer.parseInt(size.substring(split + 1).trim());
+                return create(width, height, Long.getLong(SEED_PROPERTY, 0));
+        }
+
+        /**
+         * Builds the Galactic Dawn world. The hand-authored places sit in the
+         * bottom-left 5x5 cells; any space beyond is generated.
+         *
+         * @param width  number of columns, at least 5
+         * @param height number of rows, at least 5
+         * @param seed   seeds the generated space
+         * @return the template
+         * @throws IllegalArgumentException if the world is too small or too large
+         */
+        public static WorldTemplate create(int width, int height, long seed) {
+                WorldTemplate world = new WorldTemplate(width, height, seed);
+
+                // Planets
+                world.place(2, 4, "Eridani",
+                                "A harsh desert wasteland under a blood-red sky.", true, true,
+                                "Grand General Zig's forces patrol the dunes.\nYou can trade an Ore Chunk with him for the warp drive fragment.\nAlternatively, there are less amicable ways to get it...",
+                                null);
+
+                world.place(0, 3, "Ixyll",
+                                "Dense jungle vines obscure your path.", true, false,
+                                "The air hums with energy.\nZep Zop, a tribal warrior, defends the jungle.\nDefeating him grants a mysterious fruit and a warp drive fragment.",
+                                null);
+
+                world.place(1, 1, "Strix",
+                                "Freezing winds howl across a barren tundra.", true, true,
+                                "Mastermind lurks within a ruined facility.\nEntertain his musings for a special reward.\nVictory yields a warp drive fragment.",
+                                null);
+
+                world.place(4, 0, "Ternion",
+                                "Ruins of a once-thriving city now echo with silence.", true, false,
+                                "A Rogue Droid stalks the alleys.\nIts defeat is the only way to claim the warp drive fragment hidden here.",
+                                null);
+
+                // Points of Interest
+                world.place(2, 3, "Abandoned Space Station",
+                                "You see the remains of an abandoned space station drifting silently.", false, true,
+                                "A dormant AI terminal blinks faintly.\nPower couplings near the entrance suggest this station needs an energy source.\nFaded text on the hull reads 'ARMORY - AUTHORIZED PERSONNEL ONLY'.",
+                                null);
+
+                world.place(4, 2, "Asteroid",
+                                "Jagged rocks surround a mining site carved into the asteroid's crust.", false, false,
+                                "Laser drills hum quietly.\nRich ore veins glint beneath the surface, promising valuable resources.",
+                                Items.ORE_CHUNK);
+
+                world.place(4, 3, "Jungle Moon",
+                                "Thick underbrush and alien chirps define the moon's surface.", false, true,
+                                "The Feral Hermit watches from the shadows.\nHe seems open to trading a Fruit for a Shield Module.",
+                                null);
+
+                world.place(3, 1, "Mysterious Monolith",
+                                "A tall, obsidian structure pulses with otherworldly light.", false, true,
+                                "Etched glyphs hint at a riddle.\nAnswering it may unlock the key to a hidden gate.",
+                                null);
+
+                world.place(0, 0, "Rift Gate",
+                                "A swirling vortex pulses with dark energy.", true, false,
+                                "The final challenge awaits.\nOnly those with the Gate Key may face Emperor Poutine and end his corruption.",
+                                null);
+
+                world.indexPlaceNames();
+                return world;
+        }
+
+        /**
+         * Fills {@link #placesByName} once every place is in the template.
+         */
+        private void indexPlaceNames() {
+                for (int i = 0; i < placeCells.length; i++) {
+                        placesByName.add(StringTable.get(placeNames[i]).toLowerCase(), placeCells[i]);
+                }
+                for (int i = 0; i < placeCells.length; i++) {
+                        for (String word : StringTable.get(placeNames[i]).toLowerCase().split(" ")) {
+                                if (placesByName.match(word) == null) {
+                                        placesByName.add(word, placeCells[i]);
+                                }
+                        }
+                }
+        }
+
+        /**
+         * Looks up a hand-authored place by name, a word of its name, or a
+         * unique prefix of either, ignoring case.
+         *
+         * @param text  the text holding the name
+         * @param start index of the name's first character
+         * @param end   index after the name's last character
+         * @return the place's cell number, or -1 if no single place matches
+         */
+        int findPlace(CharSequence text, int start, int end) {
+                Integer cell = placesByName.match(text, start, end);
+                return cell != null ? cell : -1;
+        }
+
+        /**
+         * @return number of columns, going east
+         */
+        public int getWidth() {
+                return width;
+        }
+
+        /**
+         * @return number of rows, going north
+         */
+        public int getHeight() {
+                return height;
+        }
+
+        /**
+         * @return the layout of the map drawn for this world
+         */
+        MapFrame getMapFrame() {
+                return mapFrame;
+        }
+
+        /**
+         * Checks whether coordinates are inside the world.
+         *
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         * @return true if the coordinates are on the map
+         */
+        public boolean contains(int x, int y) {
+                return x >= 0 && x < width && y >= 0 && y < height;
+        }
+
+        /**
+         * Returns the cell number of coordinates inside the world.
+         *
+         * @param x the x-coordinate
+         * @param y the y-coordinate
+         * @return the cell number
+         */
+        int cell(int x, int y) {
+                return x * height + y;
+        }
+
+        /**
+         * Finds the hand-authored place in a cell.
+         *
+         * @param cell the cell number
+         * @return the place's index in the place arrays, or a negative number if
+         *         the cell is space
+         */
+        private int place(int cell) {
+                return Arrays.binarySearch(placeCells, cell);
+        }
+
+        /**
+         * Returns the kind of space in a cell without a place.
+         *
+         * @param cell the cell number
+         * @return an index into the space tables, 0 for empty space
+         */
+        private int spaceKind(int cell) {
+                if (space == null || cell / height < AUTHORED_SIZE && cell % height < AUTHORED_SIZE) {
+                        return SpaceChunks.EMPTY;
+                }
+                return space.kind(cell);
+        }
+
+        /**
+         * @return the generated space of this world, or null if it has none
+         */
+        SpaceChunks getSpace() {
+                return space;
+        }
+
+        /**
+         * @param cell the cell number
+         * @return the name of the cell
+         */
+        String getName(int cell) {
+                int place = place(cell);
+                return place >= 0 ? StringTable.get(placeNames[place]) : SPACE_NAMES[spaceKind(cell)];
+        }
+
+        /**
+         * @param cell the cell number
+         * @return the short description of the cell
+         */
+        String getDescription(int cell) {
+                int place = place(cell);
+                return place >= 0 ? StringTable.get(placeDescriptions[place]) : SPACE_DESCRIPTIONS[spaceKind(cell)];
+        }
+
+        /**
+         * @param cell the cell number
+         * @return the starting long description, or null for empty space
+         */
+        String getLongDescription(int cell) {
+                int place = place(cell);
+                return place >= 0 ? StringTable.get(placeLongDescriptions[place])
+                                : SPACE_LONG_DESCRIPTIONS[spaceKind(cell)];
+        }
+
+        /**
+         * @param cell the cell number
+         * @return the starting item, or null
+         */
+        Items getItem(int cell) {
+                int place = place(cell);
+                return place >= 0 ? Items.byId(placeItems[place]) : null;
+        }
+
+        /**
+         * @return number of hand-authored places
+         */
+        int getPlaceCount() {
+                return placeCells.length;
+        }
+
+        /**
+         * @param i index of a place, below {@link #getPlaceCount()}
+         * @return the place's cell number
+         */
+        int getPlaceCell(int i) {
+                return placeCells[i];
+        }
+
+        /**
+         * @param cell the cell number
+         * @return whether the cell starts hostile
+         */
+        boolean isHostile(int cell) {
+                int place = place(cell);
+                return place >= 0 && (placeFlags[place] & HOSTILE) != 0;
+        }
+
+        /**
+         * @param cell the cell number
+         * @return whether the cell has an event that can happen once
+         */
+        boolean hasEvent(int cell) {
+                int place = place(cell);
+                return place >= 0 && (placeFlags[place] & EVENT) != 0;
+        }
+}